@@ -0,0 +1,62 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a reassembled LIVE_DATA frame: reading it in place versus materializing a LiveDataInfo copy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LiveDataParseBenchmark {
+    @Param({ "10240", "102400", "512000" })
+    public int frameSize;
+
+    @Param({ "0", "20", "200" })
+    public int objectCount;
+
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        frame = LiveFrames.build(1, frameSize, objectCount, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public void view(Blackhole bh) {
+        LiveDataView view = LiveDataView.wrap(frame.retainedDuplicate());
+        try {
+            bh.consume(view.getCameraId());
+            bh.consume(view.getTimestampMillis());
+            bh.consume(view.getCodec());
+            for (int i = 0; i < view.getObjectCount(); i++) {
+                bh.consume(view.objectType(i));
+                bh.consume(view.objectX(i) + view.objectY(i) + view.objectWidth(i) + view.objectHeight(i));
+                bh.consume(view.objectDetectionScore(i));
+                bh.consume(view.objectAttribute(i, 0));
+            }
+            bh.consume(view.payload());
+        } finally {
+            view.release();
+        }
+    }
+
+    @Benchmark
+    public LiveDataInfo toLiveDataInfo() {
+        LiveDataView view = LiveDataView.wrap(frame.retainedDuplicate());
+        try {
+            return view.toLiveDataInfo();
+        } finally {
+            view.release();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Random;
+
+/**
+ * Synthetic LIVE_DATA frames with random detections and video bytes for benchmarks
+ */
+public final class LiveFrames {
+    private LiveFrames() {
+    }
+
+    /**
+     * Build a frame of about {@code frameSize} bytes (at least the header and objects) with the given detections
+     */
+    public static ByteBuf build(int cameraId, int frameSize, int objectCount, boolean intra) {
+        int extraDataSize = intra ? 32 : 0;
+        int payloadSize = Math.max(0,
+                frameSize - LiveDataView.HEADER_SIZE - objectCount * LiveDataView.OBJECT_SIZE - extraDataSize);
+        Random random = new Random(cameraId);
+
+        LiveFrameBuilder frame = LiveFrameBuilder.frame()
+                .cameraId(cameraId)
+                .timestamp(System.currentTimeMillis() / 1000 * 1000 + 123)
+                .intra(intra)
+                .fps(30, 30, 10)
+                .count(0, objectCount);
+        for (int i = 0; i < objectCount; i++) {
+            int[] attributes = new int[RwcVaConstants.MAX_ATTRIBUTE_COUNT];
+            for (int j = 0; j < attributes.length; j++) {
+                attributes[j] = random.nextInt(16);
+            }
+            frame.object(i, i % 2 == 0 ? RwcVaEnums.ObjectType.PERSON : RwcVaEnums.ObjectType.CAR,
+                    random.nextFloat(), random.nextFloat(),
+                    random.nextFloat() * 1920, random.nextFloat() * 1080,
+                    random.nextFloat() * 200, random.nextFloat() * 400, attributes);
+        }
+
+        byte[] extraData = new byte[extraDataSize];
+        byte[] payload = new byte[payloadSize];
+        random.nextBytes(extraData);
+        random.nextBytes(payload);
+        return frame.extraData(extraData).payload(payload).build();
+    }
+}
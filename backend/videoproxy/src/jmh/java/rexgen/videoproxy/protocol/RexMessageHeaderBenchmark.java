@@ -0,0 +1,52 @@
+package rexgen.videoproxy.protocol;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header (de)serialization done for every packet sent and received
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RexMessageHeaderBenchmark {
+    private RexMessageHeader header;
+    private byte[] headerBytes;
+    private RexMessageEncoder encoder;
+    private ByteBuffer encodeBuffer;
+
+    @Setup
+    public void setup() {
+        header = new RexMessageHeader();
+        header.setPrefix(RwcVaConstants.DEFAULT_PREFIX);
+        header.setPacketSize((short) 1052);
+        header.setCommand((byte) RwcVaEnums.Command.LIVE.getValue());
+        header.setSubCommand((byte) RwcVaEnums.LiveSubCommand.LIVE_DATA.getValue());
+        header.setRawClientKey(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        headerBytes = header.toBytes();
+
+        encoder = new RexMessageEncoder();
+        encoder.setClientKey(0x0807060504030201L);
+        encodeBuffer = ByteBuffer.allocateDirect(RexMessageEncoder.FRAME_HEADER_SIZE);
+    }
+
+    @Benchmark
+    public RexMessageHeader fromBytes() {
+        return RexMessageHeader.fromBytes(headerBytes);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return header.toBytes();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeHeader() {
+        encodeBuffer.clear();
+        encoder.encodeHeader(encodeBuffer, (byte) RwcVaEnums.Command.LIVE.getValue(),
+                (byte) RwcVaEnums.LiveSubCommand.LIVE_DATA.getValue(), 1024);
+        return encodeBuffer;
+    }
+}
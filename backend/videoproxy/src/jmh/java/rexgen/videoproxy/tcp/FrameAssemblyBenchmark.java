@@ -0,0 +1,85 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrames;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combining LIVE_DATA chunks into one frame: the pooled composite used by the client versus
+ * copying every chunk into a single array
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameAssemblyBenchmark {
+    @Param({ "10240", "102400", "512000" })
+    public int frameSize;
+
+    @Param({ "8192", "32768" })
+    public int chunkSize;
+
+    private ByteBuf[] chunks;
+    private byte[][] chunkArrays;
+    private FrameAssembler assembler;
+
+    @Setup
+    public void setup() {
+        ByteBuf frame = LiveFrames.build(1, frameSize, 20, true);
+        int count = (frame.readableBytes() + chunkSize - 1) / chunkSize;
+        chunks = new ByteBuf[count];
+        chunkArrays = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            int length = Math.min(chunkSize, frame.readableBytes());
+            chunkArrays[i] = new byte[length];
+            frame.getBytes(frame.readerIndex(), chunkArrays[i]);
+            chunks[i] = frame.readRetainedSlice(length);
+        }
+        frame.release();
+        assembler = new FrameAssembler(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ByteBuf chunk : chunks) {
+            chunk.release();
+        }
+    }
+
+    @Benchmark
+    public int composite() {
+        for (ByteBuf chunk : chunks) {
+            assembler.append(chunk);
+        }
+        LiveDataView view = LiveDataView.wrap(assembler.take());
+        try {
+            return view.getPayloadSize();
+        } finally {
+            view.release();
+        }
+    }
+
+    @Benchmark
+    public int copyIntoArray() {
+        int total = 0;
+        for (byte[] chunk : chunkArrays) {
+            total += chunk.length;
+        }
+        byte[] combined = new byte[total];
+        int offset = 0;
+        for (byte[] chunk : chunkArrays) {
+            System.arraycopy(chunk, 0, combined, offset, chunk.length);
+            offset += chunk.length;
+        }
+        LiveDataView view = LiveDataView.wrap(ByteBuffer.wrap(combined));
+        try {
+            return view.getPayloadSize();
+        } finally {
+            view.release();
+        }
+    }
+}
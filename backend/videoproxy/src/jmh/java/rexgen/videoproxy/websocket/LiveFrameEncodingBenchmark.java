@@ -0,0 +1,51 @@
+package rexgen.videoproxy.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrames;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame WebSocket encoding: JSON metadata plus binary video versus the single binary envelope
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LiveFrameEncodingBenchmark {
+    @Param({ "10240", "102400", "512000" })
+    public int frameSize;
+
+    @Param({ "0", "20", "200" })
+    public int objectCount;
+
+    private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+    private LiveDataView frame;
+
+    @Setup
+    public void setup() {
+        ByteBuf buf = LiveFrames.build(1, frameSize, objectCount, true);
+        frame = LiveDataView.wrap(buf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public void jsonAndBinary(Blackhole bh) throws IOException {
+        bh.consume(LiveFrameEncoder.encodeMetadata(jsonFactory, frame));
+        bh.consume(LiveFrameEncoder.encodeVideo(frame));
+    }
+
+    @Benchmark
+    public void binaryEnvelope(Blackhole bh) {
+        bh.consume(LiveFrameEncoder.encode(frame));
+    }
+}
@@ -0,0 +1,51 @@
+package rexgen.videoproxy.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with 100 µs buckets up to 30 s; larger values land in the last bucket
+ */
+final class LatencyHistogram {
+    private static final long BUCKET_MICROS = 100;
+    private static final int BUCKETS = 300_000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+
+    void recordMicros(long micros) {
+        int bucket = (int) Math.min(BUCKETS - 1, Math.max(0, micros / BUCKET_MICROS));
+        counts.incrementAndGet(bucket);
+        total.increment();
+    }
+
+    long count() {
+        return total.sum();
+    }
+
+    /**
+     * Value in milliseconds below which the given fraction of samples fall
+     */
+    double percentileMillis(double fraction) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return (i + 1) * BUCKET_MICROS / 1000.0;
+            }
+        }
+        return BUCKETS * BUCKET_MICROS / 1000.0;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+    }
+}
@@ -0,0 +1,150 @@
+package rexgen.videoproxy.loadtest;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Opens many concurrent /ws/video viewers against a running proxy and reports frame latency
+ * (RexWatch timestamp to WebSocket receipt), frames per second and server-side dropped frames.
+ * <pre>
+ * gradle runLoadGenerator -PloadArgs="--sessions=500 --cameras-per-session=4 --camera-count=16 --duration=60"
+ * </pre>
+ * Pair it with {@link RexWatchSimulator} on the same machine so both timestamps share one clock.
+ */
+public class LoadGenerator {
+    private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class.getName());
+
+    /**
+     * Load settings, parsed from {@code --name=value} arguments
+     */
+    static final class Options {
+        String url = "ws://localhost:8080/ws/video";
+        String serverIp = "127.0.0.1";
+        int serverPort = 6990;
+        String format = "binary";
+        int sessions = 100;
+        int camerasPerSession = 4;
+        int cameraCount = 16;
+        int rampPerSecond = 50;
+        int durationSeconds = 60;
+        int reportSeconds = 5;
+
+        static Options parse(String... args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "url" -> options.url = value;
+                    case "server-ip" -> options.serverIp = value;
+                    case "server-port" -> options.serverPort = Integer.parseInt(value);
+                    case "format" -> options.format = value;
+                    case "sessions" -> options.sessions = Integer.parseInt(value);
+                    case "cameras-per-session" -> options.camerasPerSession = Integer.parseInt(value);
+                    case "camera-count" -> options.cameraCount = Integer.parseInt(value);
+                    case "ramp" -> options.rampPerSecond = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "report" -> options.reportSeconds = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            return options;
+        }
+    }
+
+    /**
+     * Counters shared by all viewers
+     */
+    static final class Metrics {
+        final LatencyHistogram interval = new LatencyHistogram();
+        final LatencyHistogram overall = new LatencyHistogram();
+        final LongAdder frames = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder readySessions = new LongAdder();
+        final LongAdder closedSessions = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void recordFrame(long latencyMillis, int metadataBytes) {
+            long micros = latencyMillis * 1000;
+            interval.recordMicros(micros);
+            overall.recordMicros(micros);
+            frames.increment();
+            bytes.add(metadataBytes);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = Options.parse(args);
+        Metrics metrics = new Metrics();
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors())))
+                .build();
+
+        // 세션마다 연속된 카메라 묶음을 배정 (카메라 ID는 1부터)
+        List<ViewerSession> viewers = new ArrayList<>(options.sessions);
+        long rampIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.rampPerSecond);
+        for (int s = 0; s < options.sessions; s++) {
+            int[] cameraIds = new int[Math.min(options.camerasPerSession, options.cameraCount)];
+            for (int i = 0; i < cameraIds.length; i++) {
+                cameraIds[i] = (s * options.camerasPerSession + i) % options.cameraCount + 1;
+            }
+            ViewerSession viewer = new ViewerSession(options, cameraIds, metrics);
+            viewers.add(viewer);
+            viewer.open(client).exceptionally(e -> {
+                metrics.errors.increment();
+                LOGGER.warning("Failed to open session: " + e.getMessage());
+                return null;
+            });
+            TimeUnit.NANOSECONDS.sleep(rampIntervalNanos);
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long lastFrames = 0;
+        long lastBytes = 0;
+        long lastReport = start;
+        System.out.println("time(s) ready  frames/s   MB/s   p50(ms)  p99(ms)  p999(ms) errors");
+        while (System.nanoTime() < end) {
+            TimeUnit.SECONDS.sleep(options.reportSeconds);
+            long now = System.nanoTime();
+            double seconds = (now - lastReport) / 1e9;
+            long frames = metrics.frames.sum();
+            long bytes = metrics.bytes.sum();
+            System.out.printf("%7.0f %5d %9.0f %6.1f %8.1f %8.1f %9.1f %6d%n",
+                    (now - start) / 1e9, metrics.readySessions.sum(),
+                    (frames - lastFrames) / seconds, (bytes - lastBytes) / seconds / (1 << 20),
+                    metrics.interval.percentileMillis(0.50), metrics.interval.percentileMillis(0.99),
+                    metrics.interval.percentileMillis(0.999), metrics.errors.sum());
+            metrics.interval.reset();
+            lastFrames = frames;
+            lastBytes = bytes;
+            lastReport = now;
+        }
+
+        // 서버측 송신 큐에서 버려진 프레임 수 조회
+        viewers.forEach(ViewerSession::requestStats);
+        TimeUnit.SECONDS.sleep(2);
+        long dropped = viewers.stream().mapToLong(ViewerSession::getDroppedFrames).sum();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("==== SUMMARY ====");
+        System.out.printf("sessions=%d ready=%d closed=%d errors=%d%n", options.sessions,
+                metrics.readySessions.sum(), metrics.closedSessions.sum(), metrics.errors.sum());
+        System.out.printf("frames=%d (%.0f/s), dropped by proxy=%d%n", metrics.frames.sum(),
+                metrics.frames.sum() / seconds, dropped);
+        System.out.printf("latency ms p50=%.1f p99=%.1f p999=%.1f%n", metrics.overall.percentileMillis(0.50),
+                metrics.overall.percentileMillis(0.99), metrics.overall.percentileMillis(0.999));
+
+        viewers.forEach(ViewerSession::close);
+        TimeUnit.SECONDS.sleep(1);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,135 @@
+package rexgen.videoproxy.loadtest;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import rexgen.videoproxy.tcp.RexMessageDecoder;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Stand-in RexWatch server for load and latency tests.
+ * <p>
+ * Accepts INIT_CLIENT CONNECT with a fresh client key and, after LIVE_INFO, streams
+ * LIVE_DATA_PREPARE / LIVE_DATA / LIVE_DATA_COMPLETE sequences for the requested cameras.
+ * Frame timestamps are the wall clock at send time so receivers can measure end-to-end latency.
+ * <pre>
+ * gradle runSimulator -PsimArgs="--port=6990 --cameras=16 --fps=30 --frame-size=102400 --gop=30 --objects=10"
+ * </pre>
+ */
+public class RexWatchSimulator {
+    private static final Logger LOGGER = Logger.getLogger(RexWatchSimulator.class.getName());
+
+    /**
+     * Simulator settings, parsed from {@code --name=value} arguments
+     */
+    public static final class Options {
+        int port = 6990;
+        int cameras = 16;
+        int fps = 30;
+        int frameSize = 100 * 1024;
+        int gop = 30;
+        int objects = 10;
+        int chunkSize = 32000;
+        int threads = 0;
+
+        public static Options parse(String... args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                int value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+                switch (name) {
+                    case "port" -> options.port = value;
+                    case "cameras" -> options.cameras = value;
+                    case "fps" -> options.fps = value;
+                    case "frame-size" -> options.frameSize = value;
+                    case "gop" -> options.gop = value;
+                    case "objects" -> options.objects = value;
+                    case "chunk-size" -> options.chunkSize = value;
+                    case "threads" -> options.threads = value;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            if (options.fps <= 0 || options.gop <= 0 || options.chunkSize <= 0 || options.chunkSize > 32000) {
+                throw new IllegalArgumentException("fps and gop must be positive and chunk-size in 1..32000");
+            }
+            return options;
+        }
+
+        @Override
+        public String toString() {
+            return "port=" + port + ", cameras=" + cameras + ", fps=" + fps + ", frameSize=" + frameSize +
+                    ", gop=" + gop + ", objects=" + objects + ", chunkSize=" + chunkSize;
+        }
+    }
+
+    private final Options options;
+    private final AtomicLong nextClientKey = new AtomicLong(0x5A5A0000L);
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public RexWatchSimulator(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Bind the listening socket
+     *
+     * @return the bound port (useful with {@code --port=0})
+     */
+    public int start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("rexwatch-sim-accept"));
+        workerGroup = new NioEventLoopGroup(options.threads, new DefaultThreadFactory("rexwatch-sim-io"));
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                // 수신측이 느리면 프레임을 건너뛰도록 쓰기 버퍼 상한 설정
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(1 << 20, 4 << 20))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast("rexDecoder", new RexMessageDecoder())
+                                .addLast("session", new SimulatorSession(options, nextClientKey.incrementAndGet()));
+                    }
+                });
+
+        serverChannel = bootstrap.bind(options.port).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        LOGGER.info("RexWatch simulator listening on port " + port + " (" + options + ")");
+        return port;
+    }
+
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().awaitUninterruptibly();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+            workerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        RexWatchSimulator simulator = new RexWatchSimulator(Options.parse(args));
+        simulator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::stop, "rexwatch-sim-shutdown"));
+        simulator.serverChannel.closeFuture().sync();
+    }
+}
@@ -0,0 +1,376 @@
+package rexgen.videoproxy.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+import rexgen.videoproxy.tcp.RexMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One simulated RexWatch connection: handshake, LIVE_INFO handling and the frame stream.
+ * PLAYBACK_INFO streams recorded frames as fast as the connection accepts them, the way a
+ * recorder reads from disk, so the proxy has to pace them. All methods run on the channel's event loop.
+ */
+class SimulatorSession extends SimpleChannelInboundHandler<RexMessage> {
+    private static final Logger LOGGER = Logger.getLogger(SimulatorSession.class.getName());
+    private static final byte[] PREFIX_BYTES = RwcVaConstants.DEFAULT_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte LIVE_SIGNAL = 100;
+    private static final int EXTRA_DATA_SIZE = 32;
+
+    private final RexWatchSimulator.Options options;
+    private final long clientKey;
+    private final ByteBuf intraPayload;
+    private final ByteBuf predictPayload;
+
+    private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> stream;
+    private int[] cameraIds = new int[0];
+    private boolean[] needIntra = new boolean[0];
+    private long frameIndex;
+    private long framesSent;
+    private long framesSkipped;
+
+    private ScheduledFuture<?> playback;
+    private int[] playbackCameraIds = new int[0];
+    private long playbackMillis;
+    private long playbackEndMillis;
+    private long playbackFrameIndex;
+
+    SimulatorSession(RexWatchSimulator.Options options, long clientKey) {
+        this.options = options;
+        this.clientKey = clientKey;
+
+        int headerSize = LiveDataView.HEADER_SIZE + options.objects * LiveDataView.OBJECT_SIZE;
+        int payloadSize = Math.max(16, options.frameSize - headerSize);
+        this.intraPayload = Unpooled.unreleasableBuffer(annexB(payloadSize, true));
+        this.predictPayload = Unpooled.unreleasableBuffer(annexB(payloadSize, false));
+    }
+
+    /**
+     * H.264 Annex-B shaped payload: SPS/PPS/IDR or a single P slice, with no stray start codes in the filler
+     */
+    private static ByteBuf annexB(int size, boolean intra) {
+        byte[] bytes = new byte[size];
+        new Random(size + (intra ? 1 : 0)).nextBytes(bytes);
+        for (int i = 0; i < size; i++) {
+            if (bytes[i] == 0) {
+                bytes[i] = 0x55;
+            }
+        }
+        byte[] nalHeaders = intra
+                ? new byte[] { 0, 0, 0, 1, 0x67, 0x42, (byte) 0xE0, 0x1F, 0, 0, 0, 1, 0x68, (byte) 0xCE, 0, 0, 0, 1, 0x65 }
+                : new byte[] { 0, 0, 0, 1, 0x41 };
+        System.arraycopy(nalHeaders, 0, bytes, 0, Math.min(nalHeaders.length, size));
+        return Unpooled.wrappedBuffer(bytes);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        LOGGER.info("Simulator connection from " + ctx.channel().remoteAddress() + ", clientKey=" + clientKey);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (stream != null) {
+            stream.cancel(false);
+        }
+        if (playback != null) {
+            playback.cancel(false);
+        }
+        LOGGER.info("Simulator connection closed, clientKey=" + clientKey +
+                ", frames sent: " + framesSent + ", skipped: " + framesSkipped);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.log(Level.WARNING, "Simulator connection error, closing", cause);
+        ctx.close();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, RexMessage msg) {
+        int command = msg.getCommand();
+        int subCommand = msg.getSubCommand() & 0xFF;
+
+        if (command == RwcVaEnums.Command.INIT_CLIENT.getValue()
+                && subCommand == RwcVaEnums.InitClientSubCommand.CONNECT.getValue()) {
+            int connectType = msg.getBodySize() >= 4 ? msg.content().getIntLE(msg.content().readerIndex()) : 1;
+            ByteBuf body = ctx.alloc().buffer(16);
+            body.writeIntLE(connectType).writeLongLE(clientKey).writeIntLE(RwcVaEnums.Version.v40.getValue());
+            writePacket(RwcVaEnums.Command.INIT_CLIENT.getValue(), RwcVaEnums.InitClientSubCommand.ACCEPT.getValue(), body);
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.LIVE.getValue()
+                && subCommand == RwcVaEnums.LiveSubCommand.LIVE_INFO.getValue()) {
+            handleLiveInfo(msg.content());
+            writePacket(RwcVaEnums.Command.LIVE.getValue(), RwcVaEnums.LiveSubCommand.LIVE_RESPONSE.getValue(), null);
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.PLAYBACK.getValue()
+                && subCommand == RwcVaEnums.PlaybackSubCommand.PLAYBACK_INFO.getValue()) {
+            handlePlaybackInfo(msg.content());
+            writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                    RwcVaEnums.PlaybackSubCommand.PLAYBACK_RESPONSE.getValue(), null);
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.PLAYBACK.getValue()
+                && subCommand == RwcVaEnums.PlaybackSubCommand.PLAY_CONTROL.getValue()) {
+            writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                    RwcVaEnums.PlaybackSubCommand.PLAY_CONTROL_RESPONSE.getValue(), null);
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.PLAYBACK.getValue()
+                && subCommand == RwcVaEnums.PlaybackSubCommand.PLAY_SEEK.getValue()) {
+            handlePlaySeek(msg.content());
+            writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                    RwcVaEnums.PlaybackSubCommand.PLAY_SEEK_RESPONSE.getValue(), null);
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.PLAYBACK.getValue()
+                && subCommand == RwcVaEnums.PlaybackSubCommand.RECORD_RANGE.getValue()) {
+            handleRecordRange(msg.content());
+            ctx.flush();
+        } else if (command == RwcVaEnums.Command.PLAYBACK.getValue()
+                && subCommand == RwcVaEnums.PlaybackSubCommand.TIMELINE_INFO.getValue()) {
+            handleTimelineInfo(msg.content());
+            ctx.flush();
+        } else if (command != LIVE_SIGNAL) {
+            LOGGER.fine(() -> "Ignoring command " + command + "/" + subCommand);
+        }
+    }
+
+    private void handleLiveInfo(ByteBuf body) {
+        int count = body.readableBytes() >= 4 ? body.readIntLE() : 0;
+        count = Math.max(0, Math.min(count, body.readableBytes() / 4));
+        int[] requested = new int[count];
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            int cameraId = body.readIntLE();
+            if (cameraId >= 1 && cameraId <= options.cameras) {
+                requested[accepted++] = cameraId;
+            }
+        }
+
+        cameraIds = Arrays.copyOf(requested, accepted);
+        needIntra = new boolean[accepted];
+        Arrays.fill(needIntra, true);
+        LOGGER.info("clientKey=" + clientKey + " streaming cameras " + Arrays.toString(cameraIds));
+
+        if (stream == null) {
+            long periodNanos = TimeUnit.SECONDS.toNanos(1) / options.fps;
+            stream = ctx.executor().scheduleAtFixedRate(this::tick, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void handlePlaybackInfo(ByteBuf body) {
+        int tableEnd = 4 + RwcVaConstants.MAX_CAMERA_COUNT * RwcVaConstants.CAMERA_ID;
+        if (body.readableBytes() < tableEnd + 8) {
+            LOGGER.warning("Playback info too short: " + body.readableBytes() + " bytes");
+            return;
+        }
+        int base = body.readerIndex();
+        int count = Math.max(0, Math.min(body.getIntLE(base), RwcVaConstants.MAX_CAMERA_COUNT));
+        playbackCameraIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            playbackCameraIds[i] = body.getIntLE(base + 4 + i * RwcVaConstants.CAMERA_ID);
+        }
+        playbackMillis = body.getIntLE(base + tableEnd) * 1000L;
+        playbackEndMillis = body.getIntLE(base + tableEnd + 4) * 1000L;
+        playbackFrameIndex = 0;
+        LOGGER.info("clientKey=" + clientKey + " playing back cameras " + Arrays.toString(playbackCameraIds) +
+                " for " + (playbackEndMillis - playbackMillis) / 1000 + "s");
+
+        if (playback == null) {
+            playback = ctx.executor().scheduleAtFixedRate(this::playbackTick, 10, 10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Answer a record range: every day is recorded except one in seven, varying by camera
+     */
+    private void handleRecordRange(ByteBuf request) {
+        if (request.readableBytes() < 12) {
+            LOGGER.warning("Record range request too short: " + request.readableBytes() + " bytes");
+            return;
+        }
+        int base = request.readerIndex();
+        int cameraId = request.getIntLE(base);
+        ByteBuf body = ctx.alloc().buffer(12 + RwcVaConstants.RANGE_MONTH);
+        body.writeIntLE(cameraId).writeIntLE(request.getIntLE(base + 4)).writeIntLE(request.getIntLE(base + 8));
+        body.writeByte(0); // 0번 슬롯은 사용하지 않음
+        for (int day = 1; day < RwcVaConstants.RANGE_MONTH; day++) {
+            body.writeByte((cameraId + day) % 7 == 0 ? 0 : 1);
+        }
+        writePacket(RwcVaEnums.Command.PLAYBACK.getValue(), RwcVaEnums.PlaybackSubCommand.RANGE_RESPONSE.getValue(), body);
+    }
+
+    /**
+     * Answer a timeline request with a minute table split over TIMELINE_PREPARE / DATA / COMPLETE;
+     * the last ten minutes of every hour are not recorded
+     */
+    private void handleTimelineInfo(ByteBuf request) {
+        if (request.readableBytes() < 16) {
+            LOGGER.warning("Timeline request too short: " + request.readableBytes() + " bytes");
+            return;
+        }
+        writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                RwcVaEnums.PlaybackSubCommand.TIMELINE_RESPONSE.getValue(), null);
+
+        int minutesPerDay = 24 * 60;
+        ByteBuf header = ctx.alloc().buffer(16 + minutesPerDay / 2);
+        header.writeBytes(request, request.readerIndex(), 16);
+        ByteBuf rest = ctx.alloc().buffer(minutesPerDay / 2);
+        for (int minute = 0; minute < minutesPerDay; minute++) {
+            (minute < minutesPerDay / 2 ? header : rest).writeByte(minute % 60 < 50 ? 1 : 0);
+        }
+        writePacket(RwcVaEnums.Command.PLAYBACK.getValue(), RwcVaEnums.PlaybackSubCommand.TIMELINE_PREPARE.getValue(), header);
+        writePacket(RwcVaEnums.Command.PLAYBACK.getValue(), RwcVaEnums.PlaybackSubCommand.TIMELINE_DATA.getValue(), rest);
+        writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                RwcVaEnums.PlaybackSubCommand.TIMELINE_COMPLETE.getValue(), null);
+    }
+
+    /**
+     * Continue the current playback from the requested second, starting with a keyframe
+     */
+    private void handlePlaySeek(ByteBuf body) {
+        if (body.readableBytes() < 4) {
+            LOGGER.warning("Play seek too short: " + body.readableBytes() + " bytes");
+            return;
+        }
+        playbackMillis = body.getIntLE(body.readerIndex()) * 1000L;
+        playbackFrameIndex = 0;
+        LOGGER.info("clientKey=" + clientKey + " seeking playback to " + playbackMillis / 1000);
+    }
+
+    /**
+     * Write recorded frames until the connection stops accepting them or the range ends
+     */
+    private void playbackTick() {
+        if (!ctx.channel().isActive() || playbackCameraIds.length == 0) {
+            return;
+        }
+
+        long frameMillis = 1000L / options.fps;
+        while (ctx.channel().isWritable() && playbackMillis < playbackEndMillis) {
+            boolean intra = playbackFrameIndex % options.gop == 0;
+            for (int cameraId : playbackCameraIds) {
+                writeFrame(cameraId, intra, playbackMillis, true);
+            }
+            playbackFrameIndex++;
+            playbackMillis += frameMillis;
+        }
+        if (playbackMillis >= playbackEndMillis) {
+            writePacket(RwcVaEnums.Command.PLAYBACK.getValue(),
+                    RwcVaEnums.PlaybackSubCommand.PLAYBACK_DATA_END.getValue(), null);
+            playbackCameraIds = new int[0];
+        }
+        ctx.flush();
+    }
+
+    private void tick() {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean gopStart = frameIndex % options.gop == 0;
+        for (int i = 0; i < cameraIds.length; i++) {
+            if (!ctx.channel().isWritable()) {
+                // 인코더처럼 밀린 프레임은 버리고 다음 프레임을 키프레임으로 보냄
+                framesSkipped++;
+                needIntra[i] = true;
+                continue;
+            }
+            boolean intra = gopStart || needIntra[i];
+            needIntra[i] = false;
+            writeFrame(cameraIds[i], intra, now, false);
+            framesSent++;
+        }
+        frameIndex++;
+        ctx.flush();
+    }
+
+    private void writeFrame(int cameraId, boolean intra, long now, boolean recorded) {
+        int objectCount = options.objects;
+        int extraDataSize = intra ? EXTRA_DATA_SIZE : 0;
+        ByteBuf payload = intra ? intraPayload : predictPayload;
+
+        ByteBuf header = ctx.alloc().buffer(LiveDataView.HEADER_SIZE + objectCount * LiveDataView.OBJECT_SIZE + extraDataSize);
+        header.writeIntLE(cameraId);
+        header.writeIntLE(payload.readableBytes());
+        header.writeIntLE((int) (now / 1000));
+        header.writeIntLE((int) (now % 1000));
+        header.writeIntLE((intra ? RwcVaEnums.IntraCode.INTRA : RwcVaEnums.IntraCode.PREDICT).getValue());
+        header.writeLongLE(0L);
+        header.writeIntLE(RwcVaEnums.CodecID.H264.getValue());
+        header.writeIntLE(objectCount);
+        header.writeByte(options.fps).writeByte(options.fps).writeByte(options.fps).writeByte(0);
+        header.writeShortLE(objectCount);
+        header.writeShortLE(extraDataSize);
+
+        for (int i = 0; i < objectCount; i++) {
+            float x = (frameIndex * 4 + i * 97L) % 1800;
+            float y = (i * 53L) % 1000;
+            header.writeIntLE(i);
+            header.writeShortLE(i % 3 == 0 ? RwcVaEnums.ObjectType.CAR.getValue() : RwcVaEnums.ObjectType.PERSON.getValue());
+            header.writeFloatLE(0.9f).writeFloatLE(0.8f);
+            header.writeFloatLE(x).writeFloatLE(y).writeFloatLE(80f).writeFloatLE(160f);
+            header.writeShortLE(i % 4).writeShortLE(0).writeShortLE(0).writeShortLE(0);
+        }
+        header.writeZero(extraDataSize);
+
+        // PLAY_DATA는 LIVE_DATA와 같은 레이아웃
+        int command = (recorded ? RwcVaEnums.Command.PLAYBACK : RwcVaEnums.Command.LIVE).getValue();
+        int prepare = recorded ? RwcVaEnums.PlaybackSubCommand.PLAY_DATA_PREPARE.getValue()
+                : RwcVaEnums.LiveSubCommand.LIVE_DATA_PREPARE.getValue();
+        int data = recorded ? RwcVaEnums.PlaybackSubCommand.PLAY_DATA.getValue()
+                : RwcVaEnums.LiveSubCommand.LIVE_DATA.getValue();
+        int complete = recorded ? RwcVaEnums.PlaybackSubCommand.PLAY_DATA_COMPLETE.getValue()
+                : RwcVaEnums.LiveSubCommand.LIVE_DATA_COMPLETE.getValue();
+
+        ByteBuf frame = Unpooled.wrappedBuffer(header, payload.duplicate());
+        try {
+            int chunkSize = options.chunkSize;
+            for (int offset = 0; offset < frame.readableBytes(); offset += chunkSize) {
+                int length = Math.min(chunkSize, frame.readableBytes() - offset);
+                writePacket(command, offset == 0 ? prepare : data, frame.retainedSlice(offset, length));
+            }
+            writePacket(command, complete, null);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Write one RXMG packet; the body is released once written
+     */
+    private void writePacket(int command, int subCommand, ByteBuf body) {
+        int bodySize = body != null ? body.readableBytes() : 0;
+        int packetSize = RwcVaConstants.HEAD + (body != null ? 4 + bodySize : 0);
+
+        ByteBuf header = ctx.alloc().buffer(RwcVaConstants.HEAD + 4);
+        header.writeBytes(PREFIX_BYTES);
+        header.writeShortLE(packetSize);
+        header.writeByte(command);
+        header.writeByte(subCommand);
+        header.writeLongLE(clientKey);
+        header.writeLongLE(0L);
+        if (body != null) {
+            header.writeIntLE(bodySize);
+        }
+
+        ctx.write(header, ctx.voidPromise());
+        if (body != null) {
+            ctx.write(body, ctx.voidPromise());
+        }
+    }
+}
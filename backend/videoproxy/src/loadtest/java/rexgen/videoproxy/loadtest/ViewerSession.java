@@ -0,0 +1,169 @@
+package rexgen.videoproxy.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * One headless /ws/video viewer: connects, requests its cameras once the upstream is ready, and
+ * records the latency of every frame from the RexWatch timestamp to WebSocket receipt.
+ */
+class ViewerSession implements WebSocket.Listener {
+    private static final Logger LOGGER = Logger.getLogger(ViewerSession.class.getName());
+    // 바이너리 프레임(format=binary)의 타임스탬프 위치
+    private static final int ENVELOPE_TIMESTAMP_OFFSET = 8;
+    private static final int ENVELOPE_PREFIX = 16;
+
+    private final LoadGenerator.Options options;
+    private final int[] cameraIds;
+    private final LoadGenerator.Metrics metrics;
+
+    private volatile WebSocket webSocket;
+    private volatile boolean ready;
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private final StringBuilder text = new StringBuilder();
+    private final byte[] prefix = new byte[ENVELOPE_PREFIX];
+    private int prefixLength;
+    private boolean messageStart = true;
+
+    ViewerSession(LoadGenerator.Options options, int[] cameraIds, LoadGenerator.Metrics metrics) {
+        this.options = options;
+        this.cameraIds = cameraIds;
+        this.metrics = metrics;
+    }
+
+    CompletableFuture<WebSocket> open(HttpClient client) {
+        return client.newWebSocketBuilder()
+                .buildAsync(URI.create(options.url), this)
+                .thenApply(ws -> webSocket = ws);
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    void requestStats() {
+        WebSocket ws = webSocket;
+        if (ws != null && !ws.isOutputClosed()) {
+            ws.sendText("{\"type\":\"stats\"}", true);
+        }
+    }
+
+    void close() {
+        WebSocket ws = webSocket;
+        if (ws != null && !ws.isOutputClosed()) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket ws) {
+        webSocket = ws;
+        ws.sendText("{\"type\":\"connect\",\"serverIp\":\"" + options.serverIp + "\",\"serverPort\":" + options.serverPort
+                + ",\"format\":\"" + options.format + "\"}", true);
+        ws.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            handleText(ws, text.toString());
+            text.setLength(0);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    private void handleText(WebSocket ws, String message) {
+        if (message.contains("\"type\":\"liveData\"")) {
+            long timestamp = longField(message, "\"timestamp\":");
+            if (timestamp > 0) {
+                metrics.recordFrame(System.currentTimeMillis() - timestamp, message.length());
+            }
+        } else if (message.contains("\"type\":\"connectionReady\"")) {
+            if (!ready) {
+                ready = true;
+                metrics.readySessions.increment();
+            }
+            StringBuilder request = new StringBuilder("{\"type\":\"liveInfo\",\"cameraIds\":[");
+            for (int i = 0; i < cameraIds.length; i++) {
+                request.append(i > 0 ? "," : "").append(cameraIds[i]);
+            }
+            request.append("],\"serverIp\":\"").append(options.serverIp)
+                    .append("\",\"serverPort\":").append(options.serverPort).append('}');
+            ws.sendText(request.toString(), true);
+        } else if (message.contains("\"type\":\"stats\"")) {
+            droppedFrames.set(longField(message, "\"droppedFrames\":"));
+        } else if (message.contains("\"type\":\"error\"")) {
+            metrics.errors.increment();
+            LOGGER.fine(() -> "Error message: " + message);
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+        int size = data.remaining();
+        if (messageStart) {
+            prefixLength = 0;
+        }
+        if (prefixLength < ENVELOPE_PREFIX) {
+            int n = Math.min(ENVELOPE_PREFIX - prefixLength, data.remaining());
+            data.get(prefix, prefixLength, n);
+            prefixLength += n;
+        }
+        metrics.bytes.add(size);
+        messageStart = last;
+
+        if (last && "binary".equals(options.format) && prefixLength == ENVELOPE_PREFIX) {
+            long timestamp = ByteBuffer.wrap(prefix).order(ByteOrder.LITTLE_ENDIAN).getLong(ENVELOPE_TIMESTAMP_OFFSET);
+            metrics.recordFrame(System.currentTimeMillis() - timestamp, 0);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+        if (ready) {
+            metrics.readySessions.decrement();
+            ready = false;
+        }
+        metrics.closedSessions.increment();
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket ws, Throwable error) {
+        metrics.errors.increment();
+        LOGGER.fine(() -> "WebSocket error: " + error);
+    }
+
+    private static long longField(String json, String field) {
+        int start = json.indexOf(field);
+        if (start < 0) {
+            return -1;
+        }
+        start += field.length();
+        long value = 0;
+        for (int i = start; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
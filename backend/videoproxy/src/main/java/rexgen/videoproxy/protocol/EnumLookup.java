@@ -0,0 +1,40 @@
+package rexgen.videoproxy.protocol;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Dense wire value to enum constant tables for the {@code fromValue} methods in {@link RwcVaEnums}
+ */
+final class EnumLookup {
+    private EnumLookup() {
+    }
+
+    /**
+     * Build a table indexed by wire value; slots without a constant hold the fallback.
+     * Constants with negative values (sentinels) are left out.
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>> E[] table(Class<E> type, ToIntFunction<E> value, E fallback) {
+        E[] constants = type.getEnumConstants();
+        int max = -1;
+        for (E constant : constants) {
+            max = Math.max(max, value.applyAsInt(constant));
+        }
+
+        E[] table = (E[]) Array.newInstance(type, max + 1);
+        Arrays.fill(table, fallback);
+        for (E constant : constants) {
+            int v = value.applyAsInt(constant);
+            if (v >= 0) {
+                table[v] = constant;
+            }
+        }
+        return table;
+    }
+
+    static <E> E lookup(E[] table, int value, E fallback) {
+        return value >= 0 && value < table.length ? table[value] : fallback;
+    }
+}
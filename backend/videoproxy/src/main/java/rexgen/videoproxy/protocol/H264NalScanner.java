@@ -0,0 +1,108 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Finds the NAL units of H.264 Annex-B byte streams (units separated by 00 00 01 or 00 00 00 01
+ * start codes) in place, by absolute index into the buffer, without allocating or changing indices.
+ * <p>
+ * An access unit puts its parameter sets and SEI before its slices, so {@link #scanAccessUnit}
+ * stops at the first slice and never reads the slice data, which is the bulk of a frame.
+ */
+public final class H264NalScanner {
+    public static final int NAL_SLICE = 1;
+    public static final int NAL_IDR = 5;
+    public static final int NAL_SEI = 6;
+    public static final int NAL_SPS = 7;
+    public static final int NAL_PPS = 8;
+    public static final int NAL_AUD = 9;
+
+    /** Bits of the slice (VCL) NAL types 1 to 5 in a {@link #scanAccessUnit} mask */
+    public static final int VCL_MASK = 0x3E;
+    /** Bits of the NAL types a decoder configuration replaces: SPS, PPS and access unit delimiter */
+    public static final int PARAMETER_SET_MASK = (1 << NAL_SPS) | (1 << NAL_PPS) | (1 << NAL_AUD);
+
+    private H264NalScanner() {
+    }
+
+    /**
+     * Index of the NAL header byte after the first start code in [from, to), or -1 if there is none
+     */
+    public static int nextNal(ByteBuf buf, int from, int to) {
+        int i = from;
+        while (i + 3 < to) {
+            byte b = buf.getByte(i + 2);
+            if (b != 0 && b != 1) {
+                // i, i+1, i+2 어느 위치에서도 시작 코드가 시작될 수 없음
+                i += 3;
+            } else if (b == 1 && buf.getByte(i + 1) == 0 && buf.getByte(i) == 0) {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * End (exclusive) of the NAL unit whose header is at {@code nal}: the next start code, without
+     * trailing zero bytes, or {@code to}
+     */
+    public static int nalEnd(ByteBuf buf, int nal, int to) {
+        int next = nextNal(buf, nal + 1, to);
+        int end = next < 0 ? to : next - 3;
+        while (end > nal + 1 && buf.getByte(end - 1) == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Index where the start code of the NAL unit whose header is at {@code nal} begins
+     */
+    public static int startCodeIndex(ByteBuf buf, int nal, int from) {
+        int start = nal - 3;
+        return start > from && buf.getByte(start - 1) == 0 ? start - 1 : start;
+    }
+
+    public static int nalType(ByteBuf buf, int nal) {
+        return buf.getByte(nal) & 0x1F;
+    }
+
+    /**
+     * Types of the NAL units (bit {@code 1 << type}) in [from, to) up to and including the first
+     * slice; 0 if the range holds no start code
+     */
+    public static int scanAccessUnit(ByteBuf buf, int from, int to) {
+        int types = 0;
+        for (int nal = nextNal(buf, from, to); nal >= 0; nal = nextNal(buf, nal + 1, to)) {
+            int type = nalType(buf, nal);
+            types |= 1 << type;
+            if (((1 << type) & VCL_MASK) != 0) {
+                break;
+            }
+        }
+        return types;
+    }
+
+    public static int scanAccessUnit(ByteBuf buf) {
+        return scanAccessUnit(buf, buf.readerIndex(), buf.writerIndex());
+    }
+
+    /**
+     * Index of the start code of the first NAL unit in [from, to) that is not a parameter set or
+     * access unit delimiter; {@code to} if there is none, {@code from} if the range is not Annex-B
+     */
+    public static int skipParameterSets(ByteBuf buf, int from, int to) {
+        int nal = nextNal(buf, from, to);
+        if (nal < 0) {
+            return from;
+        }
+        for (; nal >= 0; nal = nextNal(buf, nal + 1, to)) {
+            if (((1 << nalType(buf, nal)) & PARAMETER_SET_MASK) == 0) {
+                return startCodeIndex(buf, nal, from);
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,352 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a reassembled LIVE_DATA frame.
+ * <p>
+ * Fields are read on demand at fixed little-endian offsets, and object detections are exposed through
+ * indexed accessors, so nothing is allocated per object. The view owns one reference to the frame;
+ * consumers that keep it beyond the delivering callback must {@link #retain()} it.
+ * Use {@link #toLiveDataInfo()} only when a materialized copy is actually needed.
+ */
+public final class LiveDataView {
+    // LiveDataInfo 헤더 오프셋
+    private static final int CAMERA_ID = 0;
+    private static final int DATA_SIZE = 4;
+    private static final int TIME = 8;
+    private static final int MILLISEC = 12;
+    private static final int INTRA_CODE = 16;
+    private static final int EVENT_INFO = 20;
+    private static final int CODEC = 28;
+    private static final int OBJECT_COUNT = 32;
+    private static final int FPS_RECEIVE_COUNT = 36;
+    private static final int FPS_USE_COUNT = 37;
+    private static final int FPS_DETECT_COUNT = 38;
+    private static final int COUNT_TYPE = 39;
+    private static final int COUNT = 40;
+    private static final int EXTRA_DATA_SIZE = 42;
+    public static final int HEADER_SIZE = 44;
+
+    // ObjectInfo 오프셋
+    private static final int OBJ_INDEX = 0;
+    private static final int OBJ_TYPE = 4;
+    private static final int OBJ_DETECTION_SCORE = 6;
+    private static final int OBJ_CLASS_SCORE = 10;
+    private static final int OBJ_X = 14;
+    private static final int OBJ_Y = 18;
+    private static final int OBJ_WIDTH = 22;
+    private static final int OBJ_HEIGHT = 26;
+    private static final int OBJ_ATTRIBUTES = 30;
+    public static final int OBJECT_SIZE = 30 + 2 * RwcVaConstants.MAX_ATTRIBUTE_COUNT;
+
+    private final ByteBuf frame;
+    private final int base;
+    private final int objectCount;
+    private final int extraDataOffset;
+    private final int extraDataSize;
+    private final int payloadOffset;
+    private final int payloadSize;
+    // H.264 NAL 타입 비트, 처음 필요할 때 계산 (-1: 아직 계산 전, 같은 값을 다시 계산해도 무방)
+    private int nalTypes = -1;
+
+    private LiveDataView(ByteBuf frame) {
+        this.frame = frame;
+        this.base = frame.readerIndex();
+
+        int length = frame.readableBytes();
+        if (length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Live data frame too short: " + length + " bytes");
+        }
+
+        this.objectCount = frame.getIntLE(base + OBJECT_COUNT);
+        this.extraDataSize = Math.max(0, frame.getShortLE(base + EXTRA_DATA_SIZE));
+        if (objectCount < 0 || (long) objectCount * OBJECT_SIZE > length) {
+            throw new IllegalArgumentException("Invalid object count: " + objectCount);
+        }
+
+        this.extraDataOffset = HEADER_SIZE + objectCount * OBJECT_SIZE;
+        this.payloadOffset = extraDataOffset + extraDataSize;
+        if (payloadOffset > length) {
+            throw new IllegalArgumentException("Live data frame truncated: " + length + " < " + payloadOffset);
+        }
+        this.payloadSize = length - payloadOffset;
+    }
+
+    /**
+     * Create a view over a frame, taking ownership of the caller's reference
+     */
+    public static LiveDataView wrap(ByteBuf frame) {
+        try {
+            return new LiveDataView(frame);
+        } catch (RuntimeException e) {
+            frame.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a view over the remaining bytes of a buffer
+     */
+    public static LiveDataView wrap(ByteBuffer frame) {
+        return wrap(Unpooled.wrappedBuffer(frame));
+    }
+
+    public int getCameraId() {
+        return frame.getIntLE(base + CAMERA_ID);
+    }
+
+    public int getDataSize() {
+        return frame.getIntLE(base + DATA_SIZE);
+    }
+
+    public int getTime() {
+        return frame.getIntLE(base + TIME);
+    }
+
+    public int getMillisec() {
+        return frame.getIntLE(base + MILLISEC);
+    }
+
+    /**
+     * Capture time in epoch milliseconds, without allocating a Date
+     */
+    public long getTimestampMillis() {
+        return ((long) getTime()) * 1000 + getMillisec();
+    }
+
+    public int getIntraCodeValue() {
+        return frame.getIntLE(base + INTRA_CODE);
+    }
+
+    public RwcVaEnums.IntraCode getIntraCode() {
+        return RwcVaEnums.IntraCode.fromValue(getIntraCodeValue());
+    }
+
+    public long getEventInfo() {
+        return frame.getLongLE(base + EVENT_INFO);
+    }
+
+    public int getCodecValue() {
+        return frame.getIntLE(base + CODEC);
+    }
+
+    public RwcVaEnums.CodecID getCodec() {
+        return RwcVaEnums.CodecID.fromValue(getCodecValue());
+    }
+
+    /**
+     * Types of the H.264 NAL units (bit {@code 1 << type}) in the extra data and at the start of the
+     * payload up to the first slice, found by {@link H264NalScanner}; 0 for other codecs or payloads
+     * that are not Annex-B
+     */
+    public int getNalTypes() {
+        int types = nalTypes;
+        if (types < 0) {
+            types = 0;
+            if (getCodecValue() == RwcVaEnums.CodecID.H264.getValue()) {
+                types = H264NalScanner.scanAccessUnit(frame, base + extraDataOffset, base + payloadOffset)
+                        | H264NalScanner.scanAccessUnit(frame, base + payloadOffset, base + payloadOffset + payloadSize);
+            }
+            nalTypes = types;
+        }
+        return types;
+    }
+
+    /**
+     * Whether decoding can start at this frame: for H.264 whether its first slice is an IDR slice,
+     * otherwise (or without slices to inspect) whether the header's intra code is INTRA
+     */
+    public boolean isKeyframe() {
+        int types = getNalTypes();
+        if ((types & H264NalScanner.VCL_MASK) != 0) {
+            return (types & (1 << H264NalScanner.NAL_IDR)) != 0;
+        }
+        return getIntraCodeValue() == RwcVaEnums.IntraCode.INTRA.getValue();
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    public byte getFpsReceiveCount() {
+        return frame.getByte(base + FPS_RECEIVE_COUNT);
+    }
+
+    public byte getFpsUseCount() {
+        return frame.getByte(base + FPS_USE_COUNT);
+    }
+
+    public byte getFpsDetectCount() {
+        return frame.getByte(base + FPS_DETECT_COUNT);
+    }
+
+    public RwcVaEnums.CountType getCountType() {
+        return RwcVaEnums.CountType.fromValue(frame.getByte(base + COUNT_TYPE));
+    }
+
+    public short getCount() {
+        return frame.getShortLE(base + COUNT);
+    }
+
+    public int getExtraDataSize() {
+        return extraDataSize;
+    }
+
+    // Object accessors
+
+    private int objectOffset(int i) {
+        if (i < 0 || i >= objectCount) {
+            throw new IndexOutOfBoundsException("Object index " + i + " out of " + objectCount);
+        }
+        return base + HEADER_SIZE + i * OBJECT_SIZE;
+    }
+
+    public int objectIndex(int i) {
+        return frame.getIntLE(objectOffset(i) + OBJ_INDEX);
+    }
+
+    public int objectTypeValue(int i) {
+        return frame.getShortLE(objectOffset(i) + OBJ_TYPE);
+    }
+
+    public RwcVaEnums.ObjectType objectType(int i) {
+        return RwcVaEnums.ObjectType.fromValue(objectTypeValue(i));
+    }
+
+    public float objectDetectionScore(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_DETECTION_SCORE);
+    }
+
+    public float objectClassScore(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_CLASS_SCORE);
+    }
+
+    public float objectX(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_X);
+    }
+
+    public float objectY(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_Y);
+    }
+
+    public float objectWidth(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_WIDTH);
+    }
+
+    public float objectHeight(int i) {
+        return frame.getFloatLE(objectOffset(i) + OBJ_HEIGHT);
+    }
+
+    public short objectAttribute(int i, int j) {
+        if (j < 0 || j >= RwcVaConstants.MAX_ATTRIBUTE_COUNT) {
+            throw new IndexOutOfBoundsException("Attribute index " + j);
+        }
+        return frame.getShortLE(objectOffset(i) + OBJ_ATTRIBUTES + 2 * j);
+    }
+
+    // Payload accessors
+
+    /**
+     * Codec extra data as a slice of the frame (not retained)
+     */
+    public ByteBuf extraData() {
+        return frame.slice(base + extraDataOffset, extraDataSize);
+    }
+
+    /**
+     * Encoded video bytes as a slice of the frame (not retained)
+     */
+    public ByteBuf payload() {
+        return frame.slice(base + payloadOffset, payloadSize);
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    /**
+     * Copy the whole frame (header, objects, extra data and payload) into a buffer at its position,
+     * advancing the position; the copy can be read back with {@link #wrap(ByteBuffer)}
+     */
+    public void copyTo(ByteBuffer dst) {
+        int size = getFrameSize();
+        ByteBuffer target = dst.duplicate();
+        target.limit(target.position() + size);
+        frame.getBytes(base, target);
+        dst.position(dst.position() + size);
+    }
+
+    /**
+     * Size of the whole frame in bytes (header, objects, extra data and payload)
+     */
+    public int getFrameSize() {
+        return payloadOffset + payloadSize;
+    }
+
+    // Reference counting
+
+    public LiveDataView retain() {
+        frame.retain();
+        return this;
+    }
+
+    public boolean release() {
+        return frame.release();
+    }
+
+    public int refCnt() {
+        return frame.refCnt();
+    }
+
+    /**
+     * Materialize an independent copy, including one ObjectInfo per detection and the payload bytes
+     */
+    public LiveDataInfo toLiveDataInfo() {
+        LiveDataInfo info = new LiveDataInfo();
+
+        info.setCameraId(getCameraId());
+        info.setDataSize(getDataSize());
+        info.setTime(getTime());
+        info.setMillisec(getMillisec());
+        info.setIntraCode(getIntraCode());
+        info.setEventInfo(getEventInfo());
+        info.setCodec(getCodec());
+        info.setObjectCount(objectCount);
+        info.setFpsReceiveCount(getFpsReceiveCount());
+        info.setFpsUseCount(getFpsUseCount());
+        info.setFpsDetectCount(getFpsDetectCount());
+        info.setCountType(getCountType());
+        info.setCount(getCount());
+        info.setExtraDataSize((short) extraDataSize);
+
+        for (int i = 0; i < objectCount; i++) {
+            ObjectInfo obj = new ObjectInfo();
+            obj.setIndex(objectIndex(i));
+            obj.setType(objectType(i));
+            obj.setDetectionScore(objectDetectionScore(i));
+            obj.setClassScore(objectClassScore(i));
+            obj.setX(objectX(i));
+            obj.setY(objectY(i));
+            obj.setWidth(objectWidth(i));
+            obj.setHeight(objectHeight(i));
+            for (int j = 0; j < RwcVaConstants.MAX_ATTRIBUTE_COUNT; j++) {
+                obj.setAttribute(j, objectAttribute(i, j));
+            }
+            info.addObject(obj);
+        }
+
+        if (extraDataSize > 0) {
+            info.setExtraData(ByteBufUtil.getBytes(extraData()));
+        }
+        if (payloadSize > 0) {
+            info.setData(ByteBufUtil.getBytes(payload()));
+        }
+
+        return info;
+    }
+}
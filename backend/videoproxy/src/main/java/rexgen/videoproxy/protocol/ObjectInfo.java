@@ -1,7 +1,6 @@
 package rexgen.videoproxy.protocol;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class ObjectInfo {
     private int index;
@@ -13,7 +12,8 @@ public class ObjectInfo {
     private float y;
     private float width;
     private float height;
-    private List<Short> attributes = new ArrayList<>();
+    // 항상 MAX_ATTRIBUTE_COUNT개이므로 박싱 없이 원시 배열에 저장
+    private final short[] attributes = new short[RwcVaConstants.MAX_ATTRIBUTE_COUNT];
 
     // Getters and setters
     public int getIndex() {
@@ -80,15 +80,35 @@ public class ObjectInfo {
         this.height = height;
     }
 
-    public List<Short> getAttributes() {
-        return attributes;
+    public short getAttribute(int index) {
+        checkAttributeIndex(index);
+        return attributes[index];
     }
 
-    public void setAttributes(List<Short> attributes) {
-        this.attributes = attributes;
+    public void setAttribute(int index, short attribute) {
+        checkAttributeIndex(index);
+        attributes[index] = attribute;
     }
 
-    public void addAttribute(short attribute) {
-        this.attributes.add(attribute);
+    /**
+     * Copy of all {@link RwcVaConstants#MAX_ATTRIBUTE_COUNT} attributes; unset ones are 0
+     */
+    public short[] getAttributes() {
+        return attributes.clone();
+    }
+
+    /**
+     * Copy up to {@link RwcVaConstants#MAX_ATTRIBUTE_COUNT} attributes; the remaining slots become 0
+     */
+    public void setAttributes(short[] attributes) {
+        int count = Math.min(attributes.length, this.attributes.length);
+        System.arraycopy(attributes, 0, this.attributes, 0, count);
+        Arrays.fill(this.attributes, count, this.attributes.length, (short) 0);
+    }
+
+    private void checkAttributeIndex(int index) {
+        if (index < 0 || index >= attributes.length) {
+            throw new IndexOutOfBoundsException("Attribute index " + index + " out of " + attributes.length);
+        }
     }
 }
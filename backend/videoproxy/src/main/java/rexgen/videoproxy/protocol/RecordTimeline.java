@@ -0,0 +1,184 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded time of a camera as reported by RANGE_RESPONSE (days of a month) and the
+ * TIMELINE_PREPARE / DATA / COMPLETE sequence (minutes of a day), parsed into bitmaps.
+ * <p>
+ * A month's days fit in one int (bit {@code d} for day {@code d} of the
+ * {@link RwcVaConstants#RANGE_MONTH}-slot table) and a day's 1440 minutes in 23 longs, so a camera's
+ * whole month with every timeline loaded stays under 6 KB.
+ */
+public final class RecordTimeline {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int DAY_WORDS = (MINUTES_PER_DAY + 63) / 64;
+
+    // 카메라 ID, 연, 월 (+ 타임라인은 일)
+    private static final int RANGE_HEADER_SIZE = 12;
+    private static final int DAY_HEADER_SIZE = 16;
+
+    private RecordTimeline() {
+    }
+
+    /**
+     * Days of one month that have a recording
+     */
+    public static final class Range {
+        private final int cameraId;
+        private final int year;
+        private final int month;
+        private final int days;
+
+        public Range(int cameraId, int year, int month, int days) {
+            this.cameraId = cameraId;
+            this.year = year;
+            this.month = month;
+            this.days = days;
+        }
+
+        /**
+         * Parse a RANGE_RESPONSE body: i32 camera id, year, month, then one u8 flag per slot of the
+         * {@link RwcVaConstants#RANGE_MONTH}-slot table (slot = day of month, non-zero = recorded).
+         * <p>
+         * This body layout is assumed; nothing in the protocol definitions specifies it.
+         */
+        public static Range parse(ByteBuf body) {
+            int base = body.readerIndex();
+            if (body.readableBytes() < RANGE_HEADER_SIZE) {
+                throw new IllegalArgumentException("Range response too short: " + body.readableBytes() + " bytes");
+            }
+            int slots = Math.min(RwcVaConstants.RANGE_MONTH, body.readableBytes() - RANGE_HEADER_SIZE);
+            int days = 0;
+            for (int d = 0; d < slots; d++) {
+                if (body.getByte(base + RANGE_HEADER_SIZE + d) != 0) {
+                    days |= 1 << d;
+                }
+            }
+            return new Range(body.getIntLE(base), body.getIntLE(base + 4), body.getIntLE(base + 8), days);
+        }
+
+        public int getCameraId() {
+            return cameraId;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getMonth() {
+            return month;
+        }
+
+        /**
+         * Bit {@code d} is set if day {@code d} has a recording
+         */
+        public int getDays() {
+            return days;
+        }
+
+        public boolean hasRecord(int day) {
+            return day >= 0 && day < RwcVaConstants.RANGE_MONTH && (days & (1 << day)) != 0;
+        }
+
+        public List<Integer> recordedDays() {
+            List<Integer> result = new ArrayList<>(Integer.bitCount(days));
+            for (int rest = days; rest != 0; rest &= rest - 1) {
+                result.add(Integer.numberOfTrailingZeros(rest));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Minutes of one day that have a recording
+     */
+    public static final class Day {
+        private final int cameraId;
+        private final int year;
+        private final int month;
+        private final int day;
+        private final long[] minutes;
+
+        public Day(int cameraId, int year, int month, int day, long[] minutes) {
+            if (minutes.length != DAY_WORDS) {
+                throw new IllegalArgumentException("Day bitmap needs " + DAY_WORDS + " words");
+            }
+            this.cameraId = cameraId;
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.minutes = minutes;
+        }
+
+        /**
+         * Day without any recording
+         */
+        public static Day empty(int cameraId, int year, int month, int day) {
+            return new Day(cameraId, year, month, day, new long[DAY_WORDS]);
+        }
+
+        /**
+         * Parse an assembled timeline: i32 camera id, year, month, day, then one u8 flag per minute of
+         * the day (non-zero = recorded); missing trailing minutes are not recorded.
+         * <p>
+         * This body layout is assumed; nothing in the protocol definitions specifies it.
+         */
+        public static Day parse(ByteBuf body) {
+            int base = body.readerIndex();
+            if (body.readableBytes() < DAY_HEADER_SIZE) {
+                throw new IllegalArgumentException("Timeline too short: " + body.readableBytes() + " bytes");
+            }
+            int count = Math.min(MINUTES_PER_DAY, body.readableBytes() - DAY_HEADER_SIZE);
+            long[] minutes = new long[DAY_WORDS];
+            for (int m = 0; m < count; m++) {
+                if (body.getByte(base + DAY_HEADER_SIZE + m) != 0) {
+                    minutes[m >>> 6] |= 1L << m;
+                }
+            }
+            return new Day(body.getIntLE(base), body.getIntLE(base + 4), body.getIntLE(base + 8),
+                    body.getIntLE(base + 12), minutes);
+        }
+
+        public int getCameraId() {
+            return cameraId;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getMonth() {
+            return month;
+        }
+
+        public int getDay() {
+            return day;
+        }
+
+        public boolean isRecorded(int minute) {
+            return minute >= 0 && minute < MINUTES_PER_DAY && (minutes[minute >>> 6] & (1L << minute)) != 0;
+        }
+
+        /**
+         * Recorded runs as [start, end) minute pairs
+         */
+        public List<int[]> segments() {
+            List<int[]> result = new ArrayList<>();
+            int start = -1;
+            for (int m = 0; m <= MINUTES_PER_DAY; m++) {
+                boolean recorded = m < MINUTES_PER_DAY && (minutes[m >>> 6] & (1L << m)) != 0;
+                if (recorded && start < 0) {
+                    start = m;
+                } else if (!recorded && start >= 0) {
+                    result.add(new int[] { start, m });
+                    start = -1;
+                }
+            }
+            return result;
+        }
+    }
+}
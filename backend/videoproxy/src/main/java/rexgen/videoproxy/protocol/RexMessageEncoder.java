@@ -0,0 +1,80 @@
+package rexgen.videoproxy.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes outbound packets (24-byte header, optional body length and body) into a caller-supplied buffer.
+ * <p>
+ * Unlike {@link RexMessageHeader#toBytes()}, nothing is allocated per packet: the client key is
+ * converted to bytes once when the server assigns it, and the header goes straight into the
+ * destination. Used as the header half of a gathering write when the body is already in its own
+ * buffer.
+ */
+public final class RexMessageEncoder {
+    /** Body size for a packet that is only a header, without the body length field */
+    public static final int NO_BODY = -1;
+    /** Header plus body length field */
+    public static final int FRAME_HEADER_SIZE = RwcVaConstants.HEAD + 4;
+
+    private static final byte[] PREFIX = RwcVaConstants.DEFAULT_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] clientKeyBytes = new byte[8];
+    private volatile long clientKey;
+
+    /**
+     * Set the client key from VA_INITCLIENT_ACCEPT; written as-is into every later header
+     */
+    public synchronized void setClientKey(long clientKey) {
+        ByteBuffer.wrap(clientKeyBytes).order(ByteOrder.LITTLE_ENDIAN).putLong(clientKey);
+        this.clientKey = clientKey;
+    }
+
+    public long getClientKey() {
+        return clientKey;
+    }
+
+    /**
+     * Total packet size for a body of the given size, or {@link #NO_BODY}
+     */
+    public static int packetSize(int bodySize) {
+        return bodySize == NO_BODY ? RwcVaConstants.HEAD : FRAME_HEADER_SIZE + bodySize;
+    }
+
+    /**
+     * Write the header, followed by the body length unless bodySize is {@link #NO_BODY}
+     */
+    public void encodeHeader(ByteBuffer out, byte command, byte subCommand, int bodySize) {
+        int packetSize = packetSize(bodySize);
+        if (packetSize > Short.MAX_VALUE) {
+            // 헤더의 packetSize는 signed short
+            throw new IllegalArgumentException("Packet too large: " + packetSize);
+        }
+
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.put(PREFIX);
+        out.putShort((short) packetSize);
+        out.put(command);
+        out.put(subCommand);
+        synchronized (this) {
+            out.put(clientKeyBytes);
+        }
+        out.putLong(0L); // reserve
+        if (bodySize != NO_BODY) {
+            out.putInt(bodySize);
+        }
+        out.order(order);
+    }
+
+    /**
+     * Write a complete packet; a null body writes a header-only packet. Consumes the body's remaining bytes.
+     */
+    public void encode(ByteBuffer out, byte command, byte subCommand, ByteBuffer body) {
+        encodeHeader(out, command, subCommand, body != null ? body.remaining() : NO_BODY);
+        if (body != null) {
+            out.put(body);
+        }
+    }
+}
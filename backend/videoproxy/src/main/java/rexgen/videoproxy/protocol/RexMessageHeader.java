@@ -3,6 +3,7 @@ package rexgen.videoproxy.protocol;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
 import java.util.logging.Logger;
 
 public class RexMessageHeader {
@@ -16,14 +17,12 @@ public class RexMessageHeader {
     private byte[] rawClientKey = null;
     private long reserve;  // ulong -> long으로 수정
 
+    private static final HexFormat HEX = HexFormat.ofDelimiter(" ").withUpperCase();
+
     public void setRawClientKey(byte[] rawClientKey) {
         this.rawClientKey = rawClientKey;
-        // 로깅
-        StringBuilder sb = new StringBuilder();
-        for (byte b : rawClientKey) {
-            sb.append(String.format("%02X ", b));
-        }
-        LOGGER.info("Setting raw client key bytes: " + sb.toString());
+        // 패킷마다 호출되므로 FINEST에서만 문자열 생성
+        LOGGER.finest(() -> "Setting raw client key bytes: " + HEX.formatHex(rawClientKey));
     }
 
     public byte[] toBytes() {
@@ -109,18 +108,9 @@ public class RexMessageHeader {
 
     public void setClientKey(long clientKey) {
         this.clientKey = clientKey;
-        LOGGER.info("Setting client key to: " + clientKey);
-
-        // 디버깅을 위해 16진수 표현도 추가
-        ByteBuffer buf = ByteBuffer.allocate(8);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        buf.putLong(clientKey);
-        byte[] bytes = buf.array();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X ", b));
-        }
-        LOGGER.info("ClientKey bytes: " + sb.toString());
+        // 디버깅을 위한 16진수 표현 (little-endian)
+        LOGGER.finest(() -> "Setting client key to: " + clientKey
+                + ", bytes: " + HEX.formatHex(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(clientKey).array()));
     }
 
     public long getReserve() {
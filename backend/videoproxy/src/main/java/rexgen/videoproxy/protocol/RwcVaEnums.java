@@ -7,6 +7,8 @@ public class RwcVaEnums {
         v30(30),
         v40(40);
 
+        private static final Version[] BY_VALUE = EnumLookup.table(Version.class, Version::getValue, v10);
+
         private final int value;
 
         Version(int value) {
@@ -18,12 +20,7 @@ public class RwcVaEnums {
         }
 
         public static Version fromValue(int value) {
-            for (Version v : values()) {
-                if (v.getValue() == value) {
-                    return v;
-                }
-            }
-            return v10; // Default to v10
+            return EnumLookup.lookup(BY_VALUE, value, v10);
         }
     }
 
@@ -60,7 +57,10 @@ public class RwcVaEnums {
         INIT_CLIENT(10),
         LIVE(11),
         PLAYBACK(12),
-        LIVE_SIGNAL(100);
+        LIVE_SIGNAL(100),
+        UNKNOWN(-1); // 알 수 없는 값
+
+        private static final Command[] BY_VALUE = EnumLookup.table(Command.class, Command::getValue, UNKNOWN);
 
         private final int value;
 
@@ -73,19 +73,18 @@ public class RwcVaEnums {
         }
 
         public static Command fromValue(int value) {
-            for (Command c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            throw new IllegalArgumentException("Unknown command value: " + value);
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
         }
     }
 
     public enum InitClientSubCommand {
         CONNECT(1),
         ACCEPT(100),
-        DECLINE(200);
+        DECLINE(200),
+        UNKNOWN(-1); // 알 수 없는 값
+
+        private static final InitClientSubCommand[] BY_VALUE =
+                EnumLookup.table(InitClientSubCommand.class, InitClientSubCommand::getValue, UNKNOWN);
 
         private final int value;
 
@@ -98,12 +97,7 @@ public class RwcVaEnums {
         }
 
         public static InitClientSubCommand fromValue(int value) {
-            for (InitClientSubCommand c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            throw new IllegalArgumentException("Unknown init client subcommand value: " + value);
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
         }
     }
 
@@ -113,7 +107,11 @@ public class RwcVaEnums {
         LIVE_DATA(11),
         LIVE_DATA_COMPLETE(12),
         LIVE_RESPONSE(100),
-        INTERNAL_ERROR(200);
+        INTERNAL_ERROR(200),
+        UNKNOWN(-1); // 알 수 없는 값
+
+        private static final LiveSubCommand[] BY_VALUE =
+                EnumLookup.table(LiveSubCommand.class, LiveSubCommand::getValue, UNKNOWN);
 
         private final int value;
 
@@ -126,12 +124,7 @@ public class RwcVaEnums {
         }
 
         public static LiveSubCommand fromValue(int value) {
-            for (LiveSubCommand c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            throw new IllegalArgumentException("Unknown live subcommand value: " + value);
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
         }
     }
 
@@ -154,7 +147,11 @@ public class RwcVaEnums {
         PLAY_SEEK_RESPONSE(104),
         PLAYBACK_DATA_END(150),
         INTERNAL_ERROR(200),
-        NOT_EXIST_DATA(201);
+        NOT_EXIST_DATA(201),
+        UNKNOWN(-1); // 알 수 없는 값
+
+        private static final PlaybackSubCommand[] BY_VALUE =
+                EnumLookup.table(PlaybackSubCommand.class, PlaybackSubCommand::getValue, UNKNOWN);
 
         private final int value;
 
@@ -167,12 +164,7 @@ public class RwcVaEnums {
         }
 
         public static PlaybackSubCommand fromValue(int value) {
-            for (PlaybackSubCommand c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            throw new IllegalArgumentException("Unknown playback subcommand value: " + value);
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
         }
     }
 
@@ -182,6 +174,9 @@ public class RwcVaEnums {
         PREDICT(2),
         BIPREDICT(3);
 
+        private static final IntraCode[] BY_VALUE =
+                EnumLookup.table(IntraCode.class, IntraCode::getValue, UNKNOWN);
+
         private final int value;
 
         IntraCode(int value) {
@@ -193,12 +188,7 @@ public class RwcVaEnums {
         }
 
         public static IntraCode fromValue(int value) {
-            for (IntraCode c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            return UNKNOWN;
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
         }
     }
 
@@ -209,6 +199,8 @@ public class RwcVaEnums {
         MPEG4(3),
         H264(4);
 
+        private static final CodecID[] BY_VALUE = EnumLookup.table(CodecID.class, CodecID::getValue, NONE);
+
         private final int value;
 
         CodecID(int value) {
@@ -220,12 +212,7 @@ public class RwcVaEnums {
         }
 
         public static CodecID fromValue(int value) {
-            for (CodecID c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            return NONE;
+            return EnumLookup.lookup(BY_VALUE, value, NONE);
         }
     }
 
@@ -235,6 +222,8 @@ public class RwcVaEnums {
         STOP(2),
         SPEED(3);
 
+        private static final ControlType[] BY_VALUE = EnumLookup.table(ControlType.class, ControlType::getValue, UNKNOWN);
+
         private final int value;
 
         ControlType(int value) {
@@ -244,6 +233,10 @@ public class RwcVaEnums {
         public int getValue() {
             return value;
         }
+
+        public static ControlType fromValue(int value) {
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
+        }
     }
 
     public enum SpeedType {
@@ -254,6 +247,8 @@ public class RwcVaEnums {
         X8(4),
         MAX(5);
 
+        private static final SpeedType[] BY_VALUE = EnumLookup.table(SpeedType.class, SpeedType::getValue, UNKNOWN);
+
         private final int value;
 
         SpeedType(int value) {
@@ -263,6 +258,10 @@ public class RwcVaEnums {
         public int getValue() {
             return value;
         }
+
+        public static SpeedType fromValue(int value) {
+            return EnumLookup.lookup(BY_VALUE, value, UNKNOWN);
+        }
     }
 
     public enum CountType {
@@ -270,6 +269,9 @@ public class RwcVaEnums {
         CROWD(1),
         AREA_MOVEMENT(2);
 
+        private static final CountType[] BY_VALUE =
+                EnumLookup.table(CountType.class, CountType::getValue, NOT_USED);
+
         private final int value;
 
         CountType(int value) {
@@ -281,12 +283,7 @@ public class RwcVaEnums {
         }
 
         public static CountType fromValue(int value) {
-            for (CountType c : values()) {
-                if (c.getValue() == value) {
-                    return c;
-                }
-            }
-            return NOT_USED;
+            return EnumLookup.lookup(BY_VALUE, value, NOT_USED);
         }
     }
 
@@ -299,6 +296,9 @@ public class RwcVaEnums {
         FACE_FULL(32),
         FACE_SIDE(33);
 
+        private static final ObjectType[] BY_VALUE =
+                EnumLookup.table(ObjectType.class, ObjectType::getValue, CAR);
+
         private final int value;
 
         ObjectType(int value) {
@@ -310,12 +310,7 @@ public class RwcVaEnums {
         }
 
         public static ObjectType fromValue(int value) {
-            for (ObjectType t : values()) {
-                if (t.getValue() == value) {
-                    return t;
-                }
-            }
-            return CAR; // Default
+            return EnumLookup.lookup(BY_VALUE, value, CAR);
         }
     }
 }
@@ -0,0 +1,64 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Reassembles the chunks of a PREPARE / DATA / COMPLETE sequence without copying.
+ * <p>
+ * Each chunk is retained and appended as a component of a pooled {@link CompositeByteBuf};
+ * the assembled frame is handed over by {@link #take()} and the caller owns its reference.
+ */
+class FrameAssembler {
+    private static final int MAX_COMPONENTS = 1024;
+
+    private final ByteBufAllocator allocator;
+    private CompositeByteBuf frame;
+
+    FrameAssembler() {
+        this(PooledByteBufAllocator.DEFAULT);
+    }
+
+    FrameAssembler(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Append a chunk; the chunk's reader index is not modified and the caller keeps its own reference
+     */
+    synchronized void append(ByteBuf chunk) {
+        if (chunk == null || !chunk.isReadable()) {
+            return;
+        }
+        if (frame == null) {
+            frame = allocator.compositeBuffer(MAX_COMPONENTS);
+        }
+        frame.addComponent(true, chunk.retainedSlice());
+    }
+
+    synchronized int size() {
+        return frame != null ? frame.readableBytes() : 0;
+    }
+
+    synchronized int chunkCount() {
+        return frame != null ? frame.numComponents() : 0;
+    }
+
+    /**
+     * Hand over the assembled frame, or null if nothing was appended
+     */
+    synchronized ByteBuf take() {
+        ByteBuf assembled = frame;
+        frame = null;
+        return assembled;
+    }
+
+    synchronized void clear() {
+        if (frame != null) {
+            frame.release();
+            frame = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package rexgen.videoproxy.tcp;
+
+import rexgen.videoproxy.protocol.RwcVaConstants;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Pre-serialized LIVE_INFO body: camera count and the fixed 1024-slot id table.
+ * <p>
+ * The body lives in one direct buffer allocated once and is sent behind a header in a single
+ * gathering write. Encoding only rewrites the id slots that changed, and a request with the same
+ * ids reuses the bytes as they are. Also remembers whether the encoded list was sent on the
+ * current connection so unchanged subscriptions need not be sent again. Not thread-safe; callers
+ * synchronize on the instance.
+ */
+final class LiveInfoEncoder {
+    static final int BODY_SIZE = 4 + RwcVaConstants.MAX_CAMERA_COUNT * RwcVaConstants.CAMERA_ID;
+
+    private static final int IDS_OFFSET = 4;
+
+    private final ByteBuffer body = ByteBuffer.allocateDirect(BODY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final int[] encodedIds = new int[RwcVaConstants.MAX_CAMERA_COUNT];
+    private int encodedCount = -1; // -1: 아직 인코딩되지 않음
+    private int dirtySlots;        // 0이 아닌 값이 남아 있을 수 있는 슬롯 수
+    private boolean sent;
+
+    /**
+     * True if these ids are already encoded and were sent on the current connection
+     */
+    boolean isSent(List<Integer> cameraIds) {
+        return sent && matches(cameraIds);
+    }
+
+    /**
+     * Encode the body unless it already holds these ids
+     *
+     * @return the whole body, positioned at 0; valid until the next call
+     */
+    ByteBuffer encode(List<Integer> cameraIds) {
+        int count = cameraIds.size();
+        if (count > RwcVaConstants.MAX_CAMERA_COUNT) {
+            throw new IllegalArgumentException("Too many camera ids: " + count);
+        }
+
+        if (!matches(cameraIds)) {
+            sent = false;
+            body.putInt(0, count);
+            for (int i = 0; i < count; i++) {
+                int id = cameraIds.get(i);
+                encodedIds[i] = id;
+                body.putInt(IDS_OFFSET + i * RwcVaConstants.CAMERA_ID, id);
+            }
+            // 이전 요청이 더 길었다면 남은 슬롯만 0으로 되돌림 (나머지 패딩은 이미 0)
+            for (int i = count; i < dirtySlots; i++) {
+                body.putInt(IDS_OFFSET + i * RwcVaConstants.CAMERA_ID, 0);
+            }
+            dirtySlots = count;
+            encodedCount = count;
+        }
+        return body.clear();
+    }
+
+    void markSent() {
+        sent = true;
+    }
+
+    /**
+     * Forget what was sent, e.g. after a reconnect or a new client key
+     */
+    void invalidate() {
+        sent = false;
+    }
+
+    private boolean matches(List<Integer> cameraIds) {
+        if (encodedCount != cameraIds.size()) {
+            return false;
+        }
+        for (int i = 0; i < encodedCount; i++) {
+            if (encodedIds[i] != cameraIds.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
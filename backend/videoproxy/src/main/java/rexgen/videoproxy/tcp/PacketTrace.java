@@ -0,0 +1,124 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+
+import java.time.Instant;
+
+/**
+ * Bounded capture of the most recent packets on one connection, for protocol debugging.
+ * <p>
+ * While disabled, {@link #record} returns immediately. While enabled, each packet overwrites a
+ * preallocated slot, and text is only produced when {@link #dump()} is called.
+ * Enable by default with {@code -Drwcva.packetTrace=true}.
+ */
+public final class PacketTrace {
+    public enum Direction { IN, OUT }
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_CAPTURE_BYTES = 64;
+
+    private static final boolean DEFAULT_ENABLED = Boolean.getBoolean("rwcva.packetTrace");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final int capacity;
+    private final int captureBytes;
+    private final long[] timestamps;
+    private final Direction[] directions;
+    private final byte[] commands;
+    private final byte[] subCommands;
+    private final int[] packetSizes;
+    private final int[] dataLengths;
+    private final byte[][] data;
+
+    private volatile boolean enabled = DEFAULT_ENABLED;
+    private long recorded;
+
+    public PacketTrace() {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPTURE_BYTES);
+    }
+
+    public PacketTrace(int capacity, int captureBytes) {
+        this.capacity = capacity;
+        this.captureBytes = captureBytes;
+        this.timestamps = new long[capacity];
+        this.directions = new Direction[capacity];
+        this.commands = new byte[capacity];
+        this.subCommands = new byte[capacity];
+        this.packetSizes = new int[capacity];
+        this.dataLengths = new int[capacity];
+        this.data = new byte[capacity][];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Record a packet, capturing the first bytes of its body
+     */
+    public void record(Direction direction, byte command, byte subCommand, int packetSize, ByteBuf body) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            int slot = nextSlot(direction, command, subCommand, packetSize);
+            int length = body != null ? Math.min(body.readableBytes(), captureBytes) : 0;
+            if (length > 0) {
+                body.getBytes(body.readerIndex(), data[slot], 0, length);
+            }
+            dataLengths[slot] = length;
+        }
+    }
+
+    private int nextSlot(Direction direction, byte command, byte subCommand, int packetSize) {
+        int slot = (int) (recorded++ % capacity);
+        if (data[slot] == null) {
+            data[slot] = new byte[captureBytes];
+        }
+        timestamps[slot] = System.currentTimeMillis();
+        directions[slot] = direction;
+        commands[slot] = command;
+        subCommands[slot] = subCommand;
+        packetSizes[slot] = packetSize;
+        return slot;
+    }
+
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    public synchronized void clear() {
+        recorded = 0;
+    }
+
+    /**
+     * Format the captured packets, oldest first
+     */
+    public synchronized String dump() {
+        int count = (int) Math.min(recorded, capacity);
+        StringBuilder sb = new StringBuilder(count * (64 + captureBytes * 3));
+        sb.append("==== PACKET TRACE (").append(count).append(" of ").append(recorded).append(") ====\n");
+        for (long i = recorded - count; i < recorded; i++) {
+            int slot = (int) (i % capacity);
+            sb.append(Instant.ofEpochMilli(timestamps[slot])).append(' ')
+                    .append(directions[slot]).append(" cmd=").append(commands[slot])
+                    .append(" sub=").append(subCommands[slot])
+                    .append(" size=").append(packetSizes[slot]).append(" | ");
+            appendHex(sb, data[slot], 0, dataLengths[slot]);
+            sb.append('\n');
+        }
+        return sb.append("==== END OF PACKET TRACE ====").toString();
+    }
+
+    static StringBuilder appendHex(StringBuilder sb, byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i] & 0xFF;
+            sb.append(HEX[b >>> 4]).append(HEX[b & 0x0F]).append(' ');
+        }
+        return sb;
+    }
+}
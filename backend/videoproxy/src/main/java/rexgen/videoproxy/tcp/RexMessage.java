@@ -0,0 +1,37 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * A single decoded RXMG packet. The body is a retained slice of the inbound buffer
+ * and is released together with this message.
+ */
+public class RexMessage extends DefaultByteBufHolder {
+    private final byte command;
+    private final byte subCommand;
+    private final long clientKey;
+
+    public RexMessage(byte command, byte subCommand, long clientKey, ByteBuf body) {
+        super(body);
+        this.command = command;
+        this.subCommand = subCommand;
+        this.clientKey = clientKey;
+    }
+
+    public byte getCommand() {
+        return command;
+    }
+
+    public byte getSubCommand() {
+        return subCommand;
+    }
+
+    public long getClientKey() {
+        return clientKey;
+    }
+
+    public int getBodySize() {
+        return content().readableBytes();
+    }
+}
@@ -0,0 +1,87 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Splits the inbound byte stream into RXMG packets.
+ * <p>
+ * Wire layout: 24-byte header (prefix, packet size, command, sub command, client key, reserve),
+ * followed by a 4-byte little-endian body length and the body when the packet size exceeds the header.
+ * A frame is emitted as soon as all of its bytes are buffered.
+ */
+public class RexMessageDecoder extends ByteToMessageDecoder {
+    private static final byte[] PREFIX_BYTES = RwcVaConstants.DEFAULT_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final int BODY_SIZE_LENGTH = 4;
+    private static final int DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+    private final int maxBodySize;
+
+    public RexMessageDecoder() {
+        this(DEFAULT_MAX_BODY_SIZE);
+    }
+
+    public RexMessageDecoder(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+        // 큰 LIVE_DATA 청크가 여러 번에 나눠 도착해도 누적 버퍼를 복사하지 않도록 함
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        int readable = in.readableBytes();
+        if (readable < RwcVaConstants.HEAD) {
+            return;
+        }
+
+        int start = in.readerIndex();
+        for (int i = 0; i < PREFIX_BYTES.length; i++) {
+            if (in.getByte(start + i) != PREFIX_BYTES[i]) {
+                throw new CorruptedFrameException("Invalid prefix at offset " + start);
+            }
+        }
+
+        int packetSize = in.getUnsignedShortLE(start + RwcVaConstants.PREFIX);
+        int bodySize = 0;
+        int frameLength = RwcVaConstants.HEAD;
+
+        if (packetSize > RwcVaConstants.HEAD) {
+            if (readable < RwcVaConstants.HEAD + BODY_SIZE_LENGTH) {
+                return;
+            }
+
+            bodySize = in.getIntLE(start + RwcVaConstants.HEAD);
+            if (bodySize < 0 || bodySize > maxBodySize) {
+                throw new TooLongFrameException("Invalid body size: " + bodySize);
+            }
+            if (packetSize - RwcVaConstants.HEAD - BODY_SIZE_LENGTH != bodySize) {
+                throw new CorruptedFrameException("Packet size mismatch: " + packetSize + " vs " +
+                        (bodySize + RwcVaConstants.HEAD + BODY_SIZE_LENGTH));
+            }
+            frameLength = RwcVaConstants.HEAD + BODY_SIZE_LENGTH + bodySize;
+        }
+
+        if (readable < frameLength) {
+            return;
+        }
+
+        byte command = in.getByte(start + 6);
+        byte subCommand = in.getByte(start + 7);
+        long clientKey = in.getLongLE(start + 8);
+
+        ByteBuf body = bodySize > 0
+                ? in.retainedSlice(start + RwcVaConstants.HEAD + BODY_SIZE_LENGTH, bodySize)
+                : Unpooled.EMPTY_BUFFER;
+        in.skipBytes(frameLength);
+
+        out.add(new RexMessage(command, subCommand, clientKey, body));
+    }
+}
@@ -0,0 +1,37 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands decoded packets from the event loop to the owning {@link RwcVaTcpClient}
+ */
+class RwcVaChannelHandler extends SimpleChannelInboundHandler<RexMessage> {
+    private static final Logger LOGGER = Logger.getLogger(RwcVaChannelHandler.class.getName());
+
+    private final RwcVaTcpClient client;
+
+    RwcVaChannelHandler(RwcVaTcpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, RexMessage msg) {
+        client.onMessageReceived(msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        client.onChannelClosed(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        LOGGER.log(Level.SEVERE, "Error in channel pipeline, closing connection", cause);
+        ctx.close();
+    }
+}
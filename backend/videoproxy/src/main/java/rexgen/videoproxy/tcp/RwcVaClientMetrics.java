@@ -0,0 +1,108 @@
+package rexgen.videoproxy.tcp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingest counters for one {@link RwcVaTcpClient}.
+ * <p>
+ * Updated on the receive path with striped {@link LongAdder}s, so recording is a single uncontended
+ * add; values are only summed when read, e.g. by a metrics registry scraping them. Counters are
+ * cumulative over the client's lifetime, including reconnects.
+ */
+public final class RwcVaClientMetrics {
+
+    /**
+     * Count and total duration of a repeated operation
+     */
+    public static final class Timing {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+    }
+
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder packetsReceived = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final Timing frameReassembly = new Timing();
+    private final Timing frameParse = new Timing();
+    private final Timing heartbeatRtt = new Timing();
+    // 응답을 기다리는 LIVE_SIGNAL 전송 시각 (0이면 없음)
+    private volatile long heartbeatSentNanos;
+
+    void recordPacket(int packetSize) {
+        packetsReceived.increment();
+        bytesReceived.add(packetSize);
+    }
+
+    void recordFrame(long reassemblyNanos, long parseNanos) {
+        framesReceived.increment();
+        frameReassembly.record(reassemblyNanos);
+        frameParse.record(parseNanos);
+    }
+
+    void recordReconnect() {
+        reconnects.increment();
+    }
+
+    void heartbeatSent(long nanoTime) {
+        heartbeatSentNanos = nanoTime;
+    }
+
+    /**
+     * Record the round trip if a LIVE_SIGNAL is outstanding; servers that do not echo it record nothing
+     */
+    void heartbeatReceived(long nanoTime) {
+        long sent = heartbeatSentNanos;
+        if (sent != 0) {
+            heartbeatSentNanos = 0;
+            heartbeatRtt.record(nanoTime - sent);
+        }
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    /**
+     * Time from LIVE_DATA_PREPARE to LIVE_DATA_COMPLETE of each frame
+     */
+    public Timing getFrameReassembly() {
+        return frameReassembly;
+    }
+
+    /**
+     * Time to wrap and validate each reassembled frame
+     */
+    public Timing getFrameParse() {
+        return frameParse;
+    }
+
+    public Timing getHeartbeatRtt() {
+        return heartbeatRtt;
+    }
+}
@@ -0,0 +1,77 @@
+package rexgen.videoproxy.tcp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Threads shared by all {@link RwcVaTcpClient}s instead of two executors per client.
+ * <p>
+ * One {@link RwcVaTimer} runs every heartbeat, reconnect and refresh. In virtual-thread mode
+ * each socket receive loop runs on its own virtual thread and blocks in {@code read()} rather
+ * than polling {@code available()}. Virtual threads need a JDK 21+ runtime; on older runtimes the mode falls
+ * back to a platform thread per client.
+ */
+public class RwcVaClientRuntime {
+    private static final Logger LOGGER = Logger.getLogger(RwcVaClientRuntime.class.getName());
+
+    private final RwcVaTimer timer;
+    private final ExecutorService receiveExecutor;
+
+    private RwcVaClientRuntime(RwcVaTimer timer, ExecutorService receiveExecutor) {
+        this.timer = timer;
+        this.receiveExecutor = receiveExecutor;
+    }
+
+    /**
+     * @param virtualThreads run socket receive loops on virtual threads when the runtime supports them
+     */
+    public static RwcVaClientRuntime create(boolean virtualThreads) {
+        ExecutorService receiveExecutor = null;
+        if (virtualThreads) {
+            receiveExecutor = newVirtualThreadExecutor();
+            if (receiveExecutor == null) {
+                LOGGER.warning("Virtual threads require JDK 21 or later (running " +
+                        Runtime.version() + "), using a platform receive thread per client");
+            } else {
+                LOGGER.info("Socket receive loops run on virtual threads");
+            }
+        }
+        return new RwcVaClientRuntime(new RwcVaTimer(), receiveExecutor);
+    }
+
+    // JDK 17로도 빌드되도록 리플렉션으로 호출
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.WARNING, "Failed to create virtual thread executor", e);
+            return null;
+        }
+    }
+
+    public RwcVaTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * Executor for socket receive loops, or null when each client uses its own platform thread
+     */
+    ExecutorService getReceiveExecutor() {
+        return receiveExecutor;
+    }
+
+    public boolean isVirtualThreads() {
+        return receiveExecutor != null;
+    }
+
+    public void shutdown() {
+        timer.stop();
+        if (receiveExecutor != null) {
+            receiveExecutor.shutdownNow();
+        }
+    }
+}
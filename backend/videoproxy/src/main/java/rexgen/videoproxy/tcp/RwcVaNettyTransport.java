@@ -0,0 +1,62 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Event-driven transport for {@link RwcVaTcpClient}.
+ * <p>
+ * All upstream connections share one {@link EventLoopGroup}, so a handful of event-loop threads
+ * serve every RexWatch connection instead of one blocking receive thread per client.
+ */
+public class RwcVaNettyTransport {
+    private static final Logger LOGGER = Logger.getLogger(RwcVaNettyTransport.class.getName());
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+
+    private final EventLoopGroup eventLoopGroup;
+
+    /**
+     * @param threads number of event-loop threads, 0 for min(4, available processors)
+     */
+    public RwcVaNettyTransport(int threads) {
+        int count = threads > 0 ? threads : Math.min(4, Runtime.getRuntime().availableProcessors());
+        this.eventLoopGroup = new NioEventLoopGroup(count, new DefaultThreadFactory("rwcva-io", true));
+        LOGGER.info("Netty transport created with " + count + " event-loop threads");
+    }
+
+    /**
+     * Open a channel to the RexWatch server whose decoded packets are delivered to the given client
+     */
+    ChannelFuture connect(String serverIp, int serverPort, RwcVaTcpClient client) {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
+                .option(ChannelOption.SO_KEEPALIVE, false)
+                .option(ChannelOption.TCP_NODELAY, false)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast("rexDecoder", new RexMessageDecoder())
+                                .addLast("rexHandler", new RwcVaChannelHandler(client));
+                    }
+                });
+
+        return bootstrap.connect(serverIp, serverPort);
+    }
+
+    public void shutdown() {
+        eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+    }
+}
@@ -1,22 +1,27 @@
 package rexgen.videoproxy.tcp;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import rexgen.videoproxy.protocol.*;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -33,20 +38,28 @@ public class RwcVaTcpClient {
     private String clientKey;
     private Socket socket;
     private InputStream inputStream;
-    private OutputStream outputStream;
+    private SocketChannel socketChannel; // 송신은 채널의 gathering write로
+    private final RwcVaNettyTransport nettyTransport; // null이면 소켓 수신 스레드 사용
+    private volatile Channel channel;
     private boolean isConnected = false;
     private boolean isDisposed = false;
     private long serverClientKey = 0;
-    private byte[] rawServerClientKey = null; // 추가: 원본 바이트 배열 형태로 저장
     private RwcVaEnums.Version vaVersion = RwcVaEnums.Version.v40;
 
-    private ExecutorService receiveExecutor;
-    private ScheduledExecutorService heartbeatExecutor;
-    private int sendFlag = 0;
+    private final ExecutorService receiveExecutor;
+    private final RwcVaTimer timer;
+    private final boolean ownsReceiveExecutor;
+    // 가상 스레드에서는 available() 폴링 대신 read()에서 블로킹
+    private final boolean blockingRead;
+    private RwcVaTimer.Task heartbeatTask;
     private boolean isLiveSignalEnabled = true;
 
-    private List<byte[]> liveDataBuffer = new ArrayList<>();
-    private List<byte[]> playbackDataBuffer = new ArrayList<>();
+    // 청크를 복사하지 않고 풀링된 CompositeByteBuf에 이어 붙임
+    private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+    private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0);
+    private final FrameAssembler liveDataBuffer = new FrameAssembler(ALLOCATOR);
+    private final FrameAssembler playbackDataBuffer = new FrameAssembler(ALLOCATOR);
+    private final FrameAssembler timelineDataBuffer = new FrameAssembler(ALLOCATOR);
 
     // 초기화 응답 핸들러
     private List<Consumer<Boolean>> initResponseHandlers = new CopyOnWriteArrayList<>();
@@ -55,28 +68,68 @@ public class RwcVaTcpClient {
     private Consumer<Throwable> onInternalError;
     private Consumer<Boolean> onConnectChange;
     private Consumer<LiveDataInfo> onLiveData;
+    private Consumer<LiveDataView> onLiveFrame;
+    private Consumer<LiveDataView> onPlaybackFrame;
+    private Consumer<RwcVaEnums.PlaybackSubCommand> onPlaybackEvent;
+    private Consumer<RecordTimeline.Range> onRecordRange;
+    private Consumer<RecordTimeline.Day> onTimeline;
 
     // 동시 재연결 시도 방지를 위한 플래그 추가
     private volatile boolean isReconnecting = false;
     private final Object reconnectLock = new Object();
-    private ScheduledFuture<?> reconnectFuture = null;
+    private RwcVaTimer.Task reconnectTask = null;
 
 
     // 연결 시도 간의 딜레이를 위한 지수 백오프 관련 필드
     private int reconnectAttempts = 0;
     private static final int MAX_RECONNECT_ATTEMPTS = 5;
     private static final long MAX_RECONNECT_DELAY_MS = 30000; // 최대 30초
+    private static final long LIVE_SIGNAL_INTERVAL_MS = 20000; // LIVE_SIGNAL 전송 주기
 
     // 데이터 수신 상태 추적용 필드 추가
     private volatile long lastDataReceivedTime = 0;
-    private volatile int totalMessagesReceived = 0;
+    // 소비자가 밀렸을 때 수신을 멈춰 TCP 흐름 제어로 서버 전송을 늦춤
+    private volatile boolean readPaused = false;
+    // 수신 경로 카운터 (LongAdder), 메트릭 레지스트리가 읽어감
+    private final RwcVaClientMetrics metrics = new RwcVaClientMetrics();
+    private long liveFrameStartNanos; // 현재 조립 중인 프레임의 LIVE_DATA_PREPARE 수신 시각
+
+    private final LiveInfoEncoder liveInfoEncoder = new LiveInfoEncoder();
+    private final RexMessageEncoder messageEncoder = new RexMessageEncoder();
+    // 소켓 송신용 [헤더, 바디] 버퍼, 배열 자체가 송신 락
+    private final ByteBuffer[] sendBuffers = {
+            ByteBuffer.allocateDirect(RexMessageEncoder.FRAME_HEADER_SIZE), EMPTY_BODY };
+    // 문제 분석용 패킷 캡처, 비활성 시 비용 없음
+    private final PacketTrace packetTrace = new PacketTrace();
 
     public RwcVaTcpClient(String clientKey, String serverIp, int serverPort) {
+        this(clientKey, serverIp, serverPort, null);
+    }
+
+    /**
+     * @param nettyTransport shared event-loop transport, or null to use a blocking socket receive thread
+     */
+    public RwcVaTcpClient(String clientKey, String serverIp, int serverPort, RwcVaNettyTransport nettyTransport) {
+        this(clientKey, serverIp, serverPort, nettyTransport, null);
+    }
+
+    /**
+     * @param nettyTransport shared event-loop transport, or null to use a blocking socket receive thread
+     * @param runtime shared timer and receive executor, or null for the default timer and a per-client receive thread
+     */
+    public RwcVaTcpClient(String clientKey, String serverIp, int serverPort, RwcVaNettyTransport nettyTransport,
+                          RwcVaClientRuntime runtime) {
         this.clientKey = clientKey;
         this.serverIp = serverIp;
         this.serverPort = serverPort;
-        this.receiveExecutor = Executors.newSingleThreadExecutor();
-        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.nettyTransport = nettyTransport;
+
+        ExecutorService sharedReceive = runtime != null ? runtime.getReceiveExecutor() : null;
+        this.ownsReceiveExecutor = sharedReceive == null;
+        this.receiveExecutor = ownsReceiveExecutor ? Executors.newSingleThreadExecutor() : sharedReceive;
+        this.blockingRead = !ownsReceiveExecutor;
+
+        this.timer = runtime != null ? runtime.getTimer() : RwcVaTimer.getDefault();
     }
 
     /**
@@ -107,19 +160,27 @@ public class RwcVaTcpClient {
                         LOGGER.log(Level.WARNING, "Error closing existing socket", e);
                     }
                     socket = null;
+                    socketChannel = null;
                 }
 
                 LOGGER.log(Level.INFO, "Connecting to server {0}:{1}", new Object[] { serverIp, serverPort });
-                socket = new Socket(serverIp, serverPort);
-                socket.setSoTimeout(0); // 타임아웃 없음
-                socket.setKeepAlive(false); // TCP keepalive 활성화
-                socket.setTcpNoDelay(false); // Nagle 알고리즘 비활성화
+                if (nettyTransport != null) {
+                    openChannel();
+                } else {
+                    socketChannel = SocketChannel.open(new InetSocketAddress(serverIp, serverPort));
+                    socket = socketChannel.socket();
+                    socket.setSoTimeout(0); // 타임아웃 없음
+                    socket.setKeepAlive(false); // TCP keepalive 활성화
+                    socket.setTcpNoDelay(false); // Nagle 알고리즘 비활성화
 
-                inputStream = socket.getInputStream();
-                outputStream = socket.getOutputStream();
+                    inputStream = socket.getInputStream();
+                }
 
                 isConnected = true;
                 reconnectAttempts = 0; // 성공 시 재연결 시도 카운터 초기화
+                synchronized (liveInfoEncoder) {
+                    liveInfoEncoder.invalidate(); // 새 연결에는 구독이 없음
+                }
 
                 if (onConnectChange != null) {
                     onConnectChange.accept(true);
@@ -128,8 +189,10 @@ public class RwcVaTcpClient {
                 // Start heartbeat
                 startHeartbeat();
 
-                // Start receive thread
-                startReceive();
+                // Start receive thread (Netty 채널은 이벤트 루프에서 수신)
+                if (nettyTransport == null) {
+                    startReceive();
+                }
 
                 return true;
             } catch (IOException e) {
@@ -164,9 +227,9 @@ public class RwcVaTcpClient {
         // 재연결 작업 취소
         synchronized (reconnectLock) {
             isReconnecting = false;
-            if (reconnectFuture != null && !reconnectFuture.isDone()) {
-                reconnectFuture.cancel(false);
-                reconnectFuture = null;
+            if (reconnectTask != null) {
+                reconnectTask.cancel();
+                reconnectTask = null;
             }
         }
 
@@ -174,17 +237,25 @@ public class RwcVaTcpClient {
             if (socket != null) {
                 socket.close();
                 socket = null;
+                socketChannel = null;
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error closing socket", e);
         }
 
+        Channel ch = channel;
+        channel = null;
+        if (ch != null) {
+            ch.close();
+        }
+
         if (onConnectChange != null) {
             onConnectChange.accept(false);
         }
 
         liveDataBuffer.clear();
         playbackDataBuffer.clear();
+        timelineDataBuffer.clear();
     }
 
     /**
@@ -197,70 +268,112 @@ public class RwcVaTcpClient {
 
         isDisposed = true;
 
-        // Shutdown heartbeat executor
-        if (heartbeatExecutor != null) {
-            heartbeatExecutor.shutdown();
+        // Stop heartbeat; the shared timer stays up for other clients
+        synchronized (reconnectLock) {
+            if (heartbeatTask != null) {
+                heartbeatTask.cancel();
+                heartbeatTask = null;
+            }
         }
 
         disconnect();
-        receiveExecutor.shutdown();
+        if (ownsReceiveExecutor) {
+            receiveExecutor.shutdown();
+        }
     }
 
     /**
-     * Start the receive thread
+     * Open a channel on the shared Netty event loop, blocking until the connect attempt completes
      */
-    private void startReceive() {
-        receiveExecutor.submit(this::receiveThread);
+    private void openChannel() throws IOException {
+        Channel previous = channel;
+        if (previous != null) {
+            channel = null;
+            previous.close();
+        }
+
+        ChannelFuture future = nettyTransport.connect(serverIp, serverPort, this);
+        future.awaitUninterruptibly();
+        if (!future.isSuccess()) {
+            throw new IOException("Failed to open channel to " + serverIp + ":" + serverPort, future.cause());
+        }
+        channel = future.channel();
+        channel.config().setAutoRead(!readPaused);
     }
 
     /**
-     * Start heartbeat timer with increased interval
+     * Called on the event loop for each decoded packet
      */
-    private void startHeartbeat() {
-        if (heartbeatExecutor.isShutdown()) {
-            LOGGER.warning("Cannot start heartbeat: executor is shutdown");
+    void onMessageReceived(RexMessage message) {
+        if (isDisposed) {
             return;
         }
 
-        // 기존 작업 취소
-        if (reconnectFuture != null && !reconnectFuture.isDone()) {
-            reconnectFuture.cancel(false);
+        lastDataReceivedTime = System.currentTimeMillis();
+        int packetSize = RwcVaConstants.HEAD + (message.getBodySize() > 0 ? 4 + message.getBodySize() : 0);
+        metrics.recordPacket(packetSize);
+        packetTrace.record(PacketTrace.Direction.IN, message.getCommand(), message.getSubCommand(),
+                packetSize, message.content());
+
+        try {
+            processMessage(message.getCommand(), message.getSubCommand(), message.content());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error processing message", e);
         }
+    }
 
-        final Runnable heartbeatTask = new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    if (isConnected && isLiveSignalEnabled) {
-                        if (sendFlag >= 3) { // 10에서 3으로 변경하여 더 자주 신호 보내기
-                            sendFlag = 0;
-                            boolean sent = sendLiveSignal();
-                            if (sent) {
-                                LOGGER.info("Sending live signal to keep connection alive"); // 로그 수준 높임
-                            } else {
-                                LOGGER.warning("Failed to send live signal");
-                            }
-                        } else {
-                            sendFlag++;
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Error in heartbeat task", e);
-                }
+    /**
+     * Called on the event loop when a channel closes; only the current channel triggers a reconnect
+     */
+    void onChannelClosed(Channel closed) {
+        if (closed != channel || isDisposed || !isConnected) {
+            return;
+        }
+
+        LOGGER.warning("Channel to " + serverIp + ":" + serverPort + " closed, attempting to reconnect");
+        channel = null;
+        isConnected = false;
+        if (onConnectChange != null) {
+            onConnectChange.accept(false);
+        }
+        scheduleReconnect();
+    }
+
+    /**
+     * Start the receive thread
+     */
+    private void startReceive() {
+        receiveExecutor.submit(this::receiveThread);
+    }
+
+    /**
+     * Start the live signal heartbeat on the shared timer
+     */
+    private void startHeartbeat() {
+        synchronized (reconnectLock) {
+            // 기존 작업 취소
+            if (reconnectTask != null) {
+                reconnectTask.cancel();
+                reconnectTask = null;
             }
-        };
 
-        try {
-            heartbeatExecutor.scheduleAtFixedRate(
-                    heartbeatTask,
-                    0,
-                    5, // 5초로 증가 (기존 1초)
-                    TimeUnit.SECONDS
-            );
-            LOGGER.info("Heartbeat scheduler started with 5-second interval");
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to start heartbeat scheduler", e);
+            // 재연결 시 이전 하트비트가 중복 실행되지 않도록 교체
+            if (heartbeatTask != null) {
+                heartbeatTask.cancel();
+            }
+            // 5초 틱마다 카운터를 세던 방식 대신 20초 주기로 바로 예약
+            heartbeatTask = timer.scheduleAtFixedRate(() -> {
+                if (isConnected && isLiveSignalEnabled) {
+                    boolean sent = sendLiveSignal();
+                    if (sent) {
+                        LOGGER.fine("Sent live signal to keep connection alive");
+                    } else {
+                        LOGGER.warning("Failed to send live signal");
+                    }
+                }
+            }, LIVE_SIGNAL_INTERVAL_MS, LIVE_SIGNAL_INTERVAL_MS, TimeUnit.MILLISECONDS);
         }
+        LOGGER.info("Heartbeat started with " + LIVE_SIGNAL_INTERVAL_MS / 1000 + "-second interval");
     }
 
     /**
@@ -278,8 +391,10 @@ public class RwcVaTcpClient {
             byte command = 100; // LIVE_SIGNAL의 값
             byte subCommand = 0;
 
-            LOGGER.info("Sending live signal - command: " + command + ", subCommand: " + subCommand);
+            LOGGER.finest(() -> "Sending live signal - command: " + command + ", subCommand: " + subCommand);
 
+            // 응답이 전송 완료보다 먼저 처리될 수 있으므로 전송 전에 시각 기록
+            metrics.heartbeatSent(System.nanoTime());
             return sendMessage(command, subCommand, null);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error sending live signal", e);
@@ -315,33 +430,41 @@ public class RwcVaTcpClient {
                     break; // 재연결은 새 스레드로 진행, 현재 스레드 종료
                 }
 
-                // 비블로킹 방식으로 데이터 확인
+                if (readPaused) {
+                    Thread.sleep(10);
+                    continue;
+                }
+
+                // 비블로킹 방식으로 데이터 확인 (가상 스레드 모드는 read()에서 대기)
                 int available = 0;
-                try {
-                    available = inputStream.available();
-
-                    // 주기적으로 상태 로깅 추가 (30초마다)
-                    long now = System.currentTimeMillis();
-                    if (now - lastDataReceivedTime > 30000) {
-                        LOGGER.info("📊 Receive thread stats - Messages received: " + totalMessagesReceived +
-                                ", Last data received: " + (lastDataReceivedTime > 0 ?
-                                ((now - lastDataReceivedTime) / 1000) + " seconds ago" : "never") +
-                                ", Available bytes: " + available);
-                        lastDataReceivedTime = now; // 로깅 타임스탬프 업데이트
-                    }
+                if (!blockingRead) {
+                    try {
+                        available = inputStream.available();
+
+                        // 주기적으로 상태 로깅 추가 (30초마다)
+                        long now = System.currentTimeMillis();
+                        if (now - lastDataReceivedTime > 30000) {
+                            LOGGER.info("📊 Receive thread stats - Messages received: " + metrics.getPacketsReceived() +
+                                    ", Last data received: " + (lastDataReceivedTime > 0 ?
+                                    ((now - lastDataReceivedTime) / 1000) + " seconds ago" : "never") +
+                                    ", Available bytes: " + available);
+                            lastDataReceivedTime = now; // 로깅 타임스탬프 업데이트
+                        }
 
-                } catch (IOException e) {
-                    LOGGER.warning("Error checking available data: " + e.getMessage());
-                    scheduleReconnect();
-                    break;
+                    } catch (IOException e) {
+                        LOGGER.warning("Error checking available data: " + e.getMessage());
+                        scheduleReconnect();
+                        break;
+                    }
                 }
 
-                if (available > 0) {
+                if (blockingRead || available > 0) {
                     // 데이터가 있을 때만 읽기 시도
                     Arrays.fill(headBuffer, (byte) 0);
 
-                    // 헤더 읽기 시도 로그 추가
-                    LOGGER.info("📥 Attempting to read header from " + available + " available bytes");
+                    if (LOGGER.isLoggable(Level.FINEST)) {
+                        LOGGER.finest("📥 Attempting to read header from " + available + " available bytes");
+                    }
 
                     // 헤더 읽기
                     int bytesRead = readFully(inputStream, headBuffer, 0, headBuffer.length);
@@ -353,15 +476,18 @@ public class RwcVaTcpClient {
 
                     // 헤더 처리
                     RexMessageHeader header = RexMessageHeader.fromBytes(headBuffer);
-                    LOGGER.info("📨 Received header: prefix=" + header.getPrefix() +
-                            ", command=" + header.getCommand() +
-                            ", subCommand=" + header.getSubCommand() +
-                            ", size=" + header.getPacketSize() +
-                            ", clientKey=" + header.getClientKey());
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine("📨 Received header: prefix=" + header.getPrefix() +
+                                ", command=" + header.getCommand() +
+                                ", subCommand=" + header.getSubCommand() +
+                                ", size=" + header.getPacketSize() +
+                                ", clientKey=" + header.getClientKey());
+                    }
 
                     // 프리픽스 확인
                     if (!header.getPrefix().equals(RwcVaConstants.DEFAULT_PREFIX)) {
                         LOGGER.warning("Invalid prefix: " + header.getPrefix());
+                        logPacketTrace();
                         scheduleReconnect();
                         break;
                     }
@@ -376,40 +502,46 @@ public class RwcVaTcpClient {
                         }
 
                         bodySize = ByteBuffer.wrap(bodySizeBuffer).order(ByteOrder.LITTLE_ENDIAN).getInt();
-                        LOGGER.info("📦 Received body size: " + bodySize + " bytes");
 
                         // 본문 크기 확인
                         if (header.getPacketSize() - headBuffer.length - bodySizeBuffer.length != bodySize) {
                             LOGGER.warning("Packet size mismatch: " + header.getPacketSize() + " vs " +
                                     (bodySize + headBuffer.length + bodySizeBuffer.length));
+                            logPacketTrace();
                             scheduleReconnect();
                             break;
                         }
                     }
 
                     // 본문 데이터 읽기
-                    byte[] bodyBuffer = null;
+                    ByteBuf bodyBuffer = null;
                     if (bodySize > 0) {
-                        bodyBuffer = new byte[bodySize];
-                        bytesRead = readFully(inputStream, bodyBuffer, 0, bodySize);
+                        bodyBuffer = ALLOCATOR.heapBuffer(bodySize, bodySize);
+                        bytesRead = readFully(inputStream, bodyBuffer.array(),
+                                bodyBuffer.arrayOffset(), bodySize);
                         if (bytesRead <= 0) {
+                            bodyBuffer.release();
                             LOGGER.warning("Failed to read body data, expected " + bodySize + " bytes");
                             scheduleReconnect();
                             break;
                         }
-                        LOGGER.info("📄 Read body data: " + bytesRead + " bytes");
+                        bodyBuffer.writerIndex(bytesRead);
                     }
 
                     // 데이터 수신 시간 및 카운터 업데이트
                     lastDataReceivedTime = System.currentTimeMillis();
-                    totalMessagesReceived++;
-
-                    // 명령 처리 전 로깅 추가
-                    LOGGER.info("🔄 Processing message: command=" + header.getCommand() +
-                            ", subCommand=" + header.getSubCommand());
+                    metrics.recordPacket(header.getPacketSize() & 0xFFFF);
+                    packetTrace.record(PacketTrace.Direction.IN, header.getCommand(), header.getSubCommand(),
+                            header.getPacketSize() & 0xFFFF, bodyBuffer);
 
                     // 메시지 처리
-                    processMessage(header.getCommand(), header.getSubCommand(), bodyBuffer);
+                    try {
+                        processMessage(header.getCommand(), header.getSubCommand(), bodyBuffer);
+                    } finally {
+                        if (bodyBuffer != null) {
+                            bodyBuffer.release();
+                        }
+                    }
                 } else {
                     // 데이터가 없으면 짧게 대기 (CPU 사용량 감소)
                     Thread.sleep(100); // 50ms -> 100ms로 증가
@@ -420,11 +552,11 @@ public class RwcVaTcpClient {
                 break;
             } catch (SocketTimeoutException e) {
                 // 타임아웃은 정상적인 상황으로 간주하고 계속 진행
-                LOGGER.info("Socket read timeout, continuing..."); // 로그 수준 높임
+                LOGGER.fine("Socket read timeout, continuing...");
                 continue;
             } catch (SocketException e) {
-                // 소켓 예외 발생 시 재연결 시도
-                if (!isDisposed) {
+                // 소켓 예외 발생 시 재연결 시도 (disconnect()로 닫힌 소켓은 제외)
+                if (!isDisposed && isConnected) {
                     LOGGER.log(Level.SEVERE, "Socket error: " + e.getMessage());
                     scheduleReconnect();
                     break; // 현재 스레드 종료
@@ -453,8 +585,8 @@ public class RwcVaTcpClient {
             isReconnecting = true;
 
             // 이미 진행 중인 재연결 작업 취소
-            if (reconnectFuture != null && !reconnectFuture.isDone()) {
-                reconnectFuture.cancel(false);
+            if (reconnectTask != null) {
+                reconnectTask.cancel();
             }
 
             // 지수 백오프로 재연결 지연 계산
@@ -466,11 +598,12 @@ public class RwcVaTcpClient {
             }
 
             // 지수 백오프 적용 (최대 30초)
+            metrics.recordReconnect();
             long delay = Math.min((long)Math.pow(2, reconnectAttempts) * 1000, MAX_RECONNECT_DELAY_MS);
             LOGGER.info("Scheduling reconnect attempt " + reconnectAttempts +
                     " of " + MAX_RECONNECT_ATTEMPTS + " in " + delay + "ms");
 
-            reconnectFuture = heartbeatExecutor.schedule(() -> {
+            reconnectTask = timer.schedule(() -> {
                 try {
                     LOGGER.info("Executing scheduled reconnect attempt " + reconnectAttempts);
                     connect().thenAccept(connected -> {
@@ -498,15 +631,14 @@ public class RwcVaTcpClient {
     /**
      * Process a received message
      */
-    private void processMessage(byte command, byte subCommand, byte[] bodyData) {
-        RwcVaEnums.Command cmd;
-        try {
-            cmd = RwcVaEnums.Command.fromValue(command);
-        } catch (IllegalArgumentException e) {
-            LOGGER.warning("Unknown command value: " + command);
-            return;
+    private void processMessage(byte command, byte subCommand, ByteBuf bodyData) {
+        if (bodyData != null && !bodyData.isReadable()) {
+            bodyData = null;
         }
 
+        // 알 수 없는 값은 UNKNOWN으로 돌아와 default에서 처리
+        RwcVaEnums.Command cmd = RwcVaEnums.Command.fromValue(Byte.toUnsignedInt(command));
+
         switch (cmd) {
             case INIT_CLIENT:
                 processInitClientCommand(subCommand, bodyData);
@@ -518,7 +650,8 @@ public class RwcVaTcpClient {
                 processPlaybackCommand(subCommand, bodyData);
                 break;
             case LIVE_SIGNAL:
-                // Just a keep-alive, nothing to process
+                // Just a keep-alive; an echo of ours gives the heartbeat round trip
+                metrics.heartbeatReceived(System.nanoTime());
                 break;
             default:
                 LOGGER.warning("Unknown command: " + command);
@@ -530,20 +663,15 @@ public class RwcVaTcpClient {
     /**
      * Process INIT_CLIENT command
      */
-    private void processInitClientCommand(byte subCommand, byte[] bodyData) {
-        RwcVaEnums.InitClientSubCommand subCmd;
-        try {
-            subCmd = RwcVaEnums.InitClientSubCommand.fromValue(subCommand);
-        } catch (IllegalArgumentException e) {
-            LOGGER.warning("Unknown init client subcommand: " + subCommand);
-            return;
-        }
+    private void processInitClientCommand(byte subCommand, ByteBuf bodyData) {
+        // 알 수 없는 값은 UNKNOWN으로 돌아와 default에서 처리
+        RwcVaEnums.InitClientSubCommand subCmd = RwcVaEnums.InitClientSubCommand.fromValue(Byte.toUnsignedInt(subCommand));
 
         switch (subCmd) {
             case ACCEPT:
                 // Parse VA_INITCLIENT_ACCEPT
                 if (bodyData != null) {
-                    ByteBuffer buffer = ByteBuffer.wrap(bodyData);
+                    ByteBuffer buffer = bodyData.nioBuffer();
                     buffer.order(ByteOrder.LITTLE_ENDIAN);
 
                     int connectType = buffer.getInt();
@@ -552,18 +680,18 @@ public class RwcVaTcpClient {
 
                     // 원래 clientKey 값 저장
                     this.serverClientKey = clientKey;
+                    // 새 세션이므로 서버측 구독은 비어 있음
+                    synchronized (liveInfoEncoder) {
+                        liveInfoEncoder.invalidate();
+                    }
 
-                    // 중요: 원본 바이트 배열 형태의 clientKey 저장
-                    this.rawServerClientKey = new byte[8];
-                    ByteBuffer keyBuffer = ByteBuffer.wrap(this.rawServerClientKey);
-                    keyBuffer.order(ByteOrder.LITTLE_ENDIAN);
-                    keyBuffer.putLong(clientKey);
+                    // 헤더에 쓸 clientKey 바이트는 여기서 한 번만 만듦
+                    messageEncoder.setClientKey(clientKey);
 
                     this.vaVersion = RwcVaEnums.Version.fromValue(version);
 
 
                     LOGGER.info("Connection accepted, client key (long): " + clientKey);
-                    LOGGER.info("Connection accepted, raw client key bytes: " + bytesToHex(this.rawServerClientKey));
 
                     // 초기화 성공 콜백 호출
                     for (Consumer<Boolean> handler : initResponseHandlers) {
@@ -599,37 +727,28 @@ public class RwcVaTcpClient {
     /**
      * Process LIVE command with improved logging
      */
-    private void processLiveCommand(byte subCommand, byte[] bodyData) {
-        RwcVaEnums.LiveSubCommand subCmd;
-        try {
-            subCmd = RwcVaEnums.LiveSubCommand.fromValue(subCommand);
-        } catch (IllegalArgumentException e) {
-            LOGGER.warning("Unknown live subcommand: " + subCommand);
-            return;
-        }
-
-        LOGGER.info("📡 Received LIVE command with subCommand: " + subCmd.name());
+    private void processLiveCommand(byte subCommand, ByteBuf bodyData) {
+        // 알 수 없는 값은 UNKNOWN으로 돌아와 default에서 처리
+        RwcVaEnums.LiveSubCommand subCmd = RwcVaEnums.LiveSubCommand.fromValue(Byte.toUnsignedInt(subCommand));
 
+        // 프레임 청크마다 호출되는 경로이므로 문자열은 로그 레벨이 켜져 있을 때만 생성
         switch (subCmd) {
             case LIVE_RESPONSE:
-                LOGGER.info("✅ Live response received - server acknowledged the request");
+                LOGGER.fine("✅ Live response received - server acknowledged the request");
                 break;
             case LIVE_DATA_PREPARE:
-                LOGGER.info("📦 Received LIVE_DATA_PREPARE - frame data reception starting");
+                liveFrameStartNanos = System.nanoTime();
                 liveDataBuffer.clear();
-                if (bodyData != null) {
-                    liveDataBuffer.add(bodyData);
-                }
+                liveDataBuffer.append(bodyData);
                 break;
             case LIVE_DATA:
-                LOGGER.info("📊 Received LIVE_DATA chunk - size: " +
-                        (bodyData != null ? bodyData.length : 0) + " bytes");
-                if (bodyData != null) {
-                    liveDataBuffer.add(bodyData);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.finest("📊 Received LIVE_DATA chunk - size: " +
+                            (bodyData != null ? bodyData.readableBytes() : 0) + " bytes");
                 }
+                liveDataBuffer.append(bodyData);
                 break;
             case LIVE_DATA_COMPLETE:
-                LOGGER.info("✅ Received LIVE_DATA_COMPLETE - processing complete frame");
                 processCompleteLiveData();
                 break;
             case INTERNAL_ERROR:
@@ -644,34 +763,46 @@ public class RwcVaTcpClient {
     /**
      * Process PLAYBACK command
      */
-    private void processPlaybackCommand(byte subCommand, byte[] bodyData) {
-        RwcVaEnums.PlaybackSubCommand subCmd;
-        try {
-            subCmd = RwcVaEnums.PlaybackSubCommand.fromValue(subCommand);
-        } catch (IllegalArgumentException e) {
-            LOGGER.warning("Unknown playback subcommand: " + subCommand);
-            return;
-        }
+    private void processPlaybackCommand(byte subCommand, ByteBuf bodyData) {
+        // 알 수 없는 값은 UNKNOWN으로 돌아와 default에서 처리
+        RwcVaEnums.PlaybackSubCommand subCmd = RwcVaEnums.PlaybackSubCommand.fromValue(Byte.toUnsignedInt(subCommand));
 
         switch (subCmd) {
             case PLAYBACK_RESPONSE:
-                LOGGER.info("Playback response received");
+            case PLAY_CONTROL_RESPONSE:
+            case PLAY_SEEK_RESPONSE:
+            case TIMELINE_RESPONSE:
+            case PLAYBACK_DATA_END:
+            case NOT_EXIST_DATA:
+                LOGGER.fine(() -> "Playback event received: " + subCmd);
+                if (onPlaybackEvent != null) {
+                    onPlaybackEvent.accept(subCmd);
+                }
                 break;
             case PLAY_DATA_PREPARE:
                 playbackDataBuffer.clear();
-                if (bodyData != null) {
-                    playbackDataBuffer.add(bodyData);
-                }
+                playbackDataBuffer.append(bodyData);
                 break;
             case PLAY_DATA:
-                if (bodyData != null) {
-                    playbackDataBuffer.add(bodyData);
-                }
+                playbackDataBuffer.append(bodyData);
                 break;
             case PLAY_DATA_COMPLETE:
                 // Process complete playback data
                 processCompletePlaybackData();
                 break;
+            case RANGE_RESPONSE:
+                processRecordRange(bodyData);
+                break;
+            case TIMELINE_PREPARE:
+                timelineDataBuffer.clear();
+                timelineDataBuffer.append(bodyData);
+                break;
+            case TIMELINE_DATA:
+                timelineDataBuffer.append(bodyData);
+                break;
+            case TIMELINE_COMPLETE:
+                processCompleteTimeline();
+                break;
             case INTERNAL_ERROR:
                 handleInternalError(bodyData);
                 break;
@@ -685,161 +816,123 @@ public class RwcVaTcpClient {
      * Process complete live data buffer with additional validation
      */
     private void processCompleteLiveData() {
+        LiveDataView liveFrame = null;
         try {
             // 버퍼가 비어있는지 확인
-            if (liveDataBuffer.isEmpty()) {
+            if (liveDataBuffer.size() == 0) {
                 LOGGER.warning("Live data buffer is empty, cannot process");
+                liveDataBuffer.clear();
                 return;
             }
 
-            // Combine all buffer parts
-            int totalSize = 0;
-            for (byte[] part : liveDataBuffer) {
-                totalSize += part.length;
-            }
-
-            if (totalSize == 0) {
-                LOGGER.warning("Combined buffer size is zero, cannot process");
-                return;
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.finest("🔄 Combining " + liveDataBuffer.chunkCount() + " buffer parts, total size: " +
+                        liveDataBuffer.size() + " bytes");
             }
 
-            LOGGER.info("🔄 Combining " + liveDataBuffer.size() + " buffer parts, total size: " + totalSize + " bytes");
+            // 청크들은 복사 없이 하나의 CompositeByteBuf로 연결되고, 필드는 필요할 때 읽음
+            long completeNanos = System.nanoTime();
+            liveFrame = LiveDataView.wrap(liveDataBuffer.take());
+            metrics.recordFrame(completeNanos - liveFrameStartNanos, System.nanoTime() - completeNanos);
 
-            byte[] combined = new byte[totalSize];
-            int offset = 0;
-            for (byte[] part : liveDataBuffer) {
-                System.arraycopy(part, 0, combined, offset, part.length);
-                offset += part.length;
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("📹 Received live frame: cameraId=" + liveFrame.getCameraId() +
+                        ", dataSize=" + liveFrame.getDataSize() +
+                        ", objectCount=" + liveFrame.getObjectCount() +
+                        ", codec=" + liveFrame.getCodec());
             }
 
-            // Parse LiveDataInfo
-            LOGGER.info("🔍 Parsing live data info from " + combined.length + " bytes");
-            LiveDataInfo liveData = parseLiveDataInfo(combined);
-
-            LOGGER.info("📹 Parsed LiveDataInfo: cameraId=" + liveData.getCameraId() +
-                    ", timestamp=" + liveData.getTimestamp() +
-                    ", dataSize=" + liveData.getDataSize() +
-                    ", objectCount=" + liveData.getObjectCount() +
-                    ", codec=" + liveData.getCodec());
-
+            if (onLiveFrame == null && onLiveData == null) {
+                LOGGER.fine("⚠️ live data callback is null, cannot forward data");
+            }
+            if (onLiveFrame != null) {
+                onLiveFrame.accept(liveFrame);
+            }
             if (onLiveData != null) {
-                LOGGER.info("🚀 Forwarding LiveDataInfo to WebSocket client");
-                onLiveData.accept(liveData);
-            } else {
-                LOGGER.warning("⚠️ onLiveData callback is null, cannot forward data");
+                // 복사본이 필요한 소비자에게만 LiveDataInfo 생성
+                onLiveData.accept(liveFrame.toLiveDataInfo());
             }
 
-            // Clear buffer
-            liveDataBuffer.clear();
-
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error processing live data", e);
             // 에러 발생시 버퍼 초기화하여 다음 프레임부터 정상 처리 가능하도록 함
             liveDataBuffer.clear();
+        } finally {
+            // 콜백 이후에도 프레임을 보관하려는 소비자는 liveFrame.retain()을 호출해야 함
+            if (liveFrame != null) {
+                liveFrame.release();
+            }
         }
     }
 
     /**
-     * Process complete playback data buffer
+     * Process complete playback data buffer; PLAY_DATA frames use the LIVE_DATA layout
      */
     private void processCompletePlaybackData() {
+        LiveDataView playbackFrame = null;
         try {
-            // Combine all buffer parts
-            int totalSize = 0;
-            for (byte[] part : playbackDataBuffer) {
-                totalSize += part.length;
+            ByteBuf combined = playbackDataBuffer.take();
+            if (combined == null) {
+                LOGGER.warning("Playback data buffer is empty, cannot process");
+                return;
             }
 
-            byte[] combined = new byte[totalSize];
-            int offset = 0;
-            for (byte[] part : playbackDataBuffer) {
-                System.arraycopy(part, 0, combined, offset, part.length);
-                offset += part.length;
+            playbackFrame = LiveDataView.wrap(combined);
+            if (onPlaybackFrame != null) {
+                onPlaybackFrame.accept(playbackFrame);
+            } else {
+                LOGGER.fine("⚠️ playback frame callback is null, dropping frame");
             }
-
-            // 추가 처리 로직 구현 필요
-            LOGGER.info("Processed complete playback data: " + totalSize + " bytes");
-
-            // Clear buffer
-            playbackDataBuffer.clear();
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error processing playback data", e);
+            playbackDataBuffer.clear();
+        } finally {
+            // 보관하려는 소비자는 retain()을 호출해야 함
+            if (playbackFrame != null) {
+                playbackFrame.release();
+            }
         }
     }
 
-    /**
-     * Parse LiveDataInfo from byte array
-     */
-    private LiveDataInfo parseLiveDataInfo(byte[] data) {
-        ByteBuffer buffer = ByteBuffer.wrap(data);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-        LiveDataInfo info = new LiveDataInfo();
-
-        info.setCameraId(buffer.getInt());
-        info.setDataSize(buffer.getInt());
-        info.setTime(buffer.getInt());
-        info.setMillisec(buffer.getInt());
-        info.setIntraCode(RwcVaEnums.IntraCode.fromValue(buffer.getInt()));
-        info.setEventInfo(buffer.getLong());
-        info.setCodec(RwcVaEnums.CodecID.fromValue(buffer.getInt()));
-        info.setObjectCount(buffer.getInt());
-        info.setFpsReceiveCount(buffer.get());
-        info.setFpsUseCount(buffer.get());
-        info.setFpsDetectCount(buffer.get());
-        info.setCountType(RwcVaEnums.CountType.fromValue(buffer.get()));
-        info.setCount(buffer.getShort());
-        info.setExtraDataSize(buffer.getShort());
-
-        // Parse objects
-        for (int i = 0; i < info.getObjectCount(); i++) {
-            ObjectInfo obj = new ObjectInfo();
-            obj.setIndex(buffer.getInt());
-            obj.setType(RwcVaEnums.ObjectType.fromValue(buffer.getShort()));
-            obj.setDetectionScore(buffer.getFloat());
-            obj.setClassScore(buffer.getFloat());
-            obj.setX(buffer.getFloat());
-            obj.setY(buffer.getFloat());
-            obj.setWidth(buffer.getFloat());
-            obj.setHeight(buffer.getFloat());
-
-            // Read attributes
-            int attributeCount = 4;
-            for (int j = 0; j < attributeCount; j++) {
-                obj.addAttribute(buffer.getShort());
+    private void processRecordRange(ByteBuf bodyData) {
+        try {
+            RecordTimeline.Range range = RecordTimeline.Range.parse(bodyData);
+            if (onRecordRange != null) {
+                onRecordRange.accept(range);
             }
-
-            info.addObject(obj);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error processing record range", e);
         }
+    }
 
-        // Read extra data
-        if (info.getExtraDataSize() > 0) {
-            byte[] extraData = new byte[info.getExtraDataSize()];
-            buffer.get(extraData);
-            info.setExtraData(extraData);
+    private void processCompleteTimeline() {
+        ByteBuf combined = timelineDataBuffer.take();
+        if (combined == null) {
+            LOGGER.warning("Timeline data buffer is empty, cannot process");
+            return;
         }
-
-        // Read video data
-        int remainingBytes = buffer.remaining();
-        if (remainingBytes > 0) {
-            byte[] videoData = new byte[remainingBytes];
-            buffer.get(videoData);
-            info.setData(videoData);
+        try {
+            RecordTimeline.Day day = RecordTimeline.Day.parse(combined);
+            if (onTimeline != null) {
+                onTimeline.accept(day);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error processing timeline", e);
+        } finally {
+            combined.release();
         }
-
-        return info;
     }
 
     /**
      * Handle internal error messages
      */
-    private void handleInternalError(byte[] bodyData) {
+    private void handleInternalError(ByteBuf bodyData) {
         if (bodyData == null) {
             return;
         }
 
         try {
-            ByteBuffer buffer = ByteBuffer.wrap(bodyData);
+            ByteBuffer buffer = bodyData.nioBuffer();
             buffer.order(ByteOrder.LITTLE_ENDIAN);
 
             int errorCode = buffer.getInt();
@@ -861,13 +954,14 @@ public class RwcVaTcpClient {
             ByteBuffer buffer = ByteBuffer.allocate(4);
             buffer.order(ByteOrder.LITTLE_ENDIAN);
             buffer.putInt(connectType.getValue());
+            buffer.flip();
 
             LOGGER.info("Sending init connect request, connect type: " + connectType);
 
             return sendMessage(
                     (byte) RwcVaEnums.Command.INIT_CLIENT.getValue(),
                     (byte) RwcVaEnums.InitClientSubCommand.CONNECT.getValue(),
-                    buffer.array()
+                    buffer
             );
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error sending init connect", e);
@@ -876,178 +970,269 @@ public class RwcVaTcpClient {
     }
 
     /**
-     * Send a live info request
+     * Send a live info request, reusing the encoded packet when the ids have not changed. An empty
+     * list is sent with a camera count of 0, which stops all live streams of this connection.
      */
     public boolean sendLiveInfo(List<Integer> cameraIds) {
+        return sendLiveInfo(cameraIds, true);
+    }
+
+    /**
+     * Send a live info request only if it differs from the one last sent on this connection
+     *
+     * @return true if sent, or if the server already has this subscription
+     */
+    public boolean updateLiveInfo(List<Integer> cameraIds) {
+        return sendLiveInfo(cameraIds, false);
+    }
+
+    private boolean sendLiveInfo(List<Integer> cameraIds, boolean force) {
         if (serverClientKey == 0) {
             LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
             return false;
         }
 
-        try {
-            if (cameraIds == null || cameraIds.isEmpty()) {
-                LOGGER.warning("카메라 ID가 제공되지 않았습니다.");
-                return false;
+        // 빈 목록은 카메라 수 0으로 전송해 모든 라이브 전송을 중지
+        if (cameraIds == null) {
+            LOGGER.warning("카메라 ID가 제공되지 않았습니다.");
+            return false;
+        }
+        if (cameraIds.size() > RwcVaConstants.MAX_CAMERA_COUNT) {
+            LOGGER.warning("카메라 ID가 너무 많습니다: " + cameraIds.size());
+            return false;
+        }
+
+        // 인코딩 버퍼를 재사용하므로 전송이 끝날 때까지 잠금
+        synchronized (liveInfoEncoder) {
+            if (!force && liveInfoEncoder.isSent(cameraIds)) {
+                return true;
             }
 
-            // 상수 정의
-            final int MAX_CAMERA_COUNT = 1024;
-            final int CAMERA_ID_SIZE = 4;
-
-            // 바디 데이터 구성
-            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
-
-            // 1. 카메라 개수 (4바이트, 리틀 엔디안)
-            byte[] countBytes = ByteBuffer.allocate(4)
-                    .order(ByteOrder.LITTLE_ENDIAN)
-                    .putInt(cameraIds.size())
-                    .array();
-            bodyBytes.write(countBytes);
-
-            // 2. 카메라 ID 추가
-            for (Integer id : cameraIds) {
-                byte[] idBytes = ByteBuffer.allocate(4)
-                        .order(ByteOrder.LITTLE_ENDIAN)
-                        .putInt(id)
-                        .array();
-                bodyBytes.write(idBytes);
+            ByteBuffer body = liveInfoEncoder.encode(cameraIds);
+            boolean sent = sendMessage((byte) RwcVaEnums.Command.LIVE.getValue(),
+                    (byte) RwcVaEnums.LiveSubCommand.LIVE_INFO.getValue(), body);
+            if (sent) {
+                liveInfoEncoder.markSent();
             }
+            return sent;
+        }
+    }
 
-            // 3. 패딩 추가 (0 바이트로)
-            int paddingSize = (MAX_CAMERA_COUNT - cameraIds.size()) * CAMERA_ID_SIZE;
-            byte[] padding = new byte[paddingSize]; // 자동으로 0으로 초기화됨
-            bodyBytes.write(padding);
+    /**
+     * Request recorded video: camera count and the 1024-slot id table as in LIVE_INFO, followed by
+     * the start and end of the range in epoch seconds (i32 each, little-endian).
+     * <p>
+     * This body layout is assumed: it mirrors LIVE_INFO, and nothing in the protocol definitions
+     * specifies it. Times outside the 32-bit range are rejected.
+     */
+    public boolean sendPlaybackInfo(List<Integer> cameraIds, long startSeconds, long endSeconds) {
+        if (serverClientKey == 0) {
+            LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
+            return false;
+        }
+        if (cameraIds == null || cameraIds.isEmpty() || cameraIds.size() > RwcVaConstants.MAX_CAMERA_COUNT) {
+            LOGGER.warning("Invalid camera IDs for playback info: " + cameraIds);
+            return false;
+        }
+        if (!isCTime(startSeconds) || !isCTime(endSeconds)) {
+            LOGGER.warning("Playback range out of the 32-bit time range: " + startSeconds + " - " + endSeconds);
+            return false;
+        }
 
-            // 메시지 전송
-            byte command = (byte) RwcVaEnums.Command.LIVE.getValue();
-            byte subCommand = (byte) RwcVaEnums.LiveSubCommand.LIVE_INFO.getValue();
+        ByteBuffer body = ByteBuffer.allocate(4 + RwcVaConstants.MAX_CAMERA_COUNT * RwcVaConstants.CAMERA_ID + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(cameraIds.size());
+        for (int cameraId : cameraIds) {
+            body.putInt(cameraId);
+        }
+        body.position(4 + RwcVaConstants.MAX_CAMERA_COUNT * RwcVaConstants.CAMERA_ID);
+        body.putInt((int) startSeconds);
+        body.putInt((int) endSeconds);
+        body.flip();
+
+        LOGGER.info("Sending playback info request, cameras: " + cameraIds +
+                ", range: " + startSeconds + " - " + endSeconds);
+        return sendMessage((byte) RwcVaEnums.Command.PLAYBACK.getValue(),
+                (byte) RwcVaEnums.PlaybackSubCommand.PLAYBACK_INFO.getValue(), body);
+    }
 
-            // 완성된 바디 데이터
-            byte[] bodyData = bodyBytes.toByteArray();
+    /**
+     * Send PLAY_CONTROL: control type and speed type (i32 each, little-endian).
+     * <p>
+     * This body layout is assumed; nothing in the protocol definitions specifies it.
+     */
+    public boolean sendPlayControl(RwcVaEnums.ControlType controlType, RwcVaEnums.SpeedType speedType) {
+        if (serverClientKey == 0) {
+            LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
+            return false;
+        }
+        ByteBuffer body = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(controlType.getValue());
+        body.putInt(speedType.getValue());
+        body.flip();
+
+        LOGGER.fine(() -> "Sending play control: " + controlType + ", speed: " + speedType);
+        return sendMessage((byte) RwcVaEnums.Command.PLAYBACK.getValue(),
+                (byte) RwcVaEnums.PlaybackSubCommand.PLAY_CONTROL.getValue(), body);
+    }
 
-            // 헤더와 함께 메시지 전송
-            return sendMessage(command, subCommand, bodyData);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "라이브 정보 전송 중 오류 발생", e);
+    /**
+     * Send PLAY_SEEK: the new position of the current playback in epoch seconds (i32, little-endian).
+     * <p>
+     * This body layout is assumed; nothing in the protocol definitions specifies it. A position
+     * outside the 32-bit range is rejected.
+     */
+    public boolean sendPlaySeek(long seekSeconds) {
+        if (serverClientKey == 0) {
+            LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
+            return false;
+        }
+        if (!isCTime(seekSeconds)) {
+            LOGGER.warning("Seek position out of the 32-bit time range: " + seekSeconds);
+            return false;
+        }
+        ByteBuffer body = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt((int) seekSeconds);
+        body.flip();
+
+        LOGGER.fine(() -> "Sending play seek: " + seekSeconds);
+        return sendMessage((byte) RwcVaEnums.Command.PLAYBACK.getValue(),
+                (byte) RwcVaEnums.PlaybackSubCommand.PLAY_SEEK.getValue(), body);
+    }
+
+    /**
+     * Whether epoch seconds fit the protocol's 32-bit C time without wrapping
+     */
+    private static boolean isCTime(long seconds) {
+        return seconds >= Integer.MIN_VALUE && seconds <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Send RECORD_RANGE: camera id, year and month (i32 each, little-endian); answered by
+     * RANGE_RESPONSE.
+     * <p>
+     * This body layout is assumed; nothing in the protocol definitions specifies it.
+     */
+    public boolean sendRecordRange(int cameraId, int year, int month) {
+        if (serverClientKey == 0) {
+            LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
+            return false;
+        }
+        ByteBuffer body = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(cameraId);
+        body.putInt(year);
+        body.putInt(month);
+        body.flip();
+
+        LOGGER.fine(() -> "Sending record range request: camera " + cameraId + ", " + year + "-" + month);
+        return sendMessage((byte) RwcVaEnums.Command.PLAYBACK.getValue(),
+                (byte) RwcVaEnums.PlaybackSubCommand.RECORD_RANGE.getValue(), body);
+    }
+
+    /**
+     * Send TIMELINE_INFO: camera id, year, month and day (i32 each, little-endian); answered by the
+     * TIMELINE_PREPARE / DATA / COMPLETE sequence.
+     * <p>
+     * This body layout is assumed; nothing in the protocol definitions specifies it.
+     */
+    public boolean sendTimelineInfo(int cameraId, int year, int month, int day) {
+        if (serverClientKey == 0) {
+            LOGGER.warning("클라이언트 키가 설정되지 않았습니다. 먼저 연결을 초기화해야 합니다.");
             return false;
         }
+        ByteBuffer body = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(cameraId);
+        body.putInt(year);
+        body.putInt(month);
+        body.putInt(day);
+        body.flip();
+
+        LOGGER.fine(() -> "Sending timeline request: camera " + cameraId + ", " + year + "-" + month + "-" + day);
+        return sendMessage((byte) RwcVaEnums.Command.PLAYBACK.getValue(),
+                (byte) RwcVaEnums.PlaybackSubCommand.TIMELINE_INFO.getValue(), body);
     }
 
     /**
-     * Send a message to the server with better error handling
+     * Stop or resume reading from the server. While paused, unread data stays in the socket buffers
+     * and TCP flow control slows the server down.
      */
-    private boolean sendMessage(byte command, byte subCommand, byte[] bodyData) {
+    public void setReadPaused(boolean paused) {
+        if (readPaused == paused) {
+            return;
+        }
+        readPaused = paused;
+        Channel ch = channel;
+        if (ch != null) {
+            ch.config().setAutoRead(!paused);
+        }
+    }
+
+    public boolean isReadPaused() {
+        return readPaused;
+    }
+
+    /**
+     * Send one packet: header, then body length and body unless the body is null.
+     * Consumes the body's remaining bytes.
+     */
+    private boolean sendMessage(byte command, byte subCommand, ByteBuffer body) {
         if (!isConnected || isDisposed) {
             LOGGER.warning("Cannot send message: not connected or disposed");
             return false;
         }
 
+        int bodySize = body != null ? body.remaining() : RexMessageEncoder.NO_BODY;
+        int totalSize = RexMessageEncoder.packetSize(bodySize);
         try {
             // 소켓 확인
-            if (socket == null || !socket.isConnected() || outputStream == null) {
-                LOGGER.warning("Socket or output stream is null, cannot send message");
+            Channel ch = channel;
+            SocketChannel sc = socketChannel;
+            if (nettyTransport != null ? ch == null || !ch.isActive() : sc == null || !sc.isConnected()) {
+                LOGGER.warning("Socket or channel is not open, cannot send message");
                 scheduleReconnect();
                 return false;
             }
 
-            // 1) 헤더 생성
-            RexMessageHeader header = new RexMessageHeader();
-            header.setPrefix(RwcVaConstants.DEFAULT_PREFIX);
-
-            // 계산: 총 패킷 크기 (24바이트 헤더 + (옵션)4 + bodyData.length)
-            int totalSize = RwcVaConstants.HEAD; // 기본 24
-            if (bodyData != null) {
-                totalSize += 4 + bodyData.length; // body length(4) + body
-            }
-
-            header.setPacketSize((short) totalSize);
-            header.setCommand(command);
-            header.setSubCommand(subCommand);
-
-            if (rawServerClientKey != null) {
-                header.setRawClientKey(rawServerClientKey);
-            } else {
-                header.setClientKey(serverClientKey);
-            }
-
-            header.setReserve(0);
-
-            // 헤더 직렬화
-            byte[] headerBytes = header.toBytes();
-            LOGGER.info("Sending header only (hex): " + bytesToHex(headerBytes));
-
-            // 2) Body length(4바이트) + Body
-            byte[] sizeBytes = null;
-            if (bodyData != null) {
-                ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
-                sizeBuffer.order(ByteOrder.LITTLE_ENDIAN);
-                sizeBuffer.putInt(bodyData.length);
-                sizeBytes = sizeBuffer.array();
-                LOGGER.info("Body length (4 bytes): " + bytesToHex(sizeBytes)
-                        + " decimal=" + bodyData.length);
-            }
-
-            // 3) 최종 전송할 패킷 통째로 합치기
-            //    (headerBytes) + (sizeBytes + bodyData if any)
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            baos.write(headerBytes);
-
-            if (sizeBytes != null) {
-                baos.write(sizeBytes);
-            }
-            if (bodyData != null) {
-                baos.write(bodyData);
+            // 패킷 캡처 (헥사덤프는 dump() 호출 시에만 생성)
+            if (packetTrace.isEnabled()) {
+                packetTrace.record(PacketTrace.Direction.OUT, command, subCommand, totalSize,
+                        body != null ? Unpooled.wrappedBuffer(body.duplicate()) : null);
             }
 
-            byte[] finalPacket = baos.toByteArray();
-
-            // 4) 최종 바이트 배열을 통째로 헥사덤프로 로깅
-            LOGGER.info("Final packet (full hex dump), size=" + finalPacket.length + ": "
-                    + bytesToHex(finalPacket));
-
-            // 추가된 디버깅 코드: 보기 좋게 포맷팅된 hexdump 출력
-            StringBuilder formattedHexDump = new StringBuilder();
-            formattedHexDump.append("==== PACKET HEX DUMP (").append(finalPacket.length).append(" bytes) ====\n");
-
-            for (int i = 0; i < finalPacket.length; i += 16) {
-                formattedHexDump.append(String.format("%04X: ", i)); // 주소 오프셋
-
-                // 16바이트씩 hex 값 출력
-                for (int j = 0; j < 16; j++) {
-                    if (i + j < finalPacket.length) {
-                        formattedHexDump.append(String.format("%02X ", finalPacket[i + j]));
-                    } else {
-                        formattedHexDump.append("   "); // 공백 채우기
-                    }
-                    // 8바이트마다 추가 공백
-                    if (j == 7) {
-                        formattedHexDump.append(" ");
+            if (ch != null) {
+                // Netty는 비동기 전송이므로 풀 버퍼 하나에 헤더와 바디를 씀
+                ByteBuf buf = ALLOCATOR.directBuffer(totalSize);
+                messageEncoder.encode(buf.internalNioBuffer(0, totalSize), command, subCommand, body);
+                buf.writerIndex(totalSize);
+                ch.writeAndFlush(buf).addListener(f -> {
+                    if (!f.isSuccess()) {
+                        LOGGER.log(Level.SEVERE, "Error writing to channel", f.cause());
+                        ch.close();
                     }
-                }
-
-                // ASCII 표현 추가
-                formattedHexDump.append(" | ");
-                for (int j = 0; j < 16; j++) {
-                    if (i + j < finalPacket.length) {
-                        byte b = finalPacket[i + j];
-                        // 출력 가능한 ASCII 문자만 표시, 나머지는 '.'으로 표시
-                        char c = (b >= 32 && b < 127) ? (char)b : '.';
-                        formattedHexDump.append(c);
+                });
+            } else {
+                // 재사용 헤더 버퍼와 바디를 한 번의 gathering write로 전송
+                synchronized (sendBuffers) {
+                    ByteBuffer header = sendBuffers[0];
+                    header.clear();
+                    messageEncoder.encodeHeader(header, command, subCommand, bodySize);
+                    header.flip();
+                    sendBuffers[1] = body != null ? body : EMPTY_BODY;
+                    try {
+                        while (header.hasRemaining() || sendBuffers[1].hasRemaining()) {
+                            sc.write(sendBuffers);
+                        }
+                    } finally {
+                        sendBuffers[1] = EMPTY_BODY;
                     }
                 }
-                formattedHexDump.append("\n");
             }
-            formattedHexDump.append("==== END OF HEX DUMP ====");
-
-            LOGGER.info(formattedHexDump.toString());
 
-            // 5) 소켓에 write
-            outputStream.write(finalPacket);
-            outputStream.flush();
-
-            LOGGER.info("Message sent successfully: command=" + command +
-                    ", subCommand=" + subCommand +
-                    ", totalSize=" + totalSize + " bytes");
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Message sent successfully: command=" + command +
+                        ", subCommand=" + subCommand +
+                        ", totalSize=" + totalSize + " bytes");
+            }
             return true;
 
         } catch (IOException e) {
@@ -1065,8 +1250,6 @@ public class RwcVaTcpClient {
      * Read exactly the specified number of bytes
      */
     private int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
-        LOGGER.info("Attempting to read " + length + " bytes");
-
         int totalBytesRead = 0;
 
         while (totalBytesRead < length) {
@@ -1080,7 +1263,6 @@ public class RwcVaTcpClient {
                     break; // Some data was read, so return that
                 }
                 totalBytesRead += bytesRead;
-                LOGGER.info("Read " + bytesRead + " bytes. Total: " + totalBytesRead + "/" + length);
             } catch (SocketTimeoutException e) {
                 // If we have read some data, return what we've got, otherwise rethrow
                 if (totalBytesRead > 0) {
@@ -1091,17 +1273,26 @@ public class RwcVaTcpClient {
             }
         }
 
-        LOGGER.info("Finished reading. Total bytes read: " + totalBytesRead + " out of expected " + length);
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("Read " + totalBytesRead + " bytes out of expected " + length);
+        }
         return totalBytesRead;
     }
 
-    // Utility methods
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X ", b));
+    /**
+     * Log the captured packets after a protocol error, if tracing is enabled
+     */
+    private void logPacketTrace() {
+        if (packetTrace.isEnabled()) {
+            LOGGER.warning(packetTrace.dump());
         }
-        return sb.toString();
+    }
+
+    /**
+     * Packet capture for this connection; call {@code setEnabled(true)} to start recording
+     */
+    public PacketTrace getPacketTrace() {
+        return packetTrace;
     }
 
     // Initialize response handler methods
@@ -1122,10 +1313,49 @@ public class RwcVaTcpClient {
         this.onConnectChange = handler;
     }
 
+    /**
+     * Receive each live frame as a materialized {@link LiveDataInfo} copy
+     */
     public void setOnLiveData(Consumer<LiveDataInfo> handler) {
         this.onLiveData = handler;
     }
 
+    /**
+     * Receive each live frame as a zero-copy view that is released when the handler returns
+     */
+    public void setOnLiveFrame(Consumer<LiveDataView> handler) {
+        this.onLiveFrame = handler;
+    }
+
+    /**
+     * Receive each PLAY_DATA frame as a zero-copy view that is released when the handler returns
+     */
+    public void setOnPlaybackFrame(Consumer<LiveDataView> handler) {
+        this.onPlaybackFrame = handler;
+    }
+
+    /**
+     * Receive parsed RANGE_RESPONSE messages
+     */
+    public void setOnRecordRange(Consumer<RecordTimeline.Range> handler) {
+        this.onRecordRange = handler;
+    }
+
+    /**
+     * Receive parsed timelines, one per completed TIMELINE_PREPARE / DATA / COMPLETE sequence
+     */
+    public void setOnTimeline(Consumer<RecordTimeline.Day> handler) {
+        this.onTimeline = handler;
+    }
+
+    /**
+     * Receive playback responses: PLAYBACK_RESPONSE, PLAY_CONTROL_RESPONSE, PLAY_SEEK_RESPONSE,
+     * TIMELINE_RESPONSE, PLAYBACK_DATA_END and NOT_EXIST_DATA
+     */
+    public void setOnPlaybackEvent(Consumer<RwcVaEnums.PlaybackSubCommand> handler) {
+        this.onPlaybackEvent = handler;
+    }
+
     // Getters
     public boolean isConnected() {
         return isConnected;
@@ -1147,12 +1377,19 @@ public class RwcVaTcpClient {
         return serverClientKey;
     }
 
+    /**
+     * Ingest counters of this client, for export to a metrics registry
+     */
+    public RwcVaClientMetrics getMetrics() {
+        return metrics;
+    }
+
     // 진단 정보 메서드
     public String getReceiveStatus() {
         return "클라이언트 정보: " + clientKey + " -> " + serverIp + ":" + serverPort +
                 "\n연결 상태: " + (isConnected ? "연결됨" : "연결 안됨") +
                 "\n서버 클라이언트 키: " + serverClientKey +
-                "\n총 수신 메시지: " + totalMessagesReceived +
+                "\n총 수신 메시지: " + metrics.getPacketsReceived() +
                 "\n마지막 데이터 수신: " + (lastDataReceivedTime > 0 ?
                 new java.util.Date(lastDataReceivedTime) : "없음");
     }
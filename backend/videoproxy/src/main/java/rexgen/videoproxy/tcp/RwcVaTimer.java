@@ -0,0 +1,149 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide timer for heartbeats, reconnect backoffs and refresh tasks.
+ * <p>
+ * Backed by a hashed timing wheel, so scheduling and cancelling are O(1) however many clients
+ * are connected. Tasks run on the single timer thread and must not block; anything slow should
+ * hand off to another executor. Precision is one tick (100ms by default).
+ */
+public final class RwcVaTimer {
+    private static final Logger LOGGER = Logger.getLogger(RwcVaTimer.class.getName());
+
+    public static final long DEFAULT_TICK_MS = 100;
+    public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private static volatile RwcVaTimer defaultTimer;
+
+    private final HashedWheelTimer wheel;
+
+    public RwcVaTimer() {
+        this(DEFAULT_TICK_MS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    public RwcVaTimer(long tickMillis, int ticksPerWheel) {
+        // leak detection 비활성화: 타이머는 프로세스 수명 동안 유지됨
+        this.wheel = new HashedWheelTimer(new DefaultThreadFactory("rwcva-timer", true),
+                tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel, false);
+    }
+
+    /**
+     * Timer shared by clients created without a runtime; started lazily and never stopped
+     */
+    public static RwcVaTimer getDefault() {
+        RwcVaTimer timer = defaultTimer;
+        if (timer == null) {
+            synchronized (RwcVaTimer.class) {
+                timer = defaultTimer;
+                if (timer == null) {
+                    timer = new RwcVaTimer();
+                    defaultTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Run a task once after a delay
+     */
+    public Task schedule(Runnable task, long delay, TimeUnit unit) {
+        Task handle = new Task(task, 0);
+        handle.arm(delay, unit);
+        return handle;
+    }
+
+    /**
+     * Run a task repeatedly; the next run is armed after the current one finishes, so runs never overlap
+     */
+    public Task scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        Task handle = new Task(task, unit.toNanos(period));
+        handle.arm(initialDelay, unit);
+        return handle;
+    }
+
+    /**
+     * Number of armed timeouts, for diagnostics
+     */
+    public long getPendingCount() {
+        return wheel.pendingTimeouts();
+    }
+
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Cancellable handle for a scheduled task
+     */
+    public final class Task {
+        private final Runnable runnable;
+        private final long periodNanos;
+        private volatile Timeout timeout;
+        private volatile boolean cancelled;
+
+        private Task(Runnable runnable, long periodNanos) {
+            this.runnable = runnable;
+            this.periodNanos = periodNanos;
+        }
+
+        private void arm(long delay, TimeUnit unit) {
+            try {
+                timeout = wheel.newTimeout(t -> run(), delay, unit);
+            } catch (IllegalStateException e) {
+                // 타이머가 이미 중지됨
+                cancelled = true;
+                LOGGER.fine("Timer stopped, task not scheduled");
+            }
+            // arm과 cancel이 경합한 경우
+            if (cancelled && timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        private void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                LOGGER.log(Level.SEVERE, "Error in timer task", e);
+            }
+            if (periodNanos > 0 && !cancelled) {
+                arm(periodNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * True once a one-shot task has run or any task has been cancelled
+         */
+        public boolean isDone() {
+            if (cancelled) {
+                return true;
+            }
+            Timeout current = timeout;
+            return periodNanos == 0 && current != null && current.isExpired();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package rexgen.videoproxy.websocket;
+
+import io.netty.buffer.ByteBuf;
+import rexgen.videoproxy.protocol.H264NalScanner;
+import rexgen.videoproxy.protocol.LiveDataView;
+
+/**
+ * Latest SPS and PPS of one H.264 camera and the decoder configuration built from them.
+ * <p>
+ * Frames without parameter sets are skipped after one look at their cached NAL types. When a frame
+ * carries an SPS or PPS, it is compared in place with the current one, and the {@link Config}
+ * (an {@code avcC} record and codec string) is only rebuilt when it differs, so it can be sent to
+ * viewers once per change instead of with every keyframe. Only the first SPS and PPS of a frame
+ * are kept. Not thread-safe; the owner locks.
+ */
+final class AvcParameterSets {
+    private byte[] sps;
+    private byte[] pps;
+    private Config config;
+
+    /**
+     * Decoder configuration for WebCodecs: {@code avcC} record (ISO/IEC 14496-15, 4-byte NAL
+     * lengths) and the matching {@code avc1.PPCCLL} codec string
+     */
+    static final class Config {
+        private final byte[] sps;
+        private final byte[] pps;
+        private final String codec;
+        private final byte[] avcC;
+
+        private Config(byte[] sps, byte[] pps) {
+            this.sps = sps;
+            this.pps = pps;
+            this.codec = String.format("avc1.%02X%02X%02X", sps[1], sps[2], sps[3]);
+
+            byte[] record = new byte[11 + sps.length + pps.length];
+            record[0] = 1; // configurationVersion
+            record[1] = sps[1]; // profile
+            record[2] = sps[2]; // profile compatibility
+            record[3] = sps[3]; // level
+            record[4] = (byte) 0xFF; // lengthSizeMinusOne = 3
+            record[5] = (byte) 0xE1; // SPS 1개
+            record[6] = (byte) (sps.length >> 8);
+            record[7] = (byte) sps.length;
+            System.arraycopy(sps, 0, record, 8, sps.length);
+            int offset = 8 + sps.length;
+            record[offset] = 1; // PPS 1개
+            record[offset + 1] = (byte) (pps.length >> 8);
+            record[offset + 2] = (byte) pps.length;
+            System.arraycopy(pps, 0, record, offset + 3, pps.length);
+            this.avcC = record;
+        }
+
+        String getCodec() {
+            return codec;
+        }
+
+        /**
+         * The {@code avcC} record; callers must not modify it
+         */
+        byte[] getAvcC() {
+            return avcC;
+        }
+
+        /**
+         * Whether every SPS and PPS a frame carries is this configuration's
+         */
+        boolean matches(LiveDataView frame) {
+            return matches(frame.extraData()) && matches(frame.payload());
+        }
+
+        private boolean matches(ByteBuf buf) {
+            int to = buf.writerIndex();
+            for (int nal = H264NalScanner.nextNal(buf, buf.readerIndex(), to); nal >= 0;
+                 nal = H264NalScanner.nextNal(buf, nal + 1, to)) {
+                int type = H264NalScanner.nalType(buf, nal);
+                if (type == H264NalScanner.NAL_SPS || type == H264NalScanner.NAL_PPS) {
+                    byte[] expected = type == H264NalScanner.NAL_SPS ? sps : pps;
+                    if (!equalsRange(expected, buf, nal, H264NalScanner.nalEnd(buf, nal, to))) {
+                        return false;
+                    }
+                } else if (((1 << type) & H264NalScanner.VCL_MASK) != 0) {
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Take the parameter sets of a frame
+     *
+     * @return true if the configuration changed
+     */
+    boolean update(LiveDataView frame) {
+        if (!hasParameterSets(frame)) {
+            return false;
+        }
+
+        // 키프레임에서만 도달하므로 슬라이스 생성 비용은 무시할 만함
+        boolean changed = take(frame.extraData());
+        changed |= take(frame.payload());
+        if (!changed || sps == null || pps == null || sps.length < 4) {
+            return false;
+        }
+        config = new Config(sps, pps);
+        return true;
+    }
+
+    /**
+     * Whether a frame carries an SPS or PPS, from its cached NAL types
+     */
+    static boolean hasParameterSets(LiveDataView frame) {
+        return (frame.getNalTypes() & ((1 << H264NalScanner.NAL_SPS) | (1 << H264NalScanner.NAL_PPS))) != 0;
+    }
+
+    /**
+     * Current configuration, or null until both an SPS and a PPS were seen
+     */
+    Config getConfig() {
+        return config;
+    }
+
+    private boolean take(ByteBuf buf) {
+        int to = buf.writerIndex();
+        boolean changed = false;
+        boolean spsSeen = false;
+        boolean ppsSeen = false;
+        for (int nal = H264NalScanner.nextNal(buf, buf.readerIndex(), to); nal >= 0;
+             nal = H264NalScanner.nextNal(buf, nal + 1, to)) {
+            int type = H264NalScanner.nalType(buf, nal);
+            if (type == H264NalScanner.NAL_SPS && !spsSeen) {
+                spsSeen = true;
+                int end = H264NalScanner.nalEnd(buf, nal, to);
+                if (!equalsRange(sps, buf, nal, end)) {
+                    sps = copyRange(buf, nal, end);
+                    changed = true;
+                }
+            } else if (type == H264NalScanner.NAL_PPS && !ppsSeen) {
+                ppsSeen = true;
+                int end = H264NalScanner.nalEnd(buf, nal, to);
+                if (!equalsRange(pps, buf, nal, end)) {
+                    pps = copyRange(buf, nal, end);
+                    changed = true;
+                }
+            } else if (((1 << type) & H264NalScanner.VCL_MASK) != 0) {
+                break;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean equalsRange(byte[] current, ByteBuf buf, int from, int to) {
+        if (current == null || current.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != buf.getByte(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] copyRange(ByteBuf buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buf.getBytes(from, bytes);
+        return bytes;
+    }
+}
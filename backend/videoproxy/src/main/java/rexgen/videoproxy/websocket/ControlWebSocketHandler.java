@@ -1,44 +1,74 @@
 package rexgen.videoproxy.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.RecordTimeline;
 import rexgen.videoproxy.protocol.RwcVaEnums;
 import rexgen.videoproxy.tcp.RwcVaTcpClient;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * WebSocket handler for playback: requests recorded video and streams the paced PLAY_DATA frames
+ * using the binary live frame envelope
+ */
 class ControlWebSocketHandler extends TextWebSocketHandler {
     private static final Logger LOGGER = Logger.getLogger(ControlWebSocketHandler.class.getName());
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, ControlSession> sessions = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // 세션별 송신 큐를 비우는 작업자와 재생 프레임 페이싱 타이머
+    private final ExecutorService controlSendExecutor =
+            Executors.newCachedThreadPool(new CustomizableThreadFactory("control-ws-writer-"));
+    private final ScheduledExecutorService playbackPacer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("playback-pacer-"));
 
     private final TcpClientManager tcpClientManager;
+    private final int sendQueueCapacity;
+    private final int playbackBufferFrames;
+    private final TimelineCache timelineCache;
+    private final VideoProxyMetrics metrics;
 
-    public ControlWebSocketHandler(TcpClientManager tcpClientManager) {
+    public ControlWebSocketHandler(TcpClientManager tcpClientManager, int sendQueueCapacity, int playbackBufferFrames,
+                                   TimelineCache timelineCache, VideoProxyMetrics metrics) {
         this.tcpClientManager = tcpClientManager;
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.playbackBufferFrames = playbackBufferFrames;
+        this.timelineCache = timelineCache;
+        this.metrics = metrics;
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         LOGGER.info("New control WebSocket connection: " + session.getId());
-        sessions.put(session.getId(), session);
+        sessions.put(session.getId(), new ControlSession(session));
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         LOGGER.info("Control WebSocket connection closed: " + session.getId());
-        sessions.remove(session.getId());
+        ControlSession control = sessions.remove(session.getId());
         tcpClientManager.removeClient(session);
+        if (control != null) {
+            control.close();
+        }
     }
 
     @Override
@@ -47,15 +77,30 @@ class ControlWebSocketHandler extends TextWebSocketHandler {
             Map<String, Object> request = objectMapper.readValue(message.getPayload(), Map.class);
             String type = (String) request.get("type");
 
+            ControlSession control = sessions.get(session.getId());
+            if (control == null) {
+                LOGGER.warning("No control state for session: " + session.getId());
+                return;
+            }
+
             switch (type) {
                 case "connect":
-                    handleConnectRequest(session, request);
+                    handleConnectRequest(control, request);
                     break;
                 case "playbackInfo":
-                    // Handle playback info request
+                    handlePlaybackInfoRequest(control, request);
                     break;
                 case "playbackControl":
-                    // Handle playback control request
+                    handlePlaybackControlRequest(control, request);
+                    break;
+                case "playbackSeek":
+                    handlePlaybackSeekRequest(control, request);
+                    break;
+                case "recordRange":
+                    handleRecordRangeRequest(control, request);
+                    break;
+                case "timeline":
+                    handleTimelineRequest(control, request);
                     break;
                 default:
                     LOGGER.warning("Unknown request type: " + type);
@@ -69,66 +114,336 @@ class ControlWebSocketHandler extends TextWebSocketHandler {
     /**
      * Handle connect request
      */
-    private void handleConnectRequest(WebSocketSession session, Map<String, Object> request) {
+    private void handleConnectRequest(ControlSession control, Map<String, Object> request) {
         String serverIp = (String) request.get("serverIp");
         int serverPort = ((Number) request.get("serverPort")).intValue();
 
         LOGGER.info("Handling control connect request to " + serverIp + ":" + serverPort);
 
-        RwcVaTcpClient client = tcpClientManager.getClient(session, serverIp, serverPort);
+        RwcVaTcpClient client = tcpClientManager.getClient(control.session, serverIp, serverPort);
+        control.client = client;
 
         // Set up connection change handler with endpoint information
         client.setOnConnectChange(connected -> {
-            try {
-                LOGGER.info("Control TCP connection status changed: " + connected);
-                Map<String, Object> connectionMessage = new HashMap<>();
-                connectionMessage.put("type", "connection");
-                connectionMessage.put("connected", connected);
-                connectionMessage.put("endpoint", "control");
-
-                session.sendMessage(new TextMessage(
-                        objectMapper.writeValueAsString(connectionMessage)
-                ));
-
-                // If connection established, send init command
-                if (connected) {
-                    boolean sent = client.sendInitConnect(RwcVaEnums.ConnectType.PLAYBACK);
-                    if (sent) {
-                        LOGGER.info("Sent control init connect after connection established");
-                    } else {
-                        LOGGER.warning("Failed to send control init connect");
-                    }
+            LOGGER.info("Control TCP connection status changed: " + connected);
+            // 새 연결에서는 이전 요청의 프레임을 이어갈 수 없음
+            control.playback.reset();
+
+            Map<String, Object> connectionMessage = new HashMap<>();
+            connectionMessage.put("type", "connection");
+            connectionMessage.put("connected", connected);
+            connectionMessage.put("endpoint", "control");
+            control.sendJson(connectionMessage);
+
+            // If connection established, send init command
+            if (connected) {
+                boolean sent = client.sendInitConnect(RwcVaEnums.ConnectType.PLAYBACK);
+                if (sent) {
+                    LOGGER.info("Sent control init connect after connection established");
+                } else {
+                    LOGGER.warning("Failed to send control init connect");
                 }
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error sending control connection status", e);
             }
         });
 
         // Set up init response handler
         client.setInitResponseHandler(initSuccess -> {
-            try {
-                if (initSuccess) {
-                    LOGGER.info("Control connection initialized with valid clientKey: " + client.getServerClientKey());
-
-                    // Send connectionReady message after initialization
-                    Map<String, Object> readyMessage = new HashMap<>();
-                    readyMessage.put("type", "connectionReady");
-                    readyMessage.put("connected", true);
-                    readyMessage.put("clientKey", client.getServerClientKey());
-                    readyMessage.put("endpoint", "control");
-
-                    session.sendMessage(new TextMessage(
-                            objectMapper.writeValueAsString(readyMessage)
-                    ));
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error sending control connection ready message", e);
+            if (initSuccess) {
+                LOGGER.info("Control connection initialized with valid clientKey: " + client.getServerClientKey());
+
+                // Send connectionReady message after initialization
+                Map<String, Object> readyMessage = new HashMap<>();
+                readyMessage.put("type", "connectionReady");
+                readyMessage.put("connected", true);
+                readyMessage.put("clientKey", client.getServerClientKey());
+                readyMessage.put("endpoint", "control");
+                control.sendJson(readyMessage);
             }
         });
 
+        client.setOnInternalError(error -> control.sendError(error.getMessage()));
+        client.setOnPlaybackFrame(control.playback::offerFrame);
+        client.setOnPlaybackEvent(event -> handlePlaybackEvent(control, event));
+        // 응답은 요청한 세션과 관계없이 공유 캐시에 넣고 기다리는 세션에 전달
+        client.setOnRecordRange(range -> timelineCache.putRange(upstreamKey(client), range));
+        client.setOnTimeline(day -> timelineCache.putDay(upstreamKey(client), day));
+
         // Connect to TCP server
         client.connect().thenAccept(connected -> {
             LOGGER.info("Control TCP client connected: " + connected);
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Handle playback info request: cameraIds, startTime (ISO-8601) and duration in seconds
+     */
+    private void handlePlaybackInfoRequest(ControlSession control, Map<String, Object> request) {
+        RwcVaTcpClient client = control.client;
+        if (client == null || !client.isConnected()) {
+            control.sendError("Not connected to a playback server");
+            return;
+        }
+
+        List<Integer> cameraIds = new ArrayList<>();
+        if (request.get("cameraIds") instanceof List<?> ids) {
+            for (Object id : ids) {
+                if (id instanceof Number number) {
+                    cameraIds.add(number.intValue());
+                }
+            }
+        }
+        if (cameraIds.isEmpty() || !(request.get("startTime") instanceof String startTime)
+                || !(request.get("duration") instanceof Number duration)) {
+            control.sendError("playbackInfo requires cameraIds, startTime and duration");
+            return;
+        }
+
+        long startSeconds = Instant.parse(startTime).getEpochSecond();
+        long endSeconds = startSeconds + duration.longValue();
+
+        // 새 요청이므로 이전 클립의 대기 프레임은 버림
+        control.playback.reset();
+        control.speed = RwcVaEnums.SpeedType.X1;
+        control.playback.setSpeed(control.speed);
+        if (!client.sendPlaybackInfo(cameraIds, startSeconds, endSeconds)) {
+            control.sendError("Failed to send playback info request");
+        }
+    }
+
+    /**
+     * Handle playback control request: controlType (PLAY, STOP, SPEED) and speed for SPEED
+     */
+    private void handlePlaybackControlRequest(ControlSession control, Map<String, Object> request) {
+        RwcVaTcpClient client = control.client;
+        if (client == null || !client.isConnected()) {
+            control.sendError("Not connected to a playback server");
+            return;
+        }
+
+        RwcVaEnums.ControlType controlType = request.get("controlType") instanceof Number number
+                ? RwcVaEnums.ControlType.fromValue(number.intValue())
+                : RwcVaEnums.ControlType.UNKNOWN;
+
+        switch (controlType) {
+            case PLAY:
+                control.playback.setPlaying(true);
+                break;
+            case STOP:
+                // 서버가 계속 보내더라도 버퍼가 차면 수신이 멈춤
+                control.playback.setPlaying(false);
+                break;
+            case SPEED:
+                RwcVaEnums.SpeedType speed = request.get("speed") instanceof Number number
+                        ? RwcVaEnums.SpeedType.fromValue(number.intValue())
+                        : RwcVaEnums.SpeedType.UNKNOWN;
+                if (speed == RwcVaEnums.SpeedType.UNKNOWN) {
+                    control.sendError("Unknown playback speed: " + request.get("speed"));
+                    return;
+                }
+                control.speed = speed;
+                control.playback.setSpeed(speed);
+                break;
+            default:
+                control.sendError("Unknown playback control: " + request.get("controlType"));
+                return;
+        }
+
+        if (!client.sendPlayControl(controlType, control.speed)) {
+            control.sendError("Failed to send playback control");
+        }
+    }
+
+    /**
+     * Handle playback seek request: time (ISO-8601). A time already buffered is served from the nearest
+     * keyframe without a round trip; otherwise the server is asked to seek.
+     */
+    private void handlePlaybackSeekRequest(ControlSession control, Map<String, Object> request) {
+        RwcVaTcpClient client = control.client;
+        if (client == null || !client.isConnected()) {
+            control.sendError("Not connected to a playback server");
+            return;
+        }
+        if (!(request.get("time") instanceof String time)) {
+            control.sendError("playbackSeek requires time");
+            return;
+        }
+
+        long targetMillis = Instant.parse(time).toEpochMilli();
+        if (control.playback.seek(targetMillis)) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("type", "playbackSeekResponse");
+            message.put("endpoint", "control");
+            control.sendJson(message);
+            return;
+        }
+
+        // 버퍼 밖의 위치: 대기 프레임은 버리고 서버에서 다시 받음
+        control.playback.awaitSeek();
+        if (!client.sendPlaySeek(targetMillis / 1000)) {
+            control.sendError("Failed to send playback seek");
+        }
+    }
+
+    /**
+     * Handle record range request: cameraId, year and month; answered with the recorded days
+     */
+    private void handleRecordRangeRequest(ControlSession control, Map<String, Object> request) {
+        RwcVaTcpClient client = control.client;
+        if (client == null || !client.isConnected()) {
+            control.sendError("Not connected to a playback server");
+            return;
+        }
+        if (!(request.get("cameraId") instanceof Number cameraId) || !(request.get("year") instanceof Number year)
+                || !(request.get("month") instanceof Number month)) {
+            control.sendError("recordRange requires cameraId, year and month");
+            return;
+        }
+
+        timelineCache.getRange(upstreamKey(client), cameraId.intValue(), year.intValue(), month.intValue(),
+                        () -> client.sendRecordRange(cameraId.intValue(), year.intValue(), month.intValue()))
+                .whenComplete((range, error) -> {
+                    if (error != null) {
+                        control.sendError("Record range not available: " + error.getMessage());
+                        return;
+                    }
+                    Map<String, Object> message = new HashMap<>();
+                    message.put("type", "recordRange");
+                    message.put("endpoint", "control");
+                    message.put("cameraId", range.getCameraId());
+                    message.put("year", range.getYear());
+                    message.put("month", range.getMonth());
+                    message.put("days", range.recordedDays());
+                    control.sendJson(message);
+                });
+    }
+
+    /**
+     * Handle timeline request: cameraId, year, month and day; answered with the recorded
+     * [start, end) minute segments of the day
+     */
+    private void handleTimelineRequest(ControlSession control, Map<String, Object> request) {
+        RwcVaTcpClient client = control.client;
+        if (client == null || !client.isConnected()) {
+            control.sendError("Not connected to a playback server");
+            return;
+        }
+        if (!(request.get("cameraId") instanceof Number cameraId) || !(request.get("year") instanceof Number year)
+                || !(request.get("month") instanceof Number month) || !(request.get("day") instanceof Number day)) {
+            control.sendError("timeline requires cameraId, year, month and day");
+            return;
+        }
+
+        timelineCache.getDay(upstreamKey(client), cameraId.intValue(), year.intValue(), month.intValue(),
+                        day.intValue(),
+                        () -> client.sendTimelineInfo(cameraId.intValue(), year.intValue(), month.intValue(),
+                                day.intValue()))
+                .whenComplete((timeline, error) -> {
+                    if (error != null) {
+                        control.sendError("Timeline not available: " + error.getMessage());
+                        return;
+                    }
+                    Map<String, Object> message = new HashMap<>();
+                    message.put("type", "timeline");
+                    message.put("endpoint", "control");
+                    message.put("cameraId", timeline.getCameraId());
+                    message.put("year", timeline.getYear());
+                    message.put("month", timeline.getMonth());
+                    message.put("day", timeline.getDay());
+                    message.put("segments", timeline.segments());
+                    control.sendJson(message);
+                });
+    }
+
+    private static String upstreamKey(RwcVaTcpClient client) {
+        return client.getServerIp() + ":" + client.getServerPort();
+    }
+
+    private void handlePlaybackEvent(ControlSession control, RwcVaEnums.PlaybackSubCommand event) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("endpoint", "control");
+        switch (event) {
+            case PLAYBACK_RESPONSE:
+                message.put("type", "playbackResponse");
+                break;
+            case PLAY_CONTROL_RESPONSE:
+                message.put("type", "playbackControlResponse");
+                break;
+            case PLAY_SEEK_RESPONSE:
+                control.playback.seekCompleted();
+                message.put("type", "playbackSeekResponse");
+                break;
+            case NOT_EXIST_DATA:
+                message.put("type", "playbackNoData");
+                break;
+            case PLAYBACK_DATA_END:
+                // 남은 프레임이 모두 나간 뒤에 전달되도록 재생 버퍼를 거침
+                message.put("type", "playbackEnd");
+                control.playback.offerMessage(control.toTextMessage(message));
+                return;
+            default:
+                return;
+        }
+        control.sendJson(message);
+    }
+
+    /**
+     * Send a playback frame in the binary live frame envelope; runs on the session's writer
+     */
+    private static void sendPlaybackFrame(WebSocketSession session, LiveDataView frame) throws IOException {
+        session.sendMessage(new BinaryMessage(LiveFrameEncoder.encode(frame)));
+    }
+
+    /**
+     * State of one control session: its send queue, playback pacing and upstream client
+     */
+    private class ControlSession {
+        private final WebSocketSession session;
+        private final OutboundFrameQueue queue;
+        private final PlaybackStream playback;
+        private volatile RwcVaTcpClient client;
+        private volatile RwcVaEnums.SpeedType speed = RwcVaEnums.SpeedType.X1;
+
+        ControlSession(WebSocketSession session) {
+            this.session = session;
+            this.queue = new OutboundFrameQueue(session, controlSendExecutor,
+                    ControlWebSocketHandler::sendPlaybackFrame, sendQueueCapacity, metrics);
+            this.playback = new PlaybackStream(queue, playbackPacer, this::setReadPaused, playbackBufferFrames);
+        }
+
+        private void setReadPaused(boolean paused) {
+            RwcVaTcpClient current = client;
+            if (current != null) {
+                current.setReadPaused(paused);
+            }
+        }
+
+        TextMessage toTextMessage(Map<String, Object> message) {
+            try {
+                return new TextMessage(objectMapper.writeValueAsString(message));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot serialize " + message.get("type") + " message", e);
+            }
+        }
+
+        void sendJson(Map<String, Object> message) {
+            try {
+                queue.offerMessage(toTextMessage(message));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.SEVERE, e.getMessage(), e.getCause());
+            }
+        }
+
+        void sendError(String text) {
+            Map<String, Object> errorMessage = new HashMap<>();
+            errorMessage.put("type", "error");
+            errorMessage.put("message", text);
+            errorMessage.put("endpoint", "control");
+            sendJson(errorMessage);
+        }
+
+        void close() {
+            playback.close();
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package rexgen.videoproxy.websocket;
+
+import rexgen.videoproxy.protocol.LiveDataView;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the most recent GOP (last INTRA frame and the frames after it) of each live camera so a
+ * new subscriber can start decoding immediately instead of waiting for the next keyframe.
+ * <p>
+ * Each {@link Gop} is bounded by a frame count and a byte size, and all of them share a global
+ * byte budget. A GOP that would exceed a limit is discarded and caching resumes at the next INTRA.
+ */
+class GopCache {
+    private final int maxFramesPerCamera;
+    private final long maxBytesPerCamera;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    GopCache(int maxFramesPerCamera, long maxBytesPerCamera, long maxBytes) {
+        this.maxFramesPerCamera = maxFramesPerCamera;
+        this.maxBytesPerCamera = maxBytesPerCamera;
+        this.maxBytes = maxBytes;
+    }
+
+    Gop newGop() {
+        return new Gop();
+    }
+
+    long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    boolean isEnabled() {
+        return maxFramesPerCamera > 0 && maxBytesPerCamera > 0 && maxBytes > 0;
+    }
+
+    /**
+     * GOP of one camera. Callers may synchronize on it to order replay against new frames.
+     */
+    final class Gop {
+        private final ArrayDeque<LiveDataView> frames = new ArrayDeque<>();
+        private long bytes;
+        private boolean closed;
+
+        /**
+         * Append a frame, retaining it. An INTRA frame starts a new GOP.
+         */
+        synchronized void add(LiveDataView frame) {
+            if (closed || !isEnabled()) {
+                return;
+            }
+
+            boolean intra = frame.isKeyframe();
+            if (intra) {
+                reset();
+            } else if (frames.isEmpty()) {
+                // 키프레임 없이 시작하는 GOP는 재생할 수 없음
+                return;
+            }
+
+            int size = frame.getFrameSize();
+            if (frames.size() >= maxFramesPerCamera || bytes + size > maxBytesPerCamera) {
+                reset();
+                return;
+            }
+            if (totalBytes.addAndGet(size) > maxBytes) {
+                totalBytes.addAndGet(-size);
+                reset();
+                return;
+            }
+
+            frames.addLast(frame.retain());
+            bytes += size;
+        }
+
+        /**
+         * Deliver the cached frames in order; the consumer must retain any frame it keeps
+         */
+        synchronized void replay(Consumer<LiveDataView> consumer) {
+            for (LiveDataView frame : frames) {
+                consumer.accept(frame);
+            }
+        }
+
+        synchronized int size() {
+            return frames.size();
+        }
+
+        /**
+         * Release the cached frames, for example after the upstream reconnected
+         */
+        synchronized void reset() {
+            LiveDataView frame;
+            while ((frame = frames.pollFirst()) != null) {
+                frame.release();
+            }
+            totalBytes.addAndGet(-bytes);
+            bytes = 0;
+        }
+
+        /**
+         * Release the cached frames and ignore any frame added afterwards
+         */
+        synchronized void close() {
+            closed = true;
+            reset();
+        }
+    }
+}
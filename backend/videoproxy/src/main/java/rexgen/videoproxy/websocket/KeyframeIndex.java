@@ -0,0 +1,98 @@
+package rexgen.videoproxy.websocket;
+
+import java.util.Arrays;
+
+/**
+ * Timestamps and stream positions of the INTRA frames of one camera, in arrival order.
+ * <p>
+ * Kept in two parallel primitive arrays so an entry costs 16 bytes and no allocation once the
+ * arrays have grown; lookups are a binary search over the timestamps. Entries for positions that
+ * have already left the buffer are trimmed from the front. Not thread-safe; the owner locks.
+ */
+final class KeyframeIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int start;
+    private int end;
+
+    /**
+     * Record a keyframe; a timestamp before the last one starts a new, separately searchable run
+     */
+    void add(long timestampMillis, long position) {
+        if (end > start && timestampMillis < timestamps[end - 1]) {
+            // 되감긴 녹화: 시간 순서가 깨지므로 이전 항목은 버림
+            clear();
+        }
+        if (end == timestamps.length) {
+            grow();
+        }
+        timestamps[end] = timestampMillis;
+        positions[end] = position;
+        end++;
+    }
+
+    /**
+     * Position of the last keyframe at or before the given time, or -1 if there is none
+     */
+    long floorPosition(long timestampMillis) {
+        int i = Arrays.binarySearch(timestamps, start, end, timestampMillis);
+        if (i < 0) {
+            i = -i - 2; // 삽입 위치 바로 앞
+        } else {
+            // 같은 시각이 여러 개면 마지막 항목
+            while (i + 1 < end && timestamps[i + 1] == timestampMillis) {
+                i++;
+            }
+        }
+        return i >= start ? positions[i] : -1;
+    }
+
+    /**
+     * Position of the oldest keyframe, or -1 if there is none
+     */
+    long firstPosition() {
+        return end > start ? positions[start] : -1;
+    }
+
+    /**
+     * Drop keyframes at positions before the given one
+     */
+    void trimBefore(long position) {
+        while (start < end && positions[start] < position) {
+            start++;
+        }
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+    }
+
+    void clear() {
+        start = 0;
+        end = 0;
+    }
+
+    int size() {
+        return end - start;
+    }
+
+    private void grow() {
+        int size = end - start;
+        if (size * 2 <= timestamps.length) {
+            // 앞쪽이 비어 있으면 당겨서 재사용
+            System.arraycopy(timestamps, start, timestamps, 0, size);
+            System.arraycopy(positions, start, positions, 0, size);
+        } else {
+            long[] newTimestamps = new long[timestamps.length * 2];
+            long[] newPositions = new long[positions.length * 2];
+            System.arraycopy(timestamps, start, newTimestamps, 0, size);
+            System.arraycopy(positions, start, newPositions, 0, size);
+            timestamps = newTimestamps;
+            positions = newPositions;
+        }
+        start = 0;
+        end = size;
+    }
+}
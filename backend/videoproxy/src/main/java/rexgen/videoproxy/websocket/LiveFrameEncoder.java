@@ -0,0 +1,195 @@
+package rexgen.videoproxy.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import rexgen.videoproxy.protocol.H264NalScanner;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes live frames for the video WebSocket.
+ * <p>
+ * By default a frame is sent as a JSON metadata text message ({@link #encodeMetadata}) followed by
+ * a binary video message ({@link #encodeVideo}). Sessions that negotiate {@code format=binary} get
+ * one message per frame instead ({@link #encode}), laid out as follows
+ * <p>
+ * Layout (little-endian, 4-byte aligned so the browser can read the object table with typed arrays):
+ * <pre>
+ *  0  u8   version (1)
+ *  1  u8   codec
+ *  2  u8   intra code
+ *  3  u8   reserved
+ *  4  i32  camera id
+ *  8  i64  timestamp (epoch ms)
+ * 16  u16  object count
+ * 18  u16  object record size (40)
+ * 20  i32  extra data size
+ * 24  i32  payload size
+ * 28  object records: i32 type, i32 index, f32 x, y, width, height, detection score, class score, i16 attributes[4]
+ *  .. extra data, payload
+ * </pre>
+ * The intra code is INTRA exactly when {@link LiveDataView#isKeyframe()}. For sessions that receive
+ * H.264 decoder configurations separately, the parameter sets can be left out of the envelope.
+ */
+final class LiveFrameEncoder {
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 28;
+    static final int OBJECT_RECORD_SIZE = 32 + 2 * RwcVaConstants.MAX_ATTRIBUTE_COUNT;
+
+    private LiveFrameEncoder() {
+    }
+
+    static int encodedSize(LiveDataView frame) {
+        return HEADER_SIZE + frame.getObjectCount() * OBJECT_RECORD_SIZE
+                + frame.getExtraDataSize() + frame.getPayloadSize();
+    }
+
+    static ByteBuffer encode(LiveDataView frame) {
+        return encode(frame, false);
+    }
+
+    /**
+     * @param omitParameterSets leave out H.264 extra data made only of parameter sets and the
+     *                          parameter sets leading the payload
+     */
+    static ByteBuffer encode(LiveDataView frame, boolean omitParameterSets) {
+        ByteBuf extraData = frame.extraData();
+        ByteBuf payload = frame.payload();
+        if (omitParameterSets && (frame.getNalTypes() & H264NalScanner.PARAMETER_SET_MASK) != 0) {
+            int extraTypes = H264NalScanner.scanAccessUnit(extraData);
+            if (extraTypes != 0 && (extraTypes & ~H264NalScanner.PARAMETER_SET_MASK) == 0) {
+                extraData = Unpooled.EMPTY_BUFFER;
+            }
+            payload.readerIndex(H264NalScanner.skipParameterSets(payload, payload.readerIndex(), payload.writerIndex()));
+        }
+
+        int size = HEADER_SIZE + frame.getObjectCount() * OBJECT_RECORD_SIZE
+                + extraData.readableBytes() + payload.readableBytes();
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        encode(frame, extraData, payload, out);
+        out.flip();
+        return out;
+    }
+
+    private static void encode(LiveDataView frame, ByteBuf extraData, ByteBuf payload, ByteBuffer out) {
+        int objectCount = frame.getObjectCount();
+
+        out.put(VERSION);
+        out.put((byte) frame.getCodecValue());
+        out.put((byte) intraCode(frame));
+        out.put((byte) 0);
+        out.putInt(frame.getCameraId());
+        out.putLong(frame.getTimestampMillis());
+        out.putShort((short) objectCount);
+        out.putShort((short) OBJECT_RECORD_SIZE);
+        out.putInt(extraData.readableBytes());
+        out.putInt(payload.readableBytes());
+
+        for (int i = 0; i < objectCount; i++) {
+            out.putInt(frame.objectTypeValue(i));
+            out.putInt(frame.objectIndex(i));
+            out.putFloat(frame.objectX(i));
+            out.putFloat(frame.objectY(i));
+            out.putFloat(frame.objectWidth(i));
+            out.putFloat(frame.objectHeight(i));
+            out.putFloat(frame.objectDetectionScore(i));
+            out.putFloat(frame.objectClassScore(i));
+            for (int j = 0; j < RwcVaConstants.MAX_ATTRIBUTE_COUNT; j++) {
+                out.putShort(frame.objectAttribute(i, j));
+            }
+        }
+
+        if (extraData.isReadable()) {
+            copy(extraData, out);
+        }
+        copy(payload, out);
+    }
+
+    // 헤더의 intra code가 아니라 NAL에서 판별한 키프레임 여부를 전달
+    private static int intraCode(LiveDataView frame) {
+        int intra = RwcVaEnums.IntraCode.INTRA.getValue();
+        if (frame.isKeyframe()) {
+            return intra;
+        }
+        int value = frame.getIntraCodeValue();
+        return value == intra ? RwcVaEnums.IntraCode.PREDICT.getValue() : value;
+    }
+
+    // getBytes(int, ByteBuffer)는 out이 가득 찰 때까지 읽으므로 limit으로 길이를 제한
+    private static void copy(ByteBuf src, ByteBuffer out) {
+        int limit = out.limit();
+        out.limit(out.position() + src.readableBytes());
+        src.getBytes(src.readerIndex(), out);
+        out.limit(limit);
+    }
+
+    /**
+     * Serialize live metadata with a streaming generator, reading object fields and attributes
+     * straight from the frame instead of building a map per frame and per object
+     */
+    static String encodeMetadata(JsonFactory factory, LiveDataView frame) throws IOException {
+        int objectCount = frame.getObjectCount();
+        StringWriter writer = new StringWriter(192 + objectCount * 192);
+
+        try (JsonGenerator gen = factory.createGenerator(writer)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "liveData");
+            gen.writeNumberField("cameraId", frame.getCameraId());
+            gen.writeNumberField("timestamp", frame.getTimestampMillis());
+            gen.writeStringField("codec", frame.getCodec().name());
+            gen.writeStringField("intraCode", frame.getIntraCode().name());
+            gen.writeStringField("endpoint", "video"); // 추가
+
+            // Add object detection info
+            gen.writeArrayFieldStart("objects");
+            for (int i = 0; i < objectCount; i++) {
+                gen.writeStartObject();
+                gen.writeStringField("type", frame.objectType(i).name());
+                gen.writeNumberField("x", frame.objectX(i));
+                gen.writeNumberField("y", frame.objectY(i));
+                gen.writeNumberField("width", frame.objectWidth(i));
+                gen.writeNumberField("height", frame.objectHeight(i));
+                gen.writeNumberField("detectionScore", frame.objectDetectionScore(i));
+                gen.writeArrayFieldStart("attributes");
+                for (int j = 0; j < RwcVaConstants.MAX_ATTRIBUTE_COUNT; j++) {
+                    gen.writeNumber(frame.objectAttribute(i, j));
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Video message of the JSON format: codec and extra data size (big-endian ints), extra data, payload
+     */
+    static ByteBuffer encodeVideo(LiveDataView frame) {
+        int extraLength = frame.getExtraDataSize();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + extraLength + frame.getPayloadSize());
+
+        // Include codec and extraDataSize in binary header
+        buffer.putInt(frame.getCodecValue());
+        buffer.putInt(extraLength);
+        // Add extra data if present
+        if (extraLength > 0) {
+            copy(frame.extraData(), buffer);
+        }
+
+        // 재조립 버퍼에서 전송 버퍼로 한 번만 복사
+        copy(frame.payload(), buffer);
+
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,441 @@
+package rexgen.videoproxy.websocket;
+
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+import rexgen.videoproxy.tcp.RwcVaTcpClient;
+import rexgen.videoproxy.tcp.RwcVaTimer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One live connection to a RexWatch server shared by every viewer of that server.
+ * <p>
+ * Each subscribed camera has a route holding its viewers and its cached GOP. The number of viewers
+ * on a route is the camera's reference count: the upstream LIVE_INFO set only changes when a camera
+ * gains its first viewer or loses its last, and each received frame is routed with a single map
+ * lookup, so upstream traffic and parsing do not grow with the number of viewers. The cached GOP
+ * lets a viewer that adds a camera start from a keyframe right away; a viewer that asks to rewind
+ * is replayed the camera's spooled frames instead. The route also tracks the camera's H.264
+ * parameter sets, so viewers get its decoder configuration once per change rather than per frame.
+ * While any camera is subscribed, one periodic LIVE_INFO refresh is sent for the whole upstream,
+ * not one per viewer.
+ */
+class LiveUpstream {
+    private static final Logger LOGGER = Logger.getLogger(LiveUpstream.class.getName());
+    private static final LiveViewer[] NO_VIEWERS = new LiveViewer[0];
+
+    private final String key;
+    private final RwcVaTcpClient client;
+    private final GopCache gopCache;
+    private final RecordingSpool spool;
+    private final RwcVaTimer timer;
+    private final long refreshIntervalMs;
+    private final VideoProxyMetrics metrics;
+
+    private final Map<String, LiveViewer> viewers = new LinkedHashMap<>();
+    private final Map<String, Set<Integer>> viewerCameraIds = new HashMap<>();
+    private volatile LiveViewer[] viewerSnapshot = NO_VIEWERS;
+
+    // 프레임 수신 경로에서 락 없이 읽는 카메라 -> 라우트 (변경은 this 락 안에서만)
+    private final Map<Integer, CameraRoute> routes = new ConcurrentHashMap<>();
+    // 구독 중인 카메라가 있을 때만 예약되는 주기적 LIVE_INFO 갱신
+    private RwcVaTimer.Task refreshTask;
+    private boolean closed;
+
+    /**
+     * Viewers of one camera and its last GOP; the GOP also orders replay against live delivery
+     */
+    private static final class CameraRoute {
+        final GopCache.Gop gop;
+        final LongAdder frames;
+        // GOP 락 안에서만 접근
+        final AvcParameterSets parameterSets = new AvcParameterSets();
+        volatile LiveViewer[] viewers = NO_VIEWERS;
+
+        CameraRoute(GopCache.Gop gop, LongAdder frames) {
+            this.gop = gop;
+            this.frames = frames;
+        }
+    }
+
+    /**
+     * @param refreshIntervalMs period of the LIVE_INFO refresh, or 0 to disable it
+     */
+    LiveUpstream(String key, RwcVaTcpClient client, GopCache gopCache, RecordingSpool spool, RwcVaTimer timer,
+                 long refreshIntervalMs, VideoProxyMetrics metrics) {
+        this.key = key;
+        this.client = client;
+        this.gopCache = gopCache;
+        this.spool = spool;
+        this.timer = timer;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.metrics = metrics;
+        metrics.bindUpstream(key, client.getMetrics());
+
+        client.setOnLiveFrame(this::dispatch);
+        client.setOnConnectChange(this::handleConnectChange);
+        client.setInitResponseHandler(this::handleInitResponse);
+        client.setOnInternalError(error -> {
+            for (LiveViewer viewer : viewerSnapshot) {
+                viewer.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Add a viewer and bring it up to date with the current connection state
+     */
+    void attach(LiveViewer viewer) {
+        synchronized (this) {
+            viewers.put(viewer.getId(), viewer);
+            viewerSnapshot = viewers.values().toArray(NO_VIEWERS);
+        }
+
+        if (client.isConnected()) {
+            viewer.onConnectionChange(true);
+            if (isReady()) {
+                viewer.onConnectionReady(client.getServerClientKey());
+            }
+        } else {
+            client.connect().thenAccept(connected ->
+                    LOGGER.info("Live upstream " + key + " connected: " + connected));
+        }
+    }
+
+    /**
+     * Remove a viewer
+     *
+     * @return true if no viewers remain
+     */
+    synchronized boolean detach(String viewerId) {
+        LiveViewer viewer = viewers.remove(viewerId);
+        if (viewer == null) {
+            return viewers.isEmpty();
+        }
+        viewerSnapshot = viewers.values().toArray(NO_VIEWERS);
+
+        Set<Integer> cameraIds = viewerCameraIds.remove(viewerId);
+        boolean changed = false;
+        if (cameraIds != null) {
+            for (Integer cameraId : cameraIds) {
+                changed |= removeRoute(viewer, cameraId);
+            }
+        }
+        updateRefreshTask(!routes.isEmpty());
+        if (changed && !viewers.isEmpty()) {
+            subscribeUnion(false);
+        }
+        return viewers.isEmpty();
+    }
+
+    /**
+     * Replace the camera list of a viewer. Only the differences are applied, and LIVE_INFO is only
+     * sent if the union of all viewers' cameras changed.
+     *
+     * @return false if the upstream is ready but the LIVE_INFO request could not be sent
+     */
+    synchronized boolean updateCameras(String viewerId, Collection<Integer> cameraIds) {
+        LiveViewer viewer = viewers.get(viewerId);
+        if (viewer == null) {
+            LOGGER.warning("Unknown viewer " + viewerId + " for live upstream " + key);
+            return false;
+        }
+
+        Set<Integer> requested = new LinkedHashSet<>(cameraIds);
+        Set<Integer> current = viewerCameraIds.computeIfAbsent(viewerId, id -> new LinkedHashSet<>());
+        boolean changed = false;
+        for (Iterator<Integer> it = current.iterator(); it.hasNext(); ) {
+            Integer cameraId = it.next();
+            if (!requested.contains(cameraId)) {
+                it.remove();
+                changed |= removeRoute(viewer, cameraId);
+            }
+        }
+        for (Integer cameraId : requested) {
+            if (current.add(cameraId)) {
+                changed |= addRoute(viewer, cameraId, 0);
+            }
+        }
+        return applySubscriptionChange(changed);
+    }
+
+    /**
+     * Add one camera to a viewer; it first receives the camera's cached GOP
+     *
+     * @return false if the upstream is ready but the LIVE_INFO request could not be sent
+     */
+    boolean subscribe(String viewerId, int cameraId) {
+        return subscribe(viewerId, cameraId, 0);
+    }
+
+    /**
+     * Add one camera to a viewer, first replaying the spooled frames from about {@code rewindMillis}
+     * before the newest one, or the cached GOP if nothing is spooled
+     *
+     * @return false if the upstream is ready but the LIVE_INFO request could not be sent
+     */
+    synchronized boolean subscribe(String viewerId, int cameraId, long rewindMillis) {
+        LiveViewer viewer = viewers.get(viewerId);
+        if (viewer == null) {
+            LOGGER.warning("Unknown viewer " + viewerId + " for live upstream " + key);
+            return false;
+        }
+
+        Set<Integer> current = viewerCameraIds.computeIfAbsent(viewerId, id -> new LinkedHashSet<>());
+        if (!current.add(cameraId)) {
+            return true;
+        }
+        return applySubscriptionChange(addRoute(viewer, cameraId, rewindMillis));
+    }
+
+    /**
+     * Remove one camera from a viewer
+     *
+     * @return false if the upstream is ready but the LIVE_INFO request could not be sent
+     */
+    synchronized boolean unsubscribe(String viewerId, int cameraId) {
+        LiveViewer viewer = viewers.get(viewerId);
+        Set<Integer> current = viewerCameraIds.get(viewerId);
+        if (viewer == null || current == null || !current.remove(cameraId)) {
+            return true;
+        }
+        return applySubscriptionChange(removeRoute(viewer, cameraId));
+    }
+
+    /**
+     * Resend the current subscription even if it has not changed
+     */
+    synchronized boolean refresh() {
+        return isReady() && (routes.isEmpty() || subscribeUnion(true));
+    }
+
+    synchronized List<Integer> getCameraIds(String viewerId) {
+        Set<Integer> ids = viewerCameraIds.get(viewerId);
+        return ids != null ? new ArrayList<>(ids) : Collections.emptyList();
+    }
+
+    /**
+     * Number of viewers currently subscribed to a camera
+     */
+    int getViewerCount(int cameraId) {
+        CameraRoute route = routes.get(cameraId);
+        return route != null ? route.viewers.length : 0;
+    }
+
+    synchronized boolean isRefreshScheduled() {
+        return refreshTask != null;
+    }
+
+    boolean isReady() {
+        return client.isConnected() && client.getServerClientKey() != 0;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void close() {
+        client.close();
+        synchronized (this) {
+            closed = true;
+            updateRefreshTask(false);
+            routes.values().forEach(route -> route.gop.close());
+            routes.clear();
+        }
+        metrics.unbindUpstream(key);
+    }
+
+    private void dispatch(LiveDataView liveData) {
+        CameraRoute route = routes.get(liveData.getCameraId());
+        if (route == null) {
+            return;
+        }
+
+        route.frames.increment();
+        synchronized (route.gop) {
+            route.gop.add(liveData);
+            // 기록은 스풀 작업자가 하고 여기서는 넘기기만 함 (되감기 범위가 라이브 순서와 맞도록 GOP 락 안에서)
+            spool.append(key, liveData);
+            // SPS/PPS가 바뀐 경우에만 이 프레임보다 먼저 디코더 설정을 전달
+            AvcParameterSets.Config config = route.parameterSets.update(liveData)
+                    ? route.parameterSets.getConfig() : null;
+
+            for (LiveViewer viewer : route.viewers) {
+                try {
+                    if (config != null) {
+                        viewer.onCodecConfig(liveData.getCameraId(), config);
+                    }
+                    viewer.onLiveData(liveData);
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error delivering live data to viewer " + viewer.getId(), e);
+                }
+            }
+        }
+    }
+
+    private void handleConnectChange(boolean connected) {
+        LOGGER.info("Live upstream " + key + " connection status changed: " + connected);
+        if (!connected) {
+            // 재접속 후에는 새 GOP부터 다시 캐시
+            routes.values().forEach(route -> route.gop.reset());
+        }
+
+        for (LiveViewer viewer : viewerSnapshot) {
+            viewer.onConnectionChange(connected);
+        }
+
+        if (connected) {
+            if (!client.sendInitConnect(RwcVaEnums.ConnectType.LIVE)) {
+                LOGGER.warning("Failed to send live init connect for " + key);
+            }
+        }
+    }
+
+    private void handleInitResponse(boolean initSuccess) {
+        if (!initSuccess) {
+            return;
+        }
+
+        LOGGER.info("Live upstream " + key + " initialized with clientKey: " + client.getServerClientKey());
+        // 새 세션이므로 클라이언트가 이전 구독을 잊고 다시 전송
+        synchronized (this) {
+            if (!routes.isEmpty()) {
+                subscribeUnion(false);
+            }
+        }
+
+        for (LiveViewer viewer : viewerSnapshot) {
+            viewer.onConnectionReady(client.getServerClientKey());
+        }
+    }
+
+    /**
+     * Add a viewer to a camera's route and replay the spooled frames or the cached GOP to it
+     *
+     * @param rewindMillis how far to rewind from the spool, or 0 for the cached GOP
+     * @return true if this was the camera's first viewer
+     */
+    private boolean addRoute(LiveViewer viewer, int cameraId, long rewindMillis) {
+        CameraRoute route = routes.get(cameraId);
+        boolean created = route == null;
+        if (created) {
+            route = new CameraRoute(gopCache.newGop(), metrics.cameraFrames(key, cameraId));
+            routes.put(cameraId, route);
+        }
+
+        // 재생이 끝나기 전에 도착한 프레임이 먼저 전달되지 않도록 GOP 락 안에서 라우팅 등록
+        synchronized (route.gop) {
+            LiveViewer[] current = route.viewers;
+            LiveViewer[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = viewer;
+            route.viewers = next;
+            AvcParameterSets.Config config = route.parameterSets.getConfig();
+            if (config != null) {
+                viewer.onCodecConfig(cameraId, config);
+            }
+            LiveViewer.Replay replay = rewindMillis > 0 && spool.isEnabled() ? viewer.openReplay() : null;
+            if (replay == null) {
+                route.gop.replay(viewer::onLiveData);
+            } else {
+                // 범위만 정하고 프레임은 시청자의 송신 작업자가 읽으므로 락을 오래 잡지 않음
+                route.gop.replay(replay::offer);
+                spool.rewind(key, cameraId, rewindMillis, replay::start);
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Remove a viewer from a camera's route, dropping the route with its last viewer
+     *
+     * @return true if this was the camera's last viewer
+     */
+    private boolean removeRoute(LiveViewer viewer, int cameraId) {
+        CameraRoute route = routes.get(cameraId);
+        if (route == null) {
+            return false;
+        }
+
+        synchronized (route.gop) {
+            LiveViewer[] current = route.viewers;
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == viewer) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return false;
+            }
+            LiveViewer[] next = new LiveViewer[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+            route.viewers = next;
+        }
+
+        if (route.viewers.length > 0) {
+            return false;
+        }
+        routes.remove(cameraId);
+        route.gop.close();
+        return true;
+    }
+
+    private boolean applySubscriptionChange(boolean unionChanged) {
+        updateRefreshTask(!routes.isEmpty());
+
+        if (!isReady()) {
+            if (client.isConnected()) {
+                // 클라이언트 키가 없으면 초기화부터 다시 요청, 구독은 ACCEPT 시 전송
+                client.sendInitConnect(RwcVaEnums.ConnectType.LIVE);
+            }
+            return true;
+        }
+        return !unionChanged || subscribeUnion(false);
+    }
+
+    private void updateRefreshTask(boolean active) {
+        if (active && refreshTask == null && refreshIntervalMs > 0 && !closed) {
+            refreshTask = timer.scheduleAtFixedRate(this::periodicRefresh,
+                    refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        } else if (!active && refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    private void periodicRefresh() {
+        if (!isReady()) {
+            return; // 재연결 후 ACCEPT 시 다시 구독됨
+        }
+        LOGGER.fine(() -> "Periodic refresh: Sending live info request for " + key);
+        if (!refresh()) {
+            LOGGER.warning("Failed to send periodic live info refresh for " + key);
+        }
+    }
+
+    /**
+     * Send the union of all viewers' cameras; an empty union is sent as a zero-count LIVE_INFO so the
+     * server stops streaming the cameras nobody watches any more
+     */
+    private boolean subscribeUnion(boolean force) {
+        if (!isReady()) {
+            return true;
+        }
+
+        // 변경이 없으면 클라이언트가 전송을 생략하고, 강제 갱신은 인코딩된 바디를 재사용
+        List<Integer> union = new ArrayList<>(new TreeSet<>(routes.keySet()));
+        LOGGER.fine(() -> "Subscribing live upstream " + key + " to cameras: " + union);
+        boolean sent = force ? client.sendLiveInfo(union) : client.updateLiveInfo(union);
+        if (!sent) {
+            LOGGER.warning("Failed to send live info request for " + key);
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,84 @@
+package rexgen.videoproxy.websocket;
+
+import rexgen.videoproxy.tcp.RwcVaTimer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Keeps one {@link LiveUpstream} per RexWatch server (serverIp:serverPort)
+ */
+class LiveUpstreamManager {
+    private static final Logger LOGGER = Logger.getLogger(LiveUpstreamManager.class.getName());
+
+    private final TcpClientManager tcpClientManager;
+    private final GopCache gopCache;
+    private final RecordingSpool spool;
+    private final RwcVaTimer timer;
+    private final long refreshIntervalMs;
+    private final VideoProxyMetrics metrics;
+    private final Map<String, LiveUpstream> upstreams = new ConcurrentHashMap<>();
+    private final Map<String, LiveUpstream> viewerUpstreams = new ConcurrentHashMap<>();
+
+    /**
+     * @param refreshIntervalMs period of each upstream's LIVE_INFO refresh, or 0 to disable it
+     */
+    public LiveUpstreamManager(TcpClientManager tcpClientManager, GopCache gopCache, RecordingSpool spool,
+                               RwcVaTimer timer, long refreshIntervalMs, VideoProxyMetrics metrics) {
+        this.tcpClientManager = tcpClientManager;
+        this.gopCache = gopCache;
+        this.spool = spool;
+        this.timer = timer;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Attach a viewer to the shared upstream for a server, moving it off any previous server
+     */
+    public LiveUpstream attach(LiveViewer viewer, String serverIp, int serverPort) {
+        String key = serverIp + ":" + serverPort;
+
+        LiveUpstream previous = viewerUpstreams.get(viewer.getId());
+        if (previous != null && !previous.getKey().equals(key)) {
+            detach(viewer.getId());
+        }
+
+        // detach와 경합하지 않도록 등록까지 같은 compute 안에서 처리
+        LiveUpstream upstream = upstreams.compute(key, (k, current) -> {
+            if (current == null) {
+                LOGGER.info("Creating shared live upstream for " + k);
+                current = new LiveUpstream(k, tcpClientManager.createClient("live-" + k, serverIp, serverPort),
+                        gopCache, spool, timer, refreshIntervalMs, metrics);
+            }
+            current.attach(viewer);
+            return current;
+        });
+        viewerUpstreams.put(viewer.getId(), upstream);
+        return upstream;
+    }
+
+    public LiveUpstream getUpstream(String viewerId) {
+        return viewerUpstreams.get(viewerId);
+    }
+
+    /**
+     * Detach a viewer and close its upstream once the last viewer is gone
+     */
+    public void detach(String viewerId) {
+        LiveUpstream upstream = viewerUpstreams.remove(viewerId);
+        if (upstream == null) {
+            return;
+        }
+
+        upstreams.computeIfPresent(upstream.getKey(), (key, current) -> {
+            if (current.detach(viewerId)) {
+                LOGGER.info("Closing shared live upstream for " + key + ", no viewers left");
+                current.close();
+                return null;
+            }
+            return current;
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package rexgen.videoproxy.websocket;
+
+import rexgen.videoproxy.protocol.LiveDataView;
+
+import java.util.Iterator;
+
+/**
+ * A downstream consumer of a shared {@link LiveUpstream}, typically one video WebSocket session
+ */
+interface LiveViewer {
+    String getId();
+
+    /**
+     * Called on the upstream receive thread; the view is only valid until this method returns unless retained
+     */
+    void onLiveData(LiveDataView liveData);
+
+    /**
+     * Called with a camera's H.264 decoder configuration before the first frame that needs it: when a
+     * camera is added and its configuration is known, and whenever its SPS or PPS change. Viewers
+     * strip parameter sets from frames only after they have delivered a matching configuration.
+     */
+    default void onCodecConfig(int cameraId, AvcParameterSets.Config config) {
+    }
+
+    /**
+     * Frames of a rewind, delivered ahead of the live frames that arrive after it was opened
+     */
+    interface Replay {
+        /**
+         * Offer a frame of the cached GOP, sent only if nothing is spooled; the frame is retained
+         */
+        void offer(LiveDataView frame);
+
+        /**
+         * Start sending the spooled frames, or the offered ones if {@code frames} is null. The frames
+         * are read as they are sent, possibly on another thread, and each is released after sending.
+         */
+        void start(Iterator<LiveDataView> frames);
+    }
+
+    /**
+     * Called under the route lock when the viewer asks to rewind a camera
+     *
+     * @return the viewer's rewind slot, or null if it cannot rewind and only gets the cached GOP
+     */
+    default Replay openReplay() {
+        return null;
+    }
+
+    void onConnectionChange(boolean connected);
+
+    void onConnectionReady(long clientKey);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,333 @@
+package rexgen.videoproxy.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import rexgen.videoproxy.protocol.LiveDataView;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded send queue for one WebSocket session.
+ * <p>
+ * The upstream receive thread only enqueues; a writer task on a shared executor drains the queue, so a
+ * slow browser never stalls ingest. When the queue is full, P/B frames of a camera are dropped up to
+ * its next INTRA frame, because the decoder cannot use them without the frames already lost.
+ * Control messages are never dropped.
+ * <p>
+ * A rewind takes one slot in the queue instead of one per frame: everything queued after
+ * {@link #openReplay} waits behind it, and the writer pulls its frames one at a time as it sends
+ * them. A rewind longer than the queue is therefore neither dropped nor held in memory, while the
+ * live frames behind it stay bounded as usual.
+ */
+class OutboundFrameQueue {
+    private static final Logger LOGGER = Logger.getLogger(OutboundFrameQueue.class.getName());
+
+    /**
+     * Encodes and sends one frame; called on the writer thread
+     */
+    interface FrameWriter {
+        void write(WebSocketSession session, LiveDataView frame) throws IOException;
+    }
+
+    private final WebSocketSession session;
+    private final Executor writerExecutor;
+    private final FrameWriter frameWriter;
+    private final int capacity;
+    private final VideoProxyMetrics metrics;
+
+    // 프레임(LiveDataView), 제어 메시지(WebSocketMessage), 되감기(Replay)를 순서대로 보관
+    private final ArrayDeque<Object> queue = new ArrayDeque<>();
+    private final Set<Integer> camerasAwaitingKeyframe = new HashSet<>();
+    private int queuedFrames;
+    private boolean draining;
+    private boolean closed;
+
+    private final AtomicLong sentFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    OutboundFrameQueue(WebSocketSession session, Executor writerExecutor, FrameWriter frameWriter, int capacity,
+                       VideoProxyMetrics metrics) {
+        this.session = session;
+        this.writerExecutor = writerExecutor;
+        this.frameWriter = frameWriter;
+        this.capacity = Math.max(1, capacity);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Queue a live frame without blocking; the frame is retained until it is sent or dropped
+     */
+    void offerFrame(LiveDataView frame) {
+        boolean intra = frame.isKeyframe();
+        int cameraId = frame.getCameraId();
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            if (!camerasAwaitingKeyframe.isEmpty() && camerasAwaitingKeyframe.contains(cameraId)) {
+                if (!intra) {
+                    recordDrop();
+                    return;
+                }
+                camerasAwaitingKeyframe.remove(cameraId);
+            }
+
+            if (queuedFrames >= capacity) {
+                if (!intra) {
+                    // 다음 INTRA 프레임까지 이 카메라의 P/B 프레임은 버림
+                    recordDrop();
+                    camerasAwaitingKeyframe.add(cameraId);
+                    return;
+                }
+                // 새 키프레임이 있으므로 같은 카메라의 대기 중인 프레임은 필요 없음
+                dropQueuedFrames(cameraId);
+                if (queuedFrames >= capacity) {
+                    dropOldestFrame();
+                }
+            }
+
+            queue.addLast(frame.retain());
+            queuedFrames++;
+            metrics.queueDepthChanged(1);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Frames of one rewind. Until {@link #start} is called the writer stops at this slot; then it
+     * sends the spooled frames, or the offered ones if nothing was spooled.
+     */
+    private final class Replay implements LiveViewer.Replay {
+        // 스풀에 없을 때 대신 보낼 캐시된 GOP
+        private final ArrayDeque<LiveDataView> fallback = new ArrayDeque<>();
+        // 작업자만 읽음
+        private Iterator<LiveDataView> spooled;
+        private boolean started;
+
+        @Override
+        public void offer(LiveDataView frame) {
+            synchronized (OutboundFrameQueue.this) {
+                if (!closed && !started) {
+                    fallback.addLast(frame.retain());
+                }
+            }
+        }
+
+        @Override
+        public void start(Iterator<LiveDataView> frames) {
+            synchronized (OutboundFrameQueue.this) {
+                if (closed || started) {
+                    return;
+                }
+                started = true;
+                if (frames != null) {
+                    spooled = frames;
+                    release();
+                }
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Next frame to send, or null when the replay is done; called on the writer
+         */
+        private LiveDataView next() {
+            Iterator<LiveDataView> frames;
+            synchronized (OutboundFrameQueue.this) {
+                if (spooled == null) {
+                    return fallback.pollFirst();
+                }
+                frames = spooled;
+            }
+            return frames.hasNext() ? frames.next() : null;
+        }
+
+        private void release() {
+            fallback.forEach(LiveDataView::release);
+            fallback.clear();
+        }
+    }
+
+    /**
+     * Open a rewind slot; frames and messages queued after this call are sent after its frames
+     */
+    LiveViewer.Replay openReplay() {
+        Replay replay = new Replay();
+        synchronized (this) {
+            if (!closed) {
+                queue.addLast(replay);
+            }
+        }
+        return replay;
+    }
+
+    /**
+     * Queue a control message; these are never dropped
+     */
+    void offerMessage(WebSocketMessage<?> message) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            queue.addLast(message);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Release everything still queued and refuse further messages
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            for (Object entry : queue) {
+                if (entry instanceof LiveDataView) {
+                    ((LiveDataView) entry).release();
+                } else if (entry instanceof Replay) {
+                    ((Replay) entry).release();
+                }
+            }
+            queue.clear();
+            metrics.queueDepthChanged(-queuedFrames);
+            queuedFrames = 0;
+        }
+    }
+
+    long getSentFrames() {
+        return sentFrames.get();
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    synchronized int getQueuedFrames() {
+        return queuedFrames;
+    }
+
+    private void dropQueuedFrames(int cameraId) {
+        Iterator<Object> it = queue.iterator();
+        while (it.hasNext()) {
+            Object entry = it.next();
+            if (entry instanceof LiveDataView && ((LiveDataView) entry).getCameraId() == cameraId) {
+                it.remove();
+                ((LiveDataView) entry).release();
+                removeQueued();
+                recordDrop();
+            }
+        }
+    }
+
+    private void dropOldestFrame() {
+        Iterator<Object> it = queue.iterator();
+        while (it.hasNext()) {
+            Object entry = it.next();
+            if (entry instanceof LiveDataView) {
+                LiveDataView oldest = (LiveDataView) entry;
+                it.remove();
+                removeQueued();
+                recordDrop();
+                // 이 카메라는 끊긴 GOP를 이어갈 수 없으므로 다음 키프레임까지 대기
+                camerasAwaitingKeyframe.add(oldest.getCameraId());
+                oldest.release();
+                return;
+            }
+        }
+    }
+
+    private void removeQueued() {
+        queuedFrames--;
+        metrics.queueDepthChanged(-1);
+    }
+
+    private void recordDrop() {
+        droppedFrames.incrementAndGet();
+        metrics.frameDropped();
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            if (draining || isWaiting()) {
+                return;
+            }
+            draining = true;
+        }
+        writerExecutor.execute(this::drain);
+    }
+
+    /**
+     * Whether the writer has nothing to send yet; called with the lock held
+     */
+    private boolean isWaiting() {
+        Object head = queue.peekFirst();
+        return head == null || (head instanceof Replay && !((Replay) head).started);
+    }
+
+    private void drain() {
+        while (true) {
+            Object entry;
+            Replay replay = null;
+            synchronized (this) {
+                if (isWaiting()) {
+                    draining = false;
+                    return;
+                }
+                entry = queue.peekFirst();
+                if (entry instanceof Replay) {
+                    replay = (Replay) entry;
+                } else {
+                    queue.pollFirst();
+                    if (entry instanceof LiveDataView) {
+                        removeQueued();
+                    }
+                }
+            }
+
+            if (replay != null) {
+                // 되감기 프레임은 보낼 때 하나씩 읽음
+                try {
+                    entry = session.isOpen() ? replay.next() : null;
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Error reading rewind for session " + session.getId(), e);
+                    entry = null;
+                }
+                if (entry == null) {
+                    synchronized (this) {
+                        queue.remove(replay);
+                    }
+                    continue;
+                }
+            }
+
+            try {
+                if (!session.isOpen()) {
+                    continue;
+                }
+                if (entry instanceof LiveDataView) {
+                    long start = System.nanoTime();
+                    frameWriter.write(session, (LiveDataView) entry);
+                    metrics.frameSent(System.nanoTime() - start);
+                    sentFrames.incrementAndGet();
+                } else {
+                    session.sendMessage((WebSocketMessage<?>) entry);
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error sending to session " + session.getId(), e);
+            } finally {
+                if (entry instanceof LiveDataView) {
+                    ((LiveDataView) entry).release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package rexgen.videoproxy.websocket;
+
+import org.springframework.web.socket.WebSocketMessage;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Paces recorded frames of one control session by their timestamps.
+ * <p>
+ * PLAY_DATA frames are buffered up to a small bound and released to the session's send queue when
+ * their time comes, scaled by the playback speed. When the buffer is full, reading from the server is
+ * paused until it drains to half, so only a few seconds of a clip are ever held in memory. Control
+ * messages queued with {@link #offerMessage} are released in order with the frames, e.g. the end of
+ * data notice after the last frame. The clock is re-anchored on play, on speed changes and when the
+ * recording jumps (a gap or a step backwards).
+ * <p>
+ * Each camera's buffered INTRA frames are indexed by timestamp, so a seek that lands inside the buffer
+ * skips ahead to the nearest keyframe without asking the server. Frames a decoder could not use are
+ * not sent: at {@link #KEYFRAMES_ONLY_SPEED}x and above only INTRA frames are passed on, and after a
+ * frame of a camera has been skipped its predicted frames wait for the next keyframe.
+ */
+class PlaybackStream {
+    private static final Logger LOGGER = Logger.getLogger(PlaybackStream.class.getName());
+
+    // 이보다 큰 시간 간격은 녹화 공백으로 보고 기다리지 않음
+    static final long MAX_GAP_MILLIS = 5000;
+    // 이 배속 이상(MAX 포함)에서는 INTRA 프레임만 전달
+    static final int KEYFRAMES_ONLY_SPEED = 8;
+
+    /**
+     * Keyframe index and skip state of one camera
+     */
+    private static final class CameraTrack {
+        final KeyframeIndex keyframes = new KeyframeIndex();
+        // 탐색으로 건너뛰는 구간의 끝 (이 위치의 프레임부터 전달)
+        long skipBefore;
+        // 이어지는 프레임이 빠졌으므로 다음 INTRA 프레임까지 버림
+        boolean awaitKeyframe = true;
+    }
+
+    private final OutboundFrameQueue queue;
+    private final ScheduledExecutorService pacer;
+    private final Consumer<Boolean> readPause;
+    private final int capacity;
+
+    // 프레임(LiveDataView)과 제어 메시지(WebSocketMessage)를 순서대로 보관
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    private int bufferedFrames;
+    private final Map<Integer, CameraTrack> tracks = new HashMap<>();
+    // 버퍼에 들어온/나간 프레임 수 - 프레임의 위치는 들어온 순번
+    private long appendedPosition;
+    private long releasedPosition;
+    private long newestMillis;
+    // 서버 탐색 응답 전까지 도착하는 프레임은 이전 위치의 것
+    private boolean awaitingSeek;
+    private boolean readPaused;
+    private boolean playing = true;
+    private int speedFactor = 1; // 0: MAX (페이싱 없음)
+    private boolean anchored;
+    private long anchorNanos;
+    private long anchorMediaMillis;
+    private long lastMediaMillis;
+    private ScheduledFuture<?> pending;
+    private boolean pumping;
+    private boolean closed;
+
+    /**
+     * @param readPause pauses (true) or resumes (false) reading from the server
+     * @param capacity frames buffered before reading is paused
+     */
+    PlaybackStream(OutboundFrameQueue queue, ScheduledExecutorService pacer, Consumer<Boolean> readPause, int capacity) {
+        this.queue = queue;
+        this.pacer = pacer;
+        this.readPause = readPause;
+        this.capacity = Math.max(2, capacity);
+    }
+
+    /**
+     * Buffer a frame for its turn; the frame is retained until it is passed on or discarded
+     */
+    void offerFrame(LiveDataView frame) {
+        synchronized (this) {
+            if (closed || awaitingSeek) {
+                return;
+            }
+            buffer.addLast(frame.retain());
+            bufferedFrames++;
+            CameraTrack track = tracks.computeIfAbsent(frame.getCameraId(), id -> new CameraTrack());
+            if (isIntra(frame)) {
+                track.keyframes.trimBefore(releasedPosition);
+                track.keyframes.add(frame.getTimestampMillis(), appendedPosition);
+            }
+            appendedPosition++;
+            newestMillis = frame.getTimestampMillis();
+            if (bufferedFrames >= capacity && !readPaused) {
+                readPaused = true;
+                readPause.accept(true);
+            }
+        }
+        schedulePump(0);
+    }
+
+    /**
+     * Queue a control message behind the frames already buffered
+     */
+    void offerMessage(WebSocketMessage<?> message) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            buffer.addLast(message);
+        }
+        schedulePump(0);
+    }
+
+    /**
+     * Resume or pause the release of frames
+     */
+    void setPlaying(boolean playing) {
+        synchronized (this) {
+            this.playing = playing;
+            anchored = false;
+            if (!playing) {
+                cancelPending();
+                return;
+            }
+        }
+        schedulePump(0);
+    }
+
+    void setSpeed(RwcVaEnums.SpeedType speed) {
+        synchronized (this) {
+            speedFactor = speedFactor(speed);
+            anchored = false;
+            cancelPending();
+        }
+        schedulePump(0);
+    }
+
+    /**
+     * Skip ahead to the latest keyframe at or before the given time if every camera has one buffered
+     *
+     * @return false if the time is not covered by the buffer and the server has to seek
+     */
+    boolean seek(long timestampMillis) {
+        synchronized (this) {
+            if (closed || bufferedFrames == 0 || tracks.isEmpty() || timestampMillis > newestMillis) {
+                return false;
+            }
+            for (CameraTrack track : tracks.values()) {
+                if (track.keyframes.floorPosition(timestampMillis) < releasedPosition) {
+                    return false;
+                }
+            }
+            for (CameraTrack track : tracks.values()) {
+                track.skipBefore = track.keyframes.floorPosition(timestampMillis);
+            }
+            anchored = false;
+            cancelPending();
+        }
+        schedulePump(0);
+        return true;
+    }
+
+    synchronized boolean isPlaying() {
+        return playing;
+    }
+
+    synchronized int getBufferedFrames() {
+        return bufferedFrames;
+    }
+
+    /**
+     * Discard everything buffered, e.g. for a new request or after a reconnect, and resume reading
+     */
+    void reset() {
+        synchronized (this) {
+            discard();
+            tracks.clear();
+            awaitingSeek = false;
+            playing = true;
+        }
+    }
+
+    /**
+     * Discard everything buffered, keeping the play state, and refuse frames until the server
+     * confirms the seek with {@link #seekCompleted}, since frames already in flight are from before it
+     */
+    synchronized void awaitSeek() {
+        discard();
+        tracks.clear();
+        awaitingSeek = true;
+    }
+
+    synchronized void seekCompleted() {
+        awaitingSeek = false;
+    }
+
+    /**
+     * Discard everything buffered and refuse further frames
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            discard();
+            tracks.clear();
+        }
+    }
+
+    static int speedFactor(RwcVaEnums.SpeedType speed) {
+        switch (speed) {
+            case X2:
+                return 2;
+            case X4:
+                return 4;
+            case X8:
+                return 8;
+            case MAX:
+                return 0;
+            default:
+                return 1;
+        }
+    }
+
+    private void discard() {
+        cancelPending();
+        for (Object entry : buffer) {
+            if (entry instanceof LiveDataView) {
+                ((LiveDataView) entry).release();
+            }
+        }
+        buffer.clear();
+        bufferedFrames = 0;
+        releasedPosition = appendedPosition;
+        anchored = false;
+        if (readPaused) {
+            readPaused = false;
+            readPause.accept(false);
+        }
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void schedulePump(long delayNanos) {
+        synchronized (this) {
+            if (closed || !playing || pumping || pending != null || buffer.isEmpty()) {
+                return;
+            }
+            pending = pacer.schedule(this::pump, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void pump() {
+        boolean resume = false;
+        long waitNanos = -1;
+        synchronized (this) {
+            pending = null;
+            if (closed || !playing) {
+                return;
+            }
+            pumping = true;
+        }
+
+        try {
+            while (true) {
+                Object entry;
+                boolean forward = true;
+                synchronized (this) {
+                    entry = buffer.peekFirst();
+                    if (entry == null || !playing || closed) {
+                        break;
+                    }
+                    if (entry instanceof LiveDataView) {
+                        LiveDataView frame = (LiveDataView) entry;
+                        forward = shouldForward(frame);
+                        long wait = forward ? dueNanos(frame) - System.nanoTime() : 0;
+                        if (wait > 0) {
+                            waitNanos = wait;
+                            break;
+                        }
+                        bufferedFrames--;
+                        releasedPosition++;
+                        if (readPaused && bufferedFrames <= capacity / 2) {
+                            readPaused = false;
+                            resume = true;
+                        }
+                    }
+                    buffer.pollFirst();
+                }
+
+                if (resume) {
+                    resume = false;
+                    readPause.accept(false);
+                }
+                if (forward) {
+                    release(entry);
+                } else {
+                    ((LiveDataView) entry).release(); // 건너뛴 프레임은 기다리지 않고 버림
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error pacing playback frames", e);
+        } finally {
+            synchronized (this) {
+                pumping = false;
+            }
+        }
+
+        schedulePump(Math.max(0, waitNanos));
+    }
+
+    private void release(Object entry) {
+        if (entry instanceof LiveDataView) {
+            LiveDataView frame = (LiveDataView) entry;
+            try {
+                queue.offerFrame(frame);
+            } finally {
+                frame.release();
+            }
+        } else {
+            queue.offerMessage((WebSocketMessage<?>) entry);
+        }
+    }
+
+    /**
+     * Whether the frame at the head of the buffer is passed on or skipped; called with the lock held
+     */
+    private boolean shouldForward(LiveDataView frame) {
+        CameraTrack track = tracks.get(frame.getCameraId());
+        if (track == null) {
+            return true;
+        }
+        boolean intra = isIntra(frame);
+        boolean forward = releasedPosition >= track.skipBefore
+                && (intra || (!track.awaitKeyframe && !isKeyframesOnly()));
+        if (!forward) {
+            track.awaitKeyframe = true;
+        } else if (intra) {
+            track.awaitKeyframe = false;
+        }
+        return forward;
+    }
+
+    private boolean isKeyframesOnly() {
+        return speedFactor == 0 || speedFactor >= KEYFRAMES_ONLY_SPEED;
+    }
+
+    private static boolean isIntra(LiveDataView frame) {
+        return frame.isKeyframe();
+    }
+
+    /**
+     * Wall-clock time at which a frame is due; called with the lock held
+     */
+    private long dueNanos(LiveDataView frame) {
+        long media = frame.getTimestampMillis();
+        long now = System.nanoTime();
+        if (!anchored || media < lastMediaMillis || media - lastMediaMillis > MAX_GAP_MILLIS) {
+            // 재생/배속 변경, 녹화 공백이나 되감기: 이 프레임을 기준으로 다시 맞춤
+            anchored = true;
+            anchorNanos = now;
+            anchorMediaMillis = media;
+        }
+        lastMediaMillis = media;
+
+        if (speedFactor == 0) {
+            return now;
+        }
+        return anchorNanos + TimeUnit.MILLISECONDS.toNanos(media - anchorMediaMillis) / speedFactor;
+    }
+}
@@ -0,0 +1,427 @@
+package rexgen.videoproxy.websocket;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import rexgen.videoproxy.protocol.LiveDataView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Short-term disk spool of live frames per camera, so a viewer that reconnects can rewind a few
+ * seconds without a playback request to the server.
+ * <p>
+ * Frames are appended in their received layout (header, objects, extra data and payload) to
+ * fixed-size memory-mapped segment files, one sequence of segments per (server, camera). The caller
+ * only hands a retained frame to a dedicated writer thread, so opening and mapping segments and page
+ * faults never block ingest; rewinds and expiry run on the same thread, in order with the appends.
+ * Frames waiting for the writer are bounded in bytes: past the bound a camera's frames are skipped
+ * up to its next keyframe, and rewinds do not reach back across such a gap. Each camera keeps its keyframes in a {@link KeyframeIndex} over segment
+ * positions, so a rewind starts at the keyframe at or before the requested time, at most the maximum
+ * rewind back. A rewind only fixes its range; the frames are wrapped from the mapped bytes without
+ * copying as its reader consumes them, so a long rewind is never held in memory at once. Segments
+ * last written before the retention window are deleted by {@link #expire}. Segment files are never
+ * reused and stay mapped after deletion, so a rewind in progress and the frames it handed out stay
+ * valid. A retention of 0 disables the spool.
+ */
+class RecordingSpool {
+    private static final Logger LOGGER = Logger.getLogger(RecordingSpool.class.getName());
+
+    private final Path baseDirectory;
+    private final int segmentBytes;
+    private final long retentionMillis;
+    private final long maxRewindMillis;
+    private final long maxPendingBytes;
+    private final Executor writer;
+    private final LongSupplier clock;
+    private final Map<String, CameraSpool> cameras = new ConcurrentHashMap<>();
+    // 기록 대기 중인 프레임 크기 합과, 대기 한도를 넘어 다음 키프레임까지 건너뛰는 카메라
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final Set<String> camerasAwaitingKeyframe = ConcurrentHashMap.newKeySet();
+    private Path directory;
+    private volatile boolean closed;
+
+    /**
+     * @param baseDirectory directory in which this process creates its own spool directory
+     * @param segmentBytes size of each mapped segment file
+     * @param retentionMillis how long written segments are kept, or 0 to disable the spool
+     * @param maxRewindMillis longest rewind a viewer can ask for
+     * @param maxPendingBytes bytes of frames that may wait for the writer thread
+     */
+    RecordingSpool(Path baseDirectory, int segmentBytes, long retentionMillis, long maxRewindMillis,
+                   long maxPendingBytes) {
+        // 사용하지 않으면 기록 스레드도 만들지 않음
+        this(baseDirectory, segmentBytes, retentionMillis, maxRewindMillis, maxPendingBytes,
+                retentionMillis > 0 && segmentBytes > 0
+                        ? Executors.newSingleThreadExecutor(new CustomizableThreadFactory("video-spool-writer-"))
+                        : Runnable::run,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * @param writer runs appends, rewinds and expiry one at a time in submission order
+     */
+    RecordingSpool(Path baseDirectory, int segmentBytes, long retentionMillis, long maxRewindMillis,
+                   long maxPendingBytes, Executor writer, LongSupplier clock) {
+        this.baseDirectory = baseDirectory;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retentionMillis;
+        this.maxRewindMillis = maxRewindMillis;
+        this.maxPendingBytes = maxPendingBytes;
+        this.writer = writer;
+        this.clock = clock;
+    }
+
+    boolean isEnabled() {
+        return retentionMillis > 0 && segmentBytes > 0;
+    }
+
+    /**
+     * Hand a live frame of a camera on an upstream to the writer without blocking; calls for one
+     * camera must not overlap
+     */
+    void append(String upstreamKey, LiveDataView frame) {
+        if (!isEnabled() || closed) {
+            return;
+        }
+        String cameraKey = cameraKey(upstreamKey, frame.getCameraId());
+        boolean afterGap = camerasAwaitingKeyframe.contains(cameraKey);
+        if (afterGap && !frame.isKeyframe()) {
+            return;
+        }
+        int size = frame.getFrameSize();
+        if (pendingBytes.addAndGet(size) > maxPendingBytes) {
+            // 기록이 밀리면 이 카메라는 다음 키프레임부터 다시 기록
+            pendingBytes.addAndGet(-size);
+            if (camerasAwaitingKeyframe.add(cameraKey)) {
+                LOGGER.warning("Spool writer is behind, skipping " + cameraKey + " up to its next keyframe");
+            }
+            return;
+        }
+        camerasAwaitingKeyframe.remove(cameraKey);
+
+        frame.retain();
+        boolean submitted = execute(() -> {
+            try {
+                // compute 안에서 추가해 만료로 제거되는 카메라에 쓰지 않도록 함
+                cameras.compute(cameraKey, (key, camera) -> {
+                    if (camera == null) {
+                        camera = new CameraSpool(key);
+                    }
+                    camera.append(frame, afterGap);
+                    return camera;
+                });
+            } finally {
+                pendingBytes.addAndGet(-size);
+                frame.release();
+            }
+        });
+        if (!submitted) {
+            pendingBytes.addAndGet(-size);
+            frame.release();
+        }
+    }
+
+    /**
+     * Open a camera's spooled frames from the keyframe at or before {@code rewindMillis} (at most the
+     * maximum rewind) before its newest frame, or from the oldest keyframe kept, up to the newest
+     * frame appended before this call. The returned iterator reads the frames lazily and may be used
+     * on any thread; the caller releases each frame it takes.
+     *
+     * @param consumer receives the frames, or null if nothing is spooled for the camera; called on
+     *                 the writer thread once the earlier appends are written
+     */
+    void rewind(String upstreamKey, int cameraId, long rewindMillis, Consumer<Iterator<LiveDataView>> consumer) {
+        String cameraKey = cameraKey(upstreamKey, cameraId);
+        long limitedMillis = Math.min(rewindMillis, maxRewindMillis);
+        boolean submitted = isEnabled() && !closed && execute(() -> {
+            CameraSpool camera = cameras.get(cameraKey);
+            consumer.accept(camera != null ? camera.rewind(limitedMillis) : null);
+        });
+        if (!submitted) {
+            consumer.accept(null);
+        }
+    }
+
+    /**
+     * Delete segments last written before the retention window, on the writer thread
+     */
+    void expire() {
+        if (!isEnabled() || closed) {
+            return;
+        }
+        execute(() -> {
+            long cutoff = clock.getAsLong() - retentionMillis;
+            for (String key : cameras.keySet()) {
+                cameras.computeIfPresent(key, (k, camera) -> camera.expire(cutoff) ? null : camera);
+            }
+        });
+    }
+
+    /**
+     * Stop the writer after the appends already handed to it and delete every segment
+     */
+    void close() {
+        closed = true;
+        if (writer instanceof ExecutorService service) {
+            service.shutdown();
+            try {
+                if (!service.awaitTermination(5, TimeUnit.SECONDS)) {
+                    LOGGER.warning("Spool writer did not finish within 5 seconds");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (String key : cameras.keySet()) {
+            cameras.computeIfPresent(key, (k, camera) -> camera.expire(Long.MAX_VALUE) ? null : camera);
+        }
+        synchronized (this) {
+            if (directory != null) {
+                try {
+                    Files.deleteIfExists(directory);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to delete spool directory " + directory, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of segment files currently kept
+     */
+    int getSegmentCount() {
+        int count = 0;
+        for (CameraSpool camera : cameras.values()) {
+            count += camera.getSegmentCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return false if the writer has been shut down
+     */
+    private boolean execute(Runnable task) {
+        try {
+            writer.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static String cameraKey(String upstreamKey, int cameraId) {
+        return upstreamKey + "/" + cameraId;
+    }
+
+    private synchronized Path directory() throws IOException {
+        if (directory == null) {
+            Files.createDirectories(baseDirectory);
+            directory = Files.createTempDirectory(baseDirectory, "spool-");
+        }
+        return directory;
+    }
+
+    /**
+     * Segments and keyframe index of one camera
+     */
+    private final class CameraSpool {
+        private final String filePrefix;
+        private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+        // 위치: 세그먼트 번호 << 32 | 세그먼트 안의 오프셋
+        private final KeyframeIndex keyframes = new KeyframeIndex();
+        private int nextSequence;
+        private long newestMillis;
+
+        CameraSpool(String key) {
+            this.filePrefix = key.replaceAll("[^A-Za-z0-9.-]", "_");
+        }
+
+        /**
+         * @param afterGap whether frames before this one were skipped; earlier keyframes are then not
+         *                 used as rewind starts
+         */
+        synchronized void append(LiveDataView frame, boolean afterGap) {
+            int recordSize = Integer.BYTES + frame.getFrameSize();
+            if (recordSize > segmentBytes) {
+                LOGGER.fine(() -> "Frame of " + recordSize + " bytes does not fit a spool segment, skipped");
+                return;
+            }
+
+            Segment current = segments.peekLast();
+            if (current == null || current.remaining() < recordSize) {
+                try {
+                    current = Segment.open(directory().resolve(String.format("%s-%06d.seg", filePrefix, nextSequence)),
+                            nextSequence, segmentBytes);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to open spool segment for " + filePrefix, e);
+                    return;
+                }
+                nextSequence++;
+                segments.addLast(current);
+            }
+
+            long position = ((long) current.sequence << 32) | current.writeOffset;
+            current.write(frame, clock.getAsLong());
+            if (afterGap) {
+                keyframes.clear();
+            }
+            if (frame.isKeyframe()) {
+                keyframes.add(frame.getTimestampMillis(), position);
+            }
+            newestMillis = frame.getTimestampMillis();
+        }
+
+        /**
+         * @return the frames from the starting keyframe to the current end, or null if there is no keyframe
+         */
+        synchronized Iterator<LiveDataView> rewind(long rewindMillis) {
+            long start = keyframes.floorPosition(newestMillis - rewindMillis);
+            if (start < 0) {
+                start = keyframes.firstPosition();
+            }
+            if (start < 0) {
+                return null;
+            }
+
+            // 범위만 고정하고 읽기는 반복자를 쓰는 스레드가 담당
+            int sequence = (int) (start >>> 32);
+            Segment[] range = segments.stream().filter(segment -> segment.sequence >= sequence).toArray(Segment[]::new);
+            int[] ends = new int[range.length];
+            for (int i = 0; i < range.length; i++) {
+                ends[i] = range[i].writeOffset;
+            }
+            return new Rewind(range, ends, (int) start);
+        }
+
+        /**
+         * @return true if no segments remain
+         */
+        synchronized boolean expire(long cutoffMillis) {
+            while (!segments.isEmpty() && segments.peekFirst().lastWriteMillis < cutoffMillis) {
+                segments.pollFirst().delete();
+            }
+            if (segments.isEmpty()) {
+                keyframes.clear();
+                return true;
+            }
+            keyframes.trimBefore((long) segments.peekFirst().sequence << 32);
+            return false;
+        }
+
+        synchronized int getSegmentCount() {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Frames of a fixed range of segments, wrapped from the mapping one at a time
+     */
+    private static final class Rewind implements Iterator<LiveDataView> {
+        private final Segment[] segments;
+        // 세그먼트별 끝 오프셋 (범위를 연 시점의 쓰기 위치)
+        private final int[] ends;
+        private int index;
+        private int offset;
+
+        Rewind(Segment[] segments, int[] ends, int offset) {
+            this.segments = segments;
+            this.ends = ends;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index < segments.length && offset >= ends[index]) {
+                index++;
+                offset = 0;
+            }
+            return index < segments.length;
+        }
+
+        @Override
+        public LiveDataView next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Segment segment = segments[index];
+            int size = segment.map.getInt(offset);
+            LiveDataView frame = segment.read(offset + Integer.BYTES, size);
+            offset += Integer.BYTES + size;
+            return frame;
+        }
+    }
+
+    /**
+     * One mapped segment file: records of a 4-byte length followed by the frame
+     */
+    private static final class Segment {
+        final int sequence;
+        final Path path;
+        final MappedByteBuffer map;
+        int writeOffset;
+        long lastWriteMillis;
+
+        private Segment(int sequence, Path path, MappedByteBuffer map) {
+            this.sequence = sequence;
+            this.path = path;
+            this.map = map;
+        }
+
+        static Segment open(Path path, int sequence, int size) throws IOException {
+            // 매핑은 채널을 닫은 뒤에도 유효
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        int remaining() {
+            return map.capacity() - writeOffset;
+        }
+
+        void write(LiveDataView frame, long nowMillis) {
+            int size = frame.getFrameSize();
+            map.putInt(writeOffset, size);
+            ByteBuffer target = map.duplicate();
+            target.position(writeOffset + Integer.BYTES);
+            frame.copyTo(target);
+            writeOffset += Integer.BYTES + size;
+            lastWriteMillis = nowMillis;
+        }
+
+        LiveDataView read(int offset, int size) {
+            ByteBuffer record = map.duplicate();
+            record.position(offset).limit(offset + size);
+            return LiveDataView.wrap(record.slice());
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete spool segment " + path, e);
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import rexgen.videoproxy.tcp.RwcVaClientRuntime;
+import rexgen.videoproxy.tcp.RwcVaNettyTransport;
 import rexgen.videoproxy.tcp.RwcVaTcpClient;
 
 import java.io.IOException;
@@ -19,6 +21,17 @@ class TcpClientManager {
 
     private final Map<String, RwcVaTcpClient> clients = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RwcVaNettyTransport nettyTransport;
+    private final RwcVaClientRuntime runtime;
+
+    /**
+     * @param nettyTransport shared event-loop transport, or null for socket receive threads
+     * @param runtime shared scheduler and receive executor, or null for per-client threads
+     */
+    public TcpClientManager(RwcVaNettyTransport nettyTransport, RwcVaClientRuntime runtime) {
+        this.nettyTransport = nettyTransport;
+        this.runtime = runtime;
+    }
 
     /**
      * Get or create a TCP client for a session
@@ -29,7 +42,7 @@ class TcpClientManager {
         return clients.computeIfAbsent(sessionId, id -> {
             LOGGER.info("Creating new TCP client for session: " + sessionId + " to " + serverIp + ":" + serverPort);
 
-            RwcVaTcpClient client = new RwcVaTcpClient(sessionId, serverIp, serverPort);
+            RwcVaTcpClient client = new RwcVaTcpClient(sessionId, serverIp, serverPort, nettyTransport, runtime);
 
             // Default error handler
             client.setOnInternalError(error -> {
@@ -50,6 +63,14 @@ class TcpClientManager {
         });
     }
 
+    /**
+     * Create a client that is not bound to a session, using the configured transport
+     */
+    public RwcVaTcpClient createClient(String clientKey, String serverIp, int serverPort) {
+        LOGGER.info("Creating new TCP client " + clientKey + " to " + serverIp + ":" + serverPort);
+        return new RwcVaTcpClient(clientKey, serverIp, serverPort, nettyTransport, runtime);
+    }
+
     /**
      * Close and remove a client for a session
      */
@@ -0,0 +1,194 @@
+package rexgen.videoproxy.websocket;
+
+import rexgen.videoproxy.protocol.RecordTimeline;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Record ranges and timelines shared by all control sessions, cached per (server, camera, month).
+ * <p>
+ * Months are evicted least recently used beyond a fixed count and expire as a whole after a TTL, so
+ * recordings added since are picked up. Concurrent requests for the same range or day join a single
+ * upstream request, which completes when its response is {@link #putRange put} by whichever session's
+ * client received it. A day the cached range marks as unrecorded is answered without asking.
+ */
+class TimelineCache {
+    // 응답이 오지 않는 요청을 기다리는 최대 시간
+    static final long REQUEST_TIMEOUT_SECONDS = 10;
+
+    private final int maxMonths;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final VideoProxyMetrics metrics;
+
+    private final LinkedHashMap<String, Month> months;
+    private final Map<String, CompletableFuture<RecordTimeline.Range>> pendingRanges = new HashMap<>();
+    private final Map<String, CompletableFuture<RecordTimeline.Day>> pendingDays = new HashMap<>();
+
+    /**
+     * Cached range and loaded timelines of one camera's month
+     */
+    private static final class Month {
+        final long loadedNanos;
+        RecordTimeline.Range range;
+        final RecordTimeline.Day[] days = new RecordTimeline.Day[RwcVaConstants.RANGE_MONTH];
+
+        Month(long loadedNanos) {
+            this.loadedNanos = loadedNanos;
+        }
+    }
+
+    TimelineCache(int maxMonths, long ttlSeconds, VideoProxyMetrics metrics) {
+        this(maxMonths, ttlSeconds, metrics, System::nanoTime);
+    }
+
+    TimelineCache(int maxMonths, long ttlSeconds, VideoProxyMetrics metrics, LongSupplier clock) {
+        this.maxMonths = Math.max(1, maxMonths);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.metrics = metrics;
+        this.clock = clock;
+        // 접근 순서 유지: 가장 오래 쓰이지 않은 달부터 제거
+        this.months = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Month> eldest) {
+                return size() > TimelineCache.this.maxMonths;
+            }
+        };
+    }
+
+    static String monthKey(String upstreamKey, int cameraId, int year, int month) {
+        return upstreamKey + "/" + cameraId + "/" + year + "-" + month;
+    }
+
+    /**
+     * Cached record range, or a request joined to the one already sent; {@code send} is called only
+     * when no request is outstanding and returns false if it could not be sent
+     */
+    CompletableFuture<RecordTimeline.Range> getRange(String upstreamKey, int cameraId, int year, int month,
+                                                     BooleanSupplier send) {
+        String key = monthKey(upstreamKey, cameraId, year, month);
+        synchronized (this) {
+            Month cached = fresh(key);
+            if (cached != null && cached.range != null) {
+                metrics.timelineLookup(true);
+                return CompletableFuture.completedFuture(cached.range);
+            }
+            metrics.timelineLookup(false);
+        }
+        return join(pendingRanges, key, send);
+    }
+
+    /**
+     * Cached timeline of a day, or a request joined to the one already sent
+     */
+    CompletableFuture<RecordTimeline.Day> getDay(String upstreamKey, int cameraId, int year, int month, int day,
+                                                 BooleanSupplier send) {
+        if (day < 1 || day >= RwcVaConstants.RANGE_MONTH) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid day: " + day));
+        }
+        String key = monthKey(upstreamKey, cameraId, year, month);
+        synchronized (this) {
+            Month cached = fresh(key);
+            RecordTimeline.Day loaded = cached != null ? cached.days[day] : null;
+            if (loaded == null && cached != null && cached.range != null && !cached.range.hasRecord(day)) {
+                // 범위에 없는 날은 서버에 묻지 않음
+                loaded = RecordTimeline.Day.empty(cameraId, year, month, day);
+            }
+            metrics.timelineLookup(loaded != null);
+            if (loaded != null) {
+                return CompletableFuture.completedFuture(loaded);
+            }
+        }
+        return join(pendingDays, key + "/" + day, send);
+    }
+
+    /**
+     * Store a received record range and complete the requests waiting for it
+     */
+    void putRange(String upstreamKey, RecordTimeline.Range range) {
+        String key = monthKey(upstreamKey, range.getCameraId(), range.getYear(), range.getMonth());
+        CompletableFuture<RecordTimeline.Range> waiting;
+        synchronized (this) {
+            monthForUpdate(key).range = range;
+            waiting = pendingRanges.remove(key);
+        }
+        if (waiting != null) {
+            waiting.complete(range);
+        }
+    }
+
+    /**
+     * Store a received timeline and complete the requests waiting for it
+     */
+    void putDay(String upstreamKey, RecordTimeline.Day day) {
+        if (day.getDay() < 1 || day.getDay() >= RwcVaConstants.RANGE_MONTH) {
+            return;
+        }
+        String key = monthKey(upstreamKey, day.getCameraId(), day.getYear(), day.getMonth());
+        CompletableFuture<RecordTimeline.Day> waiting;
+        synchronized (this) {
+            monthForUpdate(key).days[day.getDay()] = day;
+            waiting = pendingDays.remove(key + "/" + day.getDay());
+        }
+        if (waiting != null) {
+            waiting.complete(day);
+        }
+    }
+
+    synchronized int size() {
+        return months.size();
+    }
+
+    /**
+     * Month entry if present and not expired; called with the lock held
+     */
+    private Month fresh(String key) {
+        Month cached = months.get(key);
+        if (cached != null && clock.getAsLong() - cached.loadedNanos > ttlNanos) {
+            months.remove(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private Month monthForUpdate(String key) {
+        Month cached = fresh(key);
+        if (cached == null) {
+            cached = new Month(clock.getAsLong());
+            months.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Join the outstanding request for a key or send a new one outside the lock
+     */
+    private <T> CompletableFuture<T> join(Map<String, CompletableFuture<T>> pending, String key, BooleanSupplier send) {
+        CompletableFuture<T> request;
+        synchronized (this) {
+            CompletableFuture<T> outstanding = pending.get(key);
+            if (outstanding != null) {
+                return outstanding;
+            }
+            request = new CompletableFuture<>();
+            pending.put(key, request);
+        }
+
+        request.orTimeout(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS).whenComplete((value, error) -> {
+            synchronized (this) {
+                pending.remove(key, request);
+            }
+        });
+        if (!send.getAsBoolean()) {
+            request.completeExceptionally(new IllegalStateException("Failed to send request for " + key));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,145 @@
+package rexgen.videoproxy.websocket;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import rexgen.videoproxy.tcp.RwcVaClientMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports ingest and egress counters to Micrometer (exposed through the Actuator metrics endpoint).
+ * <p>
+ * The hot paths only add to {@link LongAdder}s; meters are function counters, timers and gauges that
+ * sum the adders when the registry is scraped, so rates such as bytes/s and frames/s are derived by
+ * the monitoring system. Upstream meters are tagged with the server ({@code upstream=ip:port}) and
+ * removed when the upstream closes.
+ */
+class VideoProxyMetrics {
+    private final MeterRegistry registry;
+
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder queuedFrames = new LongAdder();
+    private final LongAdder sendCount = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final LongAdder timelineHits = new LongAdder();
+    private final LongAdder timelineMisses = new LongAdder();
+
+    private final Map<String, UpstreamMeters> upstreams = new ConcurrentHashMap<>();
+
+    /**
+     * Meters registered for one upstream and its per-camera frame counters
+     */
+    private static final class UpstreamMeters {
+        final List<Meter> meters = new CopyOnWriteArrayList<>();
+        final Map<Integer, LongAdder> cameraFrames = new ConcurrentHashMap<>();
+    }
+
+    VideoProxyMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        FunctionCounter.builder("videoproxy.ws.frames.sent", sendCount, LongAdder::sum)
+                .description("Frames written to video WebSocket sessions").register(registry);
+        FunctionCounter.builder("videoproxy.ws.frames.dropped", droppedFrames, LongAdder::sum)
+                .description("Frames dropped because a session could not keep up").register(registry);
+        Gauge.builder("videoproxy.ws.queue.depth", queuedFrames, LongAdder::sum)
+                .description("Frames waiting in all session send queues").register(registry);
+        FunctionTimer.builder("videoproxy.ws.send", this,
+                        m -> m.sendCount.sum(), m -> m.sendNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time to encode and write one frame to a session").register(registry);
+        FunctionCounter.builder("videoproxy.timeline.cache", timelineHits, LongAdder::sum)
+                .description("Record range and timeline lookups").tag("result", "hit").register(registry);
+        FunctionCounter.builder("videoproxy.timeline.cache", timelineMisses, LongAdder::sum)
+                .description("Record range and timeline lookups").tag("result", "miss").register(registry);
+    }
+
+    /**
+     * Register the ingest meters of an upstream's client
+     */
+    void bindUpstream(String upstreamKey, RwcVaClientMetrics client) {
+        Tags tags = Tags.of("upstream", upstreamKey);
+        UpstreamMeters meters = new UpstreamMeters();
+        List<Meter> list = meters.meters;
+
+        list.add(FunctionCounter.builder("videoproxy.upstream.bytes", client, RwcVaClientMetrics::getBytesReceived)
+                .baseUnit("bytes").tags(tags).register(registry));
+        list.add(FunctionCounter.builder("videoproxy.upstream.packets", client, RwcVaClientMetrics::getPacketsReceived)
+                .tags(tags).register(registry));
+        list.add(FunctionCounter.builder("videoproxy.upstream.frames", client, RwcVaClientMetrics::getFramesReceived)
+                .tags(tags).register(registry));
+        list.add(FunctionCounter.builder("videoproxy.upstream.reconnects", client, RwcVaClientMetrics::getReconnects)
+                .tags(tags).register(registry));
+        list.add(timer("videoproxy.upstream.frame.reassembly", client.getFrameReassembly(), tags));
+        list.add(timer("videoproxy.upstream.frame.parse", client.getFrameParse(), tags));
+        list.add(timer("videoproxy.upstream.heartbeat.rtt", client.getHeartbeatRtt(), tags));
+
+        UpstreamMeters previous = upstreams.put(upstreamKey, meters);
+        if (previous != null) {
+            remove(previous);
+        }
+    }
+
+    /**
+     * Remove every meter of an upstream
+     */
+    void unbindUpstream(String upstreamKey) {
+        UpstreamMeters meters = upstreams.remove(upstreamKey);
+        if (meters != null) {
+            remove(meters);
+        }
+    }
+
+    /**
+     * Frame counter of one camera on an upstream, registered on first use
+     */
+    LongAdder cameraFrames(String upstreamKey, int cameraId) {
+        UpstreamMeters meters = upstreams.get(upstreamKey);
+        if (meters == null) {
+            return new LongAdder(); // 등록되지 않은 업스트림은 집계만 하고 내보내지 않음
+        }
+        return meters.cameraFrames.computeIfAbsent(cameraId, id -> {
+            LongAdder frames = new LongAdder();
+            meters.meters.add(FunctionCounter.builder("videoproxy.upstream.camera.frames", frames, LongAdder::sum)
+                    .tags(Tags.of("upstream", upstreamKey, "camera", Integer.toString(id)))
+                    .register(registry));
+            return frames;
+        });
+    }
+
+    void queueDepthChanged(int delta) {
+        queuedFrames.add(delta);
+    }
+
+    void frameDropped() {
+        droppedFrames.increment();
+    }
+
+    void timelineLookup(boolean hit) {
+        (hit ? timelineHits : timelineMisses).increment();
+    }
+
+    void frameSent(long nanos) {
+        sendCount.increment();
+        sendNanos.add(nanos);
+    }
+
+    private FunctionTimer timer(String name, RwcVaClientMetrics.Timing timing, Tags tags) {
+        return FunctionTimer.builder(name, timing, RwcVaClientMetrics.Timing::getCount,
+                        RwcVaClientMetrics.Timing::getTotalNanos, TimeUnit.NANOSECONDS)
+                .tags(tags).register(registry);
+    }
+
+    private void remove(UpstreamMeters meters) {
+        for (Meter meter : meters.meters) {
+            registry.remove(meter);
+        }
+    }
+}
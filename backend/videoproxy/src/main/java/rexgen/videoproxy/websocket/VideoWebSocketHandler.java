@@ -2,7 +2,7 @@ package rexgen.videoproxy.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import rexgen.videoproxy.protocol.*;
-import rexgen.videoproxy.tcp.RwcVaTcpClient;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -11,14 +11,10 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,29 +25,37 @@ import java.util.logging.Logger;
 class VideoWebSocketHandler extends TextWebSocketHandler {
     private static final Logger LOGGER = Logger.getLogger(VideoWebSocketHandler.class.getName());
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, VideoViewer> sessions = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final ScheduledExecutorService videoRefreshExecutor = Executors.newSingleThreadScheduledExecutor();
-
-    private final TcpClientManager tcpClientManager;
-    private final Map<String, List<Integer>> sessionCameraIds = new ConcurrentHashMap<>();
-
-    public VideoWebSocketHandler(TcpClientManager tcpClientManager) {
-        this.tcpClientManager = tcpClientManager;
+    // 세션별 송신 큐를 비우는 작업자 (한 세션에 동시에 하나만 실행됨)
+    private final ExecutorService videoSendExecutor =
+            Executors.newCachedThreadPool(new CustomizableThreadFactory("video-ws-writer-"));
+
+    private final LiveUpstreamManager liveUpstreamManager;
+    private final int sendQueueCapacity;
+    private final VideoProxyMetrics metrics;
+
+    public VideoWebSocketHandler(LiveUpstreamManager liveUpstreamManager, int sendQueueCapacity,
+                                 VideoProxyMetrics metrics) {
+        this.liveUpstreamManager = liveUpstreamManager;
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.metrics = metrics;
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         LOGGER.info("New video WebSocket connection: " + session.getId());
-        sessions.put(session.getId(), session);
+        sessions.put(session.getId(), new VideoViewer(session));
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         LOGGER.info("Video WebSocket connection closed: " + session.getId());
-        sessions.remove(session.getId());
-        sessionCameraIds.remove(session.getId());
-        tcpClientManager.removeClient(session);
+        VideoViewer viewer = sessions.remove(session.getId());
+        liveUpstreamManager.detach(session.getId());
+        if (viewer != null) {
+            viewer.close();
+        }
     }
 
     @Override
@@ -67,6 +71,15 @@ class VideoWebSocketHandler extends TextWebSocketHandler {
                 case "liveInfo":
                     handleLiveInfoRequest(session, request);
                     break;
+                case "subscribe":
+                    handleSubscriptionRequest(session, request, true);
+                    break;
+                case "unsubscribe":
+                    handleSubscriptionRequest(session, request, false);
+                    break;
+                case "stats":
+                    handleStatsRequest(session);
+                    break;
                 default:
                     LOGGER.warning("Unknown request type: " + type);
                     break;
@@ -85,134 +98,19 @@ class VideoWebSocketHandler extends TextWebSocketHandler {
 
         LOGGER.info("Handling video connect request to " + serverIp + ":" + serverPort);
 
-        RwcVaTcpClient client = tcpClientManager.getClient(session, serverIp, serverPort);
-
-        // Set up LiveData handler first
-        client.setOnLiveData(liveData -> {
-            try {
-                // Send metadata as text message
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("type", "liveData");
-                metadata.put("cameraId", liveData.getCameraId());
-                metadata.put("timestamp", liveData.getTimestamp().getTime());
-                metadata.put("codec", liveData.getCodec().name());
-                metadata.put("intraCode", liveData.getIntraCode().name());
-                metadata.put("endpoint", "video"); // 추가
-
-                // Add object detection info
-                List<Map<String, Object>> objects = new ArrayList<>();
-                for (ObjectInfo obj : liveData.getObjects()) {
-                    Map<String, Object> objMap = new HashMap<>();
-                    objMap.put("type", obj.getType().name());
-                    objMap.put("x", obj.getX());
-                    objMap.put("y", obj.getY());
-                    objMap.put("width", obj.getWidth());
-                    objMap.put("height", obj.getHeight());
-                    objMap.put("detectionScore", obj.getDetectionScore());
-                    objects.add(objMap);
-                }
-                metadata.put("objects", objects);
-
-                LOGGER.info("📤 Sending metadata for camera " + liveData.getCameraId() +
-                        ", objects: " + liveData.getObjects().size() +
-                        ", dataSize: " + (liveData.getData() != null ? liveData.getData().length : 0));
-
-                session.sendMessage(new TextMessage(
-                        objectMapper.writeValueAsString(metadata)
-                ));
-
-                // Send video data as binary message
-                if (liveData.getData() != null && liveData.getData().length > 0) {
-                    // 수정된 코드: 여유 있게 할당 (최소 1KB 추가). 여유 안 주면 에러 발생
-                    ByteBuffer buffer = ByteBuffer.allocate(8 + liveData.getData().length + 1024);
-
-
-                    // Include codec and extraDataSize in binary header
-                    buffer.putInt(liveData.getCodec().getValue());
-                    buffer.putInt(liveData.getExtraDataSize());
-                    // Add extra data if present
-                    if (liveData.getExtraData() != null && liveData.getExtraData().length > 0) {
-                        // Resize buffer if needed
-                        if (buffer.remaining() < liveData.getExtraData().length) {
-                            ByteBuffer newBuffer = ByteBuffer.allocate(
-                                    buffer.position() + liveData.getExtraData().length + liveData.getData().length
-                            );
-                            buffer.flip();
-                            newBuffer.put(buffer);
-                            buffer = newBuffer;
-                        }
-
-                        buffer.put(liveData.getExtraData());
-                    }
-
-                    // Add video data
-                    buffer.put(liveData.getData());
-
-                    buffer.flip();
-                    LOGGER.info("📤 Sending video binary data: " + buffer.remaining() + " bytes");
-                    session.sendMessage(new BinaryMessage(buffer));
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error sending live data", e);
-            }
-        });
-
-        // Set up connection change handler
-        client.setOnConnectChange(connected -> {
-            try {
-                LOGGER.info("Video TCP connection status changed: " + connected);
-                Map<String, Object> connectionMessage = new HashMap<>();
-                connectionMessage.put("type", "connection");
-                connectionMessage.put("connected", connected);
-                connectionMessage.put("endpoint", "video"); // 추가
-
-                session.sendMessage(new TextMessage(
-                        objectMapper.writeValueAsString(connectionMessage)
-                ));
-
-                // If connection established, send init command
-                if (connected) {
-                    boolean sent = client.sendInitConnect(RwcVaEnums.ConnectType.LIVE);
-                    if (sent) {
-                        LOGGER.info("Sent video init connect after connection established");
-                    } else {
-                        LOGGER.warning("Failed to send video init connect");
-                    }
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error sending connection status", e);
-            }
-        });
-
-        // Set up init response handler
-        client.setInitResponseHandler(initSuccess -> {
-            try {
-                if (initSuccess) {
-                    LOGGER.info("Video connection initialized with valid clientKey: " + client.getServerClientKey());
-
-                    // Send connectionReady message after initialization
-                    Map<String, Object> readyMessage = new HashMap<>();
-                    readyMessage.put("type", "connectionReady");
-                    readyMessage.put("connected", true);
-                    readyMessage.put("clientKey", client.getServerClientKey());
-                    readyMessage.put("endpoint", "video"); // 추가
-
-                    session.sendMessage(new TextMessage(
-                            objectMapper.writeValueAsString(readyMessage)
-                    ));
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error sending connection ready message", e);
-            }
-        });
+        VideoViewer viewer = sessions.get(session.getId());
+        if (viewer == null) {
+            LOGGER.warning("No viewer for video session: " + session.getId());
+            return;
+        }
 
-        // Connect to TCP server
-        client.connect().thenAccept(connected -> {
-            LOGGER.info("Video TCP client connected successfully: " + connected);
+        // format=binary: 메타데이터와 영상을 하나의 바이너리 메시지로 전송
+        viewer.binaryEnvelope = "binary".equals(request.get("format"));
+        // codecConfig=true: H.264 SPS/PPS는 바뀔 때만 avcC로 보내고, 보낸 뒤에는 바이너리 프레임에서 제외
+        viewer.codecConfig = viewer.binaryEnvelope && Boolean.TRUE.equals(request.get("codecConfig"));
 
-            // Setup periodic refresh for active sessions
-            setupPeriodicRefresh(session, client);
-        });
+        // 같은 서버를 보는 세션들은 하나의 TCP 연결을 공유 (주기적 갱신도 업스트림 단위)
+        liveUpstreamManager.attach(viewer, serverIp, serverPort);
     }
 
     /**
@@ -226,103 +124,279 @@ class VideoWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        // Store camera IDs for this session
-        sessionCameraIds.put(session.getId(), new ArrayList<>(cameraIds));
+        VideoViewer viewer = sessions.get(session.getId());
+        if (viewer == null) {
+            LOGGER.warning("No viewer for video session: " + session.getId());
+            return;
+        }
 
-        String serverIp = (String) request.get("serverIp");
-        int serverPort = ((Number) request.get("serverPort")).intValue();
+        LiveUpstream upstream = resolveUpstream(viewer, request);
+        if (upstream == null) {
+            viewer.sendError("Not connected to a video server");
+            return;
+        }
 
-        RwcVaTcpClient client = tcpClientManager.getClient(session, serverIp, serverPort);
-
-        if (client.isConnected()) {
-            // Only send if client has valid clientKey
-            if (client.getServerClientKey() != 0) {
-                long clientKey = client.getServerClientKey();
-                LOGGER.info("Sending live info request for cameras: " + cameraIds + " with clientKey: " + clientKey);
-                boolean sent = client.sendLiveInfo(cameraIds);
-                if (!sent) {
-                    LOGGER.warning("Failed to send live info request");
-
-                    // 실패 메시지 전송
-                    try {
-                        Map<String, Object> errorMessage = new HashMap<>();
-                        errorMessage.put("type", "error");
-                        errorMessage.put("message", "Failed to send live info request");
-                        errorMessage.put("endpoint", "video");
-
-                        session.sendMessage(new TextMessage(
-                                objectMapper.writeValueAsString(errorMessage)
-                        ));
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "Error sending error message", e);
-                    }
-                }
-            } else {
-                LOGGER.warning("Client has no valid clientKey, cannot send LiveInfo request");
-                // Try to re-initialize connection
-                boolean sent = client.sendInitConnect(RwcVaEnums.ConnectType.LIVE);
-                if (sent) {
-                    LOGGER.info("Re-initializing connection for live info request");
+        LOGGER.info("Updating live info for session " + session.getId() + ", cameras: " + cameraIds);
+        boolean sent = upstream.updateCameras(session.getId(), cameraIds);
+        if (!sent) {
+            LOGGER.warning("Failed to send live info request");
+
+            // 실패 메시지 전송
+            viewer.sendError("Failed to send live info request");
+        }
+    }
+
+    /**
+     * Handle subscribe / unsubscribe request for one camera ("cameraId") or several ("cameraIds").
+     * Only the first viewer of a camera or the last one leaving changes the upstream subscription.
+     * A subscribe may ask to rewind ("rewindSeconds", capped by the spool) through the recording spool,
+     * e.g. after a reconnect.
+     */
+    private void handleSubscriptionRequest(WebSocketSession session, Map<String, Object> request, boolean subscribe) {
+        List<Integer> cameraIds = new ArrayList<>();
+        if (request.get("cameraId") instanceof Number cameraId) {
+            cameraIds.add(cameraId.intValue());
+        }
+        if (request.get("cameraIds") instanceof List<?> ids) {
+            for (Object id : ids) {
+                if (id instanceof Number number) {
+                    cameraIds.add(number.intValue());
                 }
             }
-        } else {
-            LOGGER.warning("Client not connected for session: " + session.getId());
-
-            // Try to connect then send request
-            client.connect().thenAccept(connected -> {
-                if (connected) {
-                    // Set up a one-time handler to send LiveInfo after initialization
-                    Consumer<Boolean> oneTimeHandler = new Consumer<Boolean>() {
-                        @Override
-                        public void accept(Boolean initSuccess) {
-                            if (initSuccess) {
-                                LOGGER.info("Sending delayed live info request for cameras: " + cameraIds);
-                                boolean sent = client.sendLiveInfo(cameraIds);
-                                if (!sent) {
-                                    LOGGER.warning("Failed to send delayed live info request");
-                                }
-                            }
-                            client.removeInitResponseHandler(this);
-                        }
-                    };
-
-                    client.setInitResponseHandler(oneTimeHandler);
-                    client.sendInitConnect(RwcVaEnums.ConnectType.LIVE);
-                } else {
-                    LOGGER.warning("Failed to connect for delayed live info request");
-                }
-            });
+        }
+        if (cameraIds.isEmpty()) {
+            LOGGER.warning("No camera IDs provided for " + request.get("type") + " request");
+            return;
+        }
+
+        VideoViewer viewer = sessions.get(session.getId());
+        if (viewer == null) {
+            LOGGER.warning("No viewer for video session: " + session.getId());
+            return;
+        }
+
+        LiveUpstream upstream = resolveUpstream(viewer, request);
+        if (upstream == null) {
+            viewer.sendError("Not connected to a video server");
+            return;
+        }
+
+        LOGGER.fine(() -> (subscribe ? "Subscribing" : "Unsubscribing") + " session " + session.getId() +
+                ", cameras: " + cameraIds);
+        long rewindMillis = request.get("rewindSeconds") instanceof Number seconds
+                ? (long) (seconds.doubleValue() * 1000) : 0;
+        boolean sent = true;
+        for (int cameraId : cameraIds) {
+            sent &= subscribe
+                    ? upstream.subscribe(session.getId(), cameraId, rewindMillis)
+                    : upstream.unsubscribe(session.getId(), cameraId);
+        }
+        if (!sent) {
+            LOGGER.warning("Failed to send live info request");
+            viewer.sendError("Failed to send live info request");
         }
     }
 
     /**
-     * Set up periodic refresh for active camera streams
+     * Upstream of the session, attaching it first if the request names a different server
+     *
+     * @return null if the session is not attached and the request has no server address
      */
-    private void setupPeriodicRefresh(WebSocketSession session, RwcVaTcpClient client) {
-        String sessionId = session.getId();
+    private LiveUpstream resolveUpstream(VideoViewer viewer, Map<String, Object> request) {
+        LiveUpstream upstream = liveUpstreamManager.getUpstream(viewer.getId());
+        String serverIp = (String) request.get("serverIp");
+        Object serverPort = request.get("serverPort");
+        if (serverIp == null || !(serverPort instanceof Number port)) {
+            return upstream;
+        }
 
-        // Schedule periodic LiveInfo refresh task
-        videoRefreshExecutor.scheduleAtFixedRate(() -> {
-            try {
-                if (!sessions.containsKey(sessionId)) {
-                    return; // Session closed
-                }
+        if (upstream == null || !upstream.getKey().equals(serverIp + ":" + port.intValue())) {
+            LOGGER.warning("Session " + viewer.getId() + " not attached to " + serverIp + ":" + port.intValue());
+            upstream = liveUpstreamManager.attach(viewer, serverIp, port.intValue());
+        }
+        return upstream;
+    }
 
-                List<Integer> cameraIds = sessionCameraIds.get(sessionId);
-                if (cameraIds == null || cameraIds.isEmpty()) {
-                    return; // No active cameras
-                }
+    /**
+     * Report per-session delivery counters
+     */
+    private void handleStatsRequest(WebSocketSession session) {
+        VideoViewer viewer = sessions.get(session.getId());
+        if (viewer == null) {
+            return;
+        }
 
-                if (client.isConnected() && client.getServerClientKey() != 0) {
-                    LOGGER.info("Periodic refresh: Sending live info request for cameras: " + cameraIds);
-                    boolean sent = client.sendLiveInfo(cameraIds);
-                    if (!sent) {
-                        LOGGER.warning("Failed to send periodic live info refresh");
-                    }
-                }
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Error in periodic refresh task", e);
+        Map<String, Object> statsMessage = new HashMap<>();
+        statsMessage.put("type", "stats");
+        statsMessage.put("sentFrames", viewer.queue.getSentFrames());
+        statsMessage.put("droppedFrames", viewer.queue.getDroppedFrames());
+        statsMessage.put("queuedFrames", viewer.queue.getQueuedFrames());
+        statsMessage.put("endpoint", "video");
+        viewer.sendJson(statsMessage);
+    }
+
+    /**
+     * Send live data metadata and video payload to a session; runs on the session's writer
+     */
+    private void sendLiveData(WebSocketSession session, LiveDataView liveData) {
+        try {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("📤 Sending live data for camera " + liveData.getCameraId() +
+                        ", objects: " + liveData.getObjectCount() +
+                        ", dataSize: " + liveData.getPayloadSize());
+            }
+
+            // Send metadata as text message
+            session.sendMessage(new TextMessage(LiveFrameEncoder.encodeMetadata(objectMapper.getFactory(), liveData)));
+
+            // Send video data as binary message
+            if (liveData.getPayloadSize() > 0) {
+                session.sendMessage(new BinaryMessage(LiveFrameEncoder.encodeVideo(liveData)));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 닫히는 중인 세션은 IllegalStateException을 던질 수 있음
+            LOGGER.log(Level.SEVERE, "Error sending live data", e);
+        }
+    }
+
+    /**
+     * Send a frame as a single binary envelope; runs on the session's writer
+     */
+    private void sendLiveFrame(WebSocketSession session, LiveDataView liveData, boolean omitParameterSets)
+            throws IOException {
+        session.sendMessage(new BinaryMessage(LiveFrameEncoder.encode(liveData, omitParameterSets)));
+    }
+
+    /**
+     * Adapts a video WebSocket session to a shared live upstream through a bounded send queue
+     */
+    private class VideoViewer implements LiveViewer {
+        private final WebSocketSession session;
+        private final OutboundFrameQueue queue;
+        private volatile boolean binaryEnvelope;
+        private volatile boolean codecConfig;
+        // 카메라별 최신 디코더 설정 (수신 스레드에서 갱신)
+        private final Map<Integer, AvcParameterSets.Config> codecConfigs = new ConcurrentHashMap<>();
+        // 이 세션에 실제로 전송한 설정 (세션 작업자에서만 접근)
+        private final Map<Integer, AvcParameterSets.Config> sentCodecConfigs = new HashMap<>();
+
+        VideoViewer(WebSocketSession session) {
+            this.session = session;
+            this.queue = new OutboundFrameQueue(session, videoSendExecutor, this::writeFrame, sendQueueCapacity,
+                    metrics);
+        }
+
+        private void writeFrame(WebSocketSession target, LiveDataView liveData) throws IOException {
+            if (binaryEnvelope) {
+                sendLiveFrame(target, liveData, codecConfig && sendCodecConfig(target, liveData));
+            } else {
+                sendLiveData(target, liveData);
+            }
+        }
+
+        /**
+         * Send the camera's decoder configuration ahead of a keyframe or a frame with parameter sets,
+         * unless this session already has it; runs on the session's writer
+         *
+         * @return true if the frame's parameter sets are those of a configuration sent to this session
+         */
+        private boolean sendCodecConfig(WebSocketSession target, LiveDataView liveData) throws IOException {
+            boolean parameterSets = AvcParameterSets.hasParameterSets(liveData);
+            if (!parameterSets && !liveData.isKeyframe()) {
+                return false;
             }
-        }, 60, 60, TimeUnit.SECONDS);
+            int cameraId = liveData.getCameraId();
+            AvcParameterSets.Config config = codecConfigs.get(cameraId);
+            if (config == null || (parameterSets && !config.matches(liveData))) {
+                // 설정을 받지 못한 파라미터 셋은 프레임 안에 그대로 둠
+                return false;
+            }
+
+            if (sentCodecConfigs.get(cameraId) != config) {
+                Map<String, Object> configMessage = new HashMap<>();
+                configMessage.put("type", "codecConfig");
+                configMessage.put("cameraId", cameraId);
+                configMessage.put("codec", config.getCodec());
+                configMessage.put("description", Base64.getEncoder().encodeToString(config.getAvcC()));
+                configMessage.put("endpoint", "video");
+                target.sendMessage(new TextMessage(objectMapper.writeValueAsString(configMessage)));
+                sentCodecConfigs.put(cameraId, config);
+            }
+            return parameterSets;
+        }
+
+        @Override
+        public String getId() {
+            return session.getId();
+        }
+
+        @Override
+        public void onLiveData(LiveDataView liveData) {
+            // 수신 스레드에서는 큐에 넣기만 하고 전송은 세션 작업자가 담당
+            queue.offerFrame(liveData);
+        }
+
+        @Override
+        public Replay openReplay() {
+            return queue.openReplay();
+        }
+
+        @Override
+        public void onCodecConfig(int cameraId, AvcParameterSets.Config config) {
+            // 전송은 작업자가 이 설정에 맞는 첫 프레임 앞에서 처리
+            if (codecConfig) {
+                codecConfigs.put(cameraId, config);
+            }
+        }
+
+        @Override
+        public void onConnectionChange(boolean connected) {
+            LOGGER.info("Video TCP connection status changed: " + connected);
+            Map<String, Object> connectionMessage = new HashMap<>();
+            connectionMessage.put("type", "connection");
+            connectionMessage.put("connected", connected);
+            connectionMessage.put("endpoint", "video"); // 추가
+            sendJson(connectionMessage);
+        }
+
+        @Override
+        public void onConnectionReady(long clientKey) {
+            LOGGER.info("Video connection initialized with valid clientKey: " + clientKey);
+
+            // Send connectionReady message after initialization
+            Map<String, Object> readyMessage = new HashMap<>();
+            readyMessage.put("type", "connectionReady");
+            readyMessage.put("connected", true);
+            readyMessage.put("clientKey", clientKey);
+            readyMessage.put("format", binaryEnvelope ? "binary" : "json");
+            readyMessage.put("codecConfig", codecConfig);
+            readyMessage.put("endpoint", "video"); // 추가
+            sendJson(readyMessage);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            sendError(error.getMessage());
+        }
+
+        void sendJson(Map<String, Object> message) {
+            try {
+                queue.offerMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error serializing " + message.get("type") + " message", e);
+            }
+        }
+
+        void sendError(String text) {
+            Map<String, Object> errorMessage = new HashMap<>();
+            errorMessage.put("type", "error");
+            errorMessage.put("message", text);
+            errorMessage.put("endpoint", "video");
+            sendJson(errorMessage);
+        }
+
+        void close() {
+            queue.close();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,20 @@
 package rexgen.videoproxy.websocket;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import rexgen.videoproxy.tcp.RwcVaClientRuntime;
+import rexgen.videoproxy.tcp.RwcVaNettyTransport;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableWebSocket
@@ -12,26 +22,132 @@ class WebSocketConfig implements WebSocketConfigurer {
 
     // 생성자 주입 제거
 
+    // socket: 클라이언트별 수신 스레드, netty: 공유 이벤트 루프, virtual: 가상 스레드 블로킹 수신 (JDK 21+)
+    @Value("${videoproxy.tcp.transport:socket}")
+    private String tcpTransport;
+
+    @Value("${videoproxy.tcp.event-loop-threads:0}")
+    private int eventLoopThreads;
+
+    // 세션별 송신 큐에 대기할 수 있는 최대 프레임 수
+    @Value("${videoproxy.video.send-queue-capacity:90}")
+    private int sendQueueCapacity;
+
+    // 재생 프레임 페이싱 버퍼, 가득 차면 서버 수신을 멈춤
+    @Value("${videoproxy.playback.buffer-frames:90}")
+    private int playbackBufferFrames;
+
+    // 서버, 카메라, 월 단위 녹화 범위/타임라인 캐시
+    @Value("${videoproxy.timeline.cache-months:4096}")
+    private int timelineCacheMonths;
+
+    @Value("${videoproxy.timeline.cache-ttl-seconds:60}")
+    private long timelineCacheTtlSeconds;
+
+    // 재접속한 시청자가 되감을 수 있는 라이브 프레임 디스크 스풀 (보관 0초면 사용 안 함)
+    @Value("${videoproxy.spool.retention-seconds:0}")
+    private long spoolRetentionSeconds;
+
+    @Value("${videoproxy.spool.segment-bytes:16777216}")
+    private int spoolSegmentBytes;
+
+    // 시청자가 요청할 수 있는 최대 되감기
+    @Value("${videoproxy.spool.max-rewind-seconds:60}")
+    private long spoolMaxRewindSeconds;
+
+    // 스풀 기록 스레드를 기다릴 수 있는 프레임 바이트, 넘으면 다음 키프레임까지 기록 생략
+    @Value("${videoproxy.spool.max-pending-bytes:33554432}")
+    private long spoolMaxPendingBytes;
+
+    @Value("${videoproxy.spool.directory:${java.io.tmpdir}/videoproxy-spool}")
+    private String spoolDirectory;
+
+    // 업스트림별 LIVE_INFO 재전송 주기 (0이면 사용 안 함)
+    @Value("${videoproxy.video.live-refresh-seconds:60}")
+    private long liveRefreshSeconds;
+
+    // 카메라별 마지막 GOP 캐시 한도 (0이면 사용 안 함)
+    @Value("${videoproxy.video.gop-cache.max-frames-per-camera:60}")
+    private int gopCacheMaxFrames;
+
+    @Value("${videoproxy.video.gop-cache.max-bytes-per-camera:4194304}")
+    private long gopCacheMaxBytesPerCamera;
+
+    @Value("${videoproxy.video.gop-cache.max-bytes:134217728}")
+    private long gopCacheMaxBytes;
+
+    // Actuator가 제공하는 레지스트리, 수신/송신 메트릭을 등록
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // netty 전송일 때만 생성되는 공유 이벤트 루프
+    @Autowired
+    private ObjectProvider<RwcVaNettyTransport> nettyTransport;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // 공통 TcpClientManager 인스턴스 사용
         TcpClientManager manager = tcpClientManager();
-        registry.addHandler(videoWebSocketHandler(manager), "/ws/video").setAllowedOrigins("*");
+        registry.addHandler(videoWebSocketHandler(liveUpstreamManager(manager)), "/ws/video").setAllowedOrigins("*");
         registry.addHandler(controlWebSocketHandler(manager), "/ws/control").setAllowedOrigins("*");
     }
 
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "videoproxy.tcp.transport", havingValue = "netty")
+    public RwcVaNettyTransport rwcVaNettyTransport() {
+        return new RwcVaNettyTransport(eventLoopThreads);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public RwcVaClientRuntime rwcVaClientRuntime() {
+        return RwcVaClientRuntime.create("virtual".equalsIgnoreCase(tcpTransport));
+    }
+
     @Bean
     public TcpClientManager tcpClientManager() {
-        return new TcpClientManager();
+        return new TcpClientManager(nettyTransport.getIfAvailable(), rwcVaClientRuntime());
+    }
+
+    @Bean
+    public GopCache gopCache() {
+        return new GopCache(gopCacheMaxFrames, gopCacheMaxBytesPerCamera, gopCacheMaxBytes);
+    }
+
+    @Bean(destroyMethod = "close")
+    public RecordingSpool recordingSpool() {
+        RecordingSpool spool = new RecordingSpool(Path.of(spoolDirectory), spoolSegmentBytes,
+                TimeUnit.SECONDS.toMillis(spoolRetentionSeconds), TimeUnit.SECONDS.toMillis(spoolMaxRewindSeconds),
+                spoolMaxPendingBytes);
+        if (spool.isEnabled()) {
+            rwcVaClientRuntime().getTimer().scheduleAtFixedRate(spool::expire, 1, 1, TimeUnit.SECONDS);
+        }
+        return spool;
+    }
+
+    @Bean
+    public VideoProxyMetrics videoProxyMetrics() {
+        return new VideoProxyMetrics(meterRegistry);
+    }
+
+    @Bean
+    public TimelineCache timelineCache() {
+        return new TimelineCache(timelineCacheMonths, timelineCacheTtlSeconds, videoProxyMetrics());
+    }
+
+    @Bean
+    public LiveUpstreamManager liveUpstreamManager(TcpClientManager tcpClientManager) {
+        return new LiveUpstreamManager(tcpClientManager, gopCache(), recordingSpool(),
+                rwcVaClientRuntime().getTimer(), liveRefreshSeconds * 1000L, videoProxyMetrics());
     }
 
     @Bean
-    public VideoWebSocketHandler videoWebSocketHandler(TcpClientManager tcpClientManager) {
-        return new VideoWebSocketHandler(tcpClientManager);
+    public VideoWebSocketHandler videoWebSocketHandler(LiveUpstreamManager liveUpstreamManager) {
+        return new VideoWebSocketHandler(liveUpstreamManager, sendQueueCapacity, videoProxyMetrics());
     }
 
     @Bean
     public ControlWebSocketHandler controlWebSocketHandler(TcpClientManager tcpClientManager) {
-        return new ControlWebSocketHandler(tcpClientManager);
+        return new ControlWebSocketHandler(tcpClientManager, sendQueueCapacity, playbackBufferFrames,
+                timelineCache(), videoProxyMetrics());
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class H264NalScannerTest {
+
+    // AUD, SPS, PPS (4바이트 시작 코드와 trailing zero 포함), 3바이트 시작 코드의 IDR 슬라이스
+    private static final byte[] IDR_ACCESS_UNIT = {
+            0, 0, 0, 1, 0x09, (byte) 0xF0,
+            0, 0, 0, 1, 0x67, 0x64, 0x00, 0x1F, (byte) 0xAC, 0,
+            0, 0, 0, 1, 0x68, (byte) 0xEE, 0x3C, (byte) 0x80,
+            0, 0, 1, 0x65, (byte) 0x88, (byte) 0x84, 0, 0, 3, 1, 0x21
+    };
+
+    private static LiveDataView frame(RwcVaEnums.IntraCode intraCode, byte[] payload) {
+        return LiveFrameBuilder.frame().intraCode(intraCode).payload(payload).view();
+    }
+
+    @Test
+    void findsNalUnitsUpToTheFirstSlice() {
+        ByteBuf buf = Unpooled.wrappedBuffer(IDR_ACCESS_UNIT);
+        int to = buf.writerIndex();
+
+        int sps = H264NalScanner.nextNal(buf, H264NalScanner.nextNal(buf, 0, to) + 1, to);
+        assertEquals(10, sps);
+        assertEquals(H264NalScanner.NAL_SPS, H264NalScanner.nalType(buf, sps));
+        // 다음 시작 코드 앞의 0 바이트는 SPS에 포함되지 않음
+        assertEquals(15, H264NalScanner.nalEnd(buf, sps, to));
+        assertEquals(16, H264NalScanner.startCodeIndex(buf, 20, 0));
+
+        int types = H264NalScanner.scanAccessUnit(buf);
+        assertEquals((1 << 9) | (1 << 7) | (1 << 8) | (1 << 5), types);
+        assertEquals(24, H264NalScanner.skipParameterSets(buf, 0, to));
+        assertEquals(0, H264NalScanner.scanAccessUnit(Unpooled.wrappedBuffer(new byte[] { 0, 0, 2, 1, 0x65 })));
+        assertEquals(0, buf.readerIndex());
+    }
+
+    @Test
+    void classifiesFramesBySliceTypeAndFallsBackToIntraCode() {
+        LiveDataView mislabeledIdr = frame(RwcVaEnums.IntraCode.PREDICT, IDR_ACCESS_UNIT);
+        assertTrue(mislabeledIdr.isKeyframe());
+        mislabeledIdr.release();
+
+        LiveDataView mislabeledP = frame(RwcVaEnums.IntraCode.INTRA, new byte[] { 0, 0, 0, 1, 0x41, 0x12 });
+        assertFalse(mislabeledP.isKeyframe());
+        assertEquals(1 << H264NalScanner.NAL_SLICE, mislabeledP.getNalTypes());
+        mislabeledP.release();
+
+        // 시작 코드가 없으면 헤더의 intra code를 따름
+        LiveDataView opaque = frame(RwcVaEnums.IntraCode.INTRA, new byte[] { 7, 7, 7, 7 });
+        assertTrue(opaque.isKeyframe());
+        assertEquals(0, opaque.getNalTypes());
+        opaque.release();
+    }
+}
@@ -0,0 +1,46 @@
+package rexgen.videoproxy.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RexMessageEncoderTest {
+
+    @Test
+    void headerMatchesRexMessageHeader() {
+        RexMessageEncoder encoder = new RexMessageEncoder();
+        encoder.setClientKey(0x0102030405060708L);
+
+        ByteBuffer out = ByteBuffer.allocate(64);
+        encoder.encodeHeader(out, (byte) 100, (byte) 0, RexMessageEncoder.NO_BODY);
+
+        RexMessageHeader header = new RexMessageHeader();
+        header.setPacketSize((short) RwcVaConstants.HEAD);
+        header.setCommand((byte) 100);
+        header.setClientKey(0x0102030405060708L);
+
+        assertEquals(RwcVaConstants.HEAD, out.position());
+        byte[] encoded = new byte[RwcVaConstants.HEAD];
+        out.flip().get(encoded);
+        assertArrayEquals(header.toBytes(), encoded);
+        assertEquals(ByteOrder.BIG_ENDIAN, out.order());
+    }
+
+    @Test
+    void writesBodyLengthAndBody() {
+        RexMessageEncoder encoder = new RexMessageEncoder();
+        ByteBuffer body = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+
+        ByteBuffer out = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        encoder.encode(out, (byte) 1, (byte) 2, body);
+
+        assertEquals(RexMessageEncoder.packetSize(3), out.position());
+        assertEquals(RexMessageEncoder.packetSize(3), out.getShort(4));
+        assertEquals(3, out.getInt(RwcVaConstants.HEAD));
+        assertEquals(3, out.get(RexMessageEncoder.FRAME_HEADER_SIZE + 2));
+        assertFalse(body.hasRemaining());
+    }
+}
@@ -0,0 +1,35 @@
+package rexgen.videoproxy.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RwcVaEnumsTest {
+
+    @Test
+    void decodesEveryWireValue() {
+        for (RwcVaEnums.PlaybackSubCommand c : RwcVaEnums.PlaybackSubCommand.values()) {
+            if (c != RwcVaEnums.PlaybackSubCommand.UNKNOWN) {
+                assertSame(c, RwcVaEnums.PlaybackSubCommand.fromValue(c.getValue()));
+            }
+        }
+        assertSame(RwcVaEnums.ObjectType.PERSON, RwcVaEnums.ObjectType.fromValue(31));
+        assertSame(RwcVaEnums.Version.v40, RwcVaEnums.Version.fromValue(40));
+    }
+
+    @Test
+    void unknownValuesReturnSentinels() {
+        assertSame(RwcVaEnums.Command.UNKNOWN, RwcVaEnums.Command.fromValue(55));
+        assertSame(RwcVaEnums.Command.UNKNOWN, RwcVaEnums.Command.fromValue(-1));
+        assertSame(RwcVaEnums.LiveSubCommand.UNKNOWN, RwcVaEnums.LiveSubCommand.fromValue(1000));
+        assertSame(RwcVaEnums.IntraCode.UNKNOWN, RwcVaEnums.IntraCode.fromValue(9));
+        assertSame(RwcVaEnums.CodecID.NONE, RwcVaEnums.CodecID.fromValue(-3));
+    }
+
+    @Test
+    void unsignedByteReachesHighValues() {
+        byte wire = (byte) 200;
+        assertSame(RwcVaEnums.LiveSubCommand.INTERNAL_ERROR,
+                RwcVaEnums.LiveSubCommand.fromValue(Byte.toUnsignedInt(wire)));
+    }
+}
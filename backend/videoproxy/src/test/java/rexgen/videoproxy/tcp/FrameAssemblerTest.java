@@ -0,0 +1,60 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+import rexgen.videoproxy.protocol.LiveDataInfo;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameAssemblerTest {
+
+    @Test
+    void viewsFrameSpreadOverChunksWithoutCopying() {
+        byte[] video = new byte[1000];
+        for (int i = 0; i < video.length; i++) {
+            video[i] = (byte) i;
+        }
+        ByteBuf wire = LiveFrameBuilder.frame()
+                .cameraId(3)
+                .timestamp(1700000000250L)
+                .fps(30, 30, 10)
+                .object(7, RwcVaEnums.ObjectType.PERSON, 0.9f, 0.8f, 10f, 20f, 30f, 40f, 1, 2, 3, 4)
+                .extraData(new byte[] { 9, 9 })
+                .payload(video)
+                .build();
+
+        FrameAssembler assembler = new FrameAssembler();
+        while (wire.isReadable()) {
+            ByteBuf chunk = wire.readRetainedSlice(Math.min(97, wire.readableBytes()));
+            assembler.append(chunk);
+            chunk.release();
+        }
+        assertEquals(wire.writerIndex(), assembler.size());
+        wire.release();
+
+        LiveDataView view = LiveDataView.wrap(assembler.take());
+
+        assertEquals(3, view.getCameraId());
+        assertEquals(RwcVaEnums.CodecID.H264, view.getCodec());
+        assertEquals(1700000000250L, view.getTimestampMillis());
+        assertEquals(1, view.getObjectCount());
+        assertEquals(RwcVaEnums.ObjectType.PERSON, view.objectType(0));
+        assertEquals(30f, view.objectWidth(0));
+        assertEquals(4, view.objectAttribute(0, 3));
+        assertEquals(2, view.getExtraDataSize());
+        assertEquals(video.length, view.getPayloadSize());
+        assertEquals((byte) 999, view.payload().getByte(999));
+
+        LiveDataInfo info = view.toLiveDataInfo();
+        assertEquals(7, info.getObjects().get(0).getIndex());
+        assertArrayEquals(new byte[] { 9, 9 }, info.getExtraData());
+        assertArrayEquals(video, info.getData());
+
+        // 뷰가 마지막 참조이므로 해제 시 청크 메모리도 반환됨
+        assertTrue(view.release());
+        assertEquals(0, wire.refCnt());
+    }
+}
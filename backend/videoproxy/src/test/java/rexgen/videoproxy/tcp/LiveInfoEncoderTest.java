@@ -0,0 +1,55 @@
+package rexgen.videoproxy.tcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveInfoEncoderTest {
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.get(out);
+        return out;
+    }
+
+    @Test
+    void writesPaddedIdTable() {
+        LiveInfoEncoder encoder = new LiveInfoEncoder();
+        ByteBuffer body = encoder.encode(List.of(7, 9));
+
+        assertEquals(LiveInfoEncoder.BODY_SIZE, body.remaining());
+        assertEquals(2, body.getInt());
+        assertEquals(7, body.getInt());
+        assertEquals(9, body.getInt());
+        while (body.hasRemaining()) {
+            assertEquals(0, body.get());
+        }
+    }
+
+    @Test
+    void clearsSlotsLeftByLongerList() {
+        LiveInfoEncoder encoder = new LiveInfoEncoder();
+        encoder.encode(List.of(1, 2, 3));
+        byte[] shorter = bytes(encoder.encode(List.of(4)));
+
+        byte[] expected = bytes(new LiveInfoEncoder().encode(List.of(4)));
+        assertArrayEquals(expected, shorter);
+    }
+
+    @Test
+    void tracksWhatWasSent() {
+        LiveInfoEncoder encoder = new LiveInfoEncoder();
+        encoder.encode(List.of(1, 2));
+        assertFalse(encoder.isSent(List.of(1, 2)));
+
+        encoder.markSent();
+        assertTrue(encoder.isSent(List.of(1, 2)));
+        assertFalse(encoder.isSent(List.of(1)));
+
+        encoder.invalidate();
+        assertFalse(encoder.isSent(List.of(1, 2)));
+    }
+}
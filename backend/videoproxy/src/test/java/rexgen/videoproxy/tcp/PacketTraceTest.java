@@ -0,0 +1,33 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketTraceTest {
+
+    @Test
+    void recordsNothingWhileDisabled() {
+        PacketTrace trace = new PacketTrace(4, 8);
+        trace.setEnabled(false);
+        trace.record(PacketTrace.Direction.IN, (byte) 2, (byte) 3, 32, Unpooled.wrappedBuffer(new byte[] { 1, 2 }));
+        assertEquals(0, trace.getRecordedCount());
+    }
+
+    @Test
+    void keepsMostRecentPackets() {
+        PacketTrace trace = new PacketTrace(2, 2);
+        trace.setEnabled(true);
+        for (int i = 1; i <= 3; i++) {
+            trace.record(PacketTrace.Direction.OUT, (byte) i, (byte) 0, 24 + i,
+                    Unpooled.wrappedBuffer(new byte[] { (byte) 0xAB, (byte) i, 7 }));
+        }
+
+        String dump = trace.dump();
+        assertTrue(dump.contains("(2 of 3)"));
+        assertFalse(dump.contains("cmd=1 "));
+        assertTrue(dump.contains("OUT cmd=3 sub=0 size=27 | AB 03"));
+        assertEquals("0A FF ", PacketTrace.appendHex(new StringBuilder(), new byte[] { 10, -1 }, 0, 2).toString());
+    }
+}
@@ -0,0 +1,68 @@
+package rexgen.videoproxy.tcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+import rexgen.videoproxy.protocol.RexMessageHeader;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RexMessageDecoderTest {
+
+    private static ByteBuf packet(byte command, byte subCommand, byte[] body) {
+        RexMessageHeader header = new RexMessageHeader();
+        header.setPacketSize((short) (RwcVaConstants.HEAD + (body != null ? 4 + body.length : 0)));
+        header.setCommand(command);
+        header.setSubCommand(subCommand);
+        header.setClientKey(42L);
+
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeBytes(header.toBytes());
+        if (body != null) {
+            buf.writeIntLE(body.length);
+            buf.writeBytes(body);
+        }
+        return buf;
+    }
+
+    @Test
+    void decodesFramesSplitAcrossReads() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RexMessageDecoder());
+        ByteBuf wire = Unpooled.buffer();
+        wire.writeBytes(packet((byte) 11, (byte) 11, new byte[] { 1, 2, 3, 4, 5 }));
+        wire.writeBytes(packet((byte) 100, (byte) 0, null));
+
+        // 헤더 중간에서 잘라서 전달
+        assertFalse(channel.writeInbound(wire.readRetainedSlice(10)));
+        assertTrue(channel.writeInbound(wire.readRetainedSlice(wire.readableBytes())));
+        wire.release();
+
+        RexMessage live = channel.readInbound();
+        assertEquals(11, live.getCommand());
+        assertEquals(11, live.getSubCommand());
+        assertEquals(42L, live.getClientKey());
+        assertEquals(5, live.getBodySize());
+        assertEquals(5, live.content().getByte(4));
+        live.release();
+
+        RexMessage signal = channel.readInbound();
+        assertEquals(100, signal.getCommand());
+        assertEquals(0, signal.getBodySize());
+        signal.release();
+
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void rejectsInvalidPrefix() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RexMessageDecoder());
+        ByteBuf bad = packet((byte) 100, (byte) 0, null);
+        bad.setByte(0, 'X');
+
+        assertThrows(DecoderException.class, () -> channel.writeInbound(bad));
+    }
+}
@@ -0,0 +1,49 @@
+package rexgen.videoproxy.tcp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RwcVaTimerTest {
+
+    private final RwcVaTimer timer = new RwcVaTimer(10, 64);
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    @Test
+    void repeatsUntilCancelled() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(3);
+        AtomicInteger runs = new AtomicInteger();
+        RwcVaTimer.Task task = timer.scheduleAtFixedRate(() -> {
+            runs.incrementAndGet();
+            ran.countDown();
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(2, TimeUnit.SECONDS));
+        task.cancel();
+        int afterCancel = runs.get();
+        Thread.sleep(100);
+
+        assertTrue(task.isDone());
+        assertTrue(runs.get() <= afterCancel + 1);
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        RwcVaTimer.Task task = timer.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        task.cancel();
+        Thread.sleep(150);
+
+        assertEquals(0, runs.get());
+        assertEquals(0, timer.getPendingCount());
+    }
+}
@@ -0,0 +1,62 @@
+package rexgen.videoproxy.websocket;
+
+import org.junit.jupiter.api.Test;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GopCacheTest {
+
+    private static LiveDataView frame(RwcVaEnums.IntraCode intraCode, int payloadSize) {
+        return LiveFrameBuilder.frame().intraCode(intraCode).payload(payloadSize).view();
+    }
+
+    @Test
+    void keepsFramesFromLastIntra() {
+        GopCache cache = new GopCache(10, 1 << 20, 1 << 20);
+        GopCache.Gop gop = cache.newGop();
+
+        LiveDataView orphan = frame(RwcVaEnums.IntraCode.PREDICT, 10);
+        gop.add(orphan);
+        assertEquals(0, gop.size());
+
+        LiveDataView intra = frame(RwcVaEnums.IntraCode.INTRA, 100);
+        LiveDataView predict = frame(RwcVaEnums.IntraCode.PREDICT, 10);
+        gop.add(intra);
+        gop.add(predict);
+
+        List<LiveDataView> replayed = new ArrayList<>();
+        gop.replay(replayed::add);
+        assertEquals(List.of(intra, predict), replayed);
+        assertEquals(intra.getFrameSize() + predict.getFrameSize(), cache.getTotalBytes());
+
+        LiveDataView nextIntra = frame(RwcVaEnums.IntraCode.INTRA, 100);
+        gop.add(nextIntra);
+        assertEquals(1, gop.size());
+        assertEquals(1, predict.refCnt());
+
+        gop.close();
+        assertEquals(0, cache.getTotalBytes());
+        assertEquals(1, nextIntra.refCnt());
+    }
+
+    @Test
+    void dropsGopOverGlobalBudget() {
+        LiveDataView intra = frame(RwcVaEnums.IntraCode.INTRA, 100);
+        GopCache cache = new GopCache(10, 1 << 20, intra.getFrameSize() + 20);
+        GopCache.Gop first = cache.newGop();
+        GopCache.Gop second = cache.newGop();
+
+        first.add(intra);
+        second.add(frame(RwcVaEnums.IntraCode.INTRA, 100));
+
+        assertEquals(1, first.size());
+        assertEquals(0, second.size());
+        assertEquals(intra.getFrameSize(), cache.getTotalBytes());
+    }
+}
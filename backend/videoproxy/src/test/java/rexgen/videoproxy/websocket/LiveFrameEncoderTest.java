@@ -0,0 +1,82 @@
+package rexgen.videoproxy.websocket;
+
+import org.junit.jupiter.api.Test;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveFrameEncoderTest {
+
+    @Test
+    void copiesExtraDataAndPayloadWithoutOverrun() {
+        byte[] extra = { 1, 2, 3 };
+        byte[] payload = { 9, 8, 7, 6, 5 };
+
+        LiveDataView frame = LiveFrameBuilder.frame().cameraId(42).extraData(extra).payload(payload).view();
+
+        ByteBuffer encoded = LiveFrameEncoder.encode(frame);
+
+        assertEquals(LiveFrameEncoder.encodedSize(frame), encoded.remaining());
+        assertEquals(42, encoded.getInt(4));
+        assertEquals(extra.length, encoded.getInt(20));
+        assertEquals(payload.length, encoded.getInt(24));
+        byte[] tail = new byte[extra.length + payload.length];
+        encoded.position(LiveFrameEncoder.HEADER_SIZE).get(tail);
+        assertArrayEquals(new byte[] { 1, 2, 3, 9, 8, 7, 6, 5 }, tail);
+        frame.release();
+    }
+
+    @Test
+    void encodesJsonFormatVideoWithExtraData() {
+        byte[] extra = { 1, 2, 3 };
+        byte[] payload = { 9, 8, 7, 6, 5 };
+
+        LiveDataView frame = LiveFrameBuilder.frame().cameraId(42).extraData(extra).payload(payload).view();
+
+        ByteBuffer encoded = LiveFrameEncoder.encodeVideo(frame);
+
+        assertEquals(8 + extra.length + payload.length, encoded.remaining());
+        assertEquals(RwcVaEnums.CodecID.H264.getValue(), encoded.getInt(0));
+        assertEquals(extra.length, encoded.getInt(4));
+        byte[] tail = new byte[extra.length + payload.length];
+        encoded.position(8).get(tail);
+        assertArrayEquals(new byte[] { 1, 2, 3, 9, 8, 7, 6, 5 }, tail);
+        frame.release();
+    }
+
+    @Test
+    void sendsParameterSetsOnceAsDecoderConfiguration() {
+        byte[] parameterSets = { 0, 0, 0, 1, 0x67, 0x42, (byte) 0xE0, 0x1F, 0, 0, 0, 1, 0x68, (byte) 0xCE };
+        byte[] slice = { 0, 0, 0, 1, 0x65, 0x11, 0x22 };
+
+        LiveDataView frame = LiveFrameBuilder.frame().cameraId(42).extraData(parameterSets).payload(slice).view();
+
+        AvcParameterSets sets = new AvcParameterSets();
+        assertTrue(sets.update(frame));
+        assertFalse(sets.update(frame));
+        assertEquals("avc1.42E01F", sets.getConfig().getCodec());
+        assertArrayEquals(new byte[] { 1, 0x42, (byte) 0xE0, 0x1F, (byte) 0xFF, (byte) 0xE1, 0, 4,
+                0x67, 0x42, (byte) 0xE0, 0x1F, 1, 0, 2, 0x68, (byte) 0xCE }, sets.getConfig().getAvcC());
+
+        ByteBuffer full = LiveFrameEncoder.encode(frame, false);
+        assertEquals(parameterSets.length, full.getInt(20));
+        ByteBuffer encoded = LiveFrameEncoder.encode(frame, true);
+        assertEquals(LiveFrameEncoder.HEADER_SIZE + slice.length, encoded.remaining());
+        assertEquals(0, encoded.getInt(20));
+        assertEquals(slice.length, encoded.getInt(24));
+        assertEquals(RwcVaEnums.IntraCode.INTRA.getValue(), encoded.get(2));
+
+        // SPS가 바뀌면 이전 설정과 맞지 않으므로 새 설정이 전송되기 전까지 제외하지 않음
+        AvcParameterSets.Config first = sets.getConfig();
+        assertTrue(first.matches(frame));
+        frame.extraData().setByte(7, 0x28);
+        assertFalse(first.matches(frame));
+        assertTrue(sets.update(frame));
+        assertEquals("avc1.42E028", sets.getConfig().getCodec());
+        frame.release();
+    }
+}
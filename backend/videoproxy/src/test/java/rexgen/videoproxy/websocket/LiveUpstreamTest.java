@@ -0,0 +1,239 @@
+package rexgen.videoproxy.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.socket.WebSocketSession;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.tcp.RwcVaTcpClient;
+import rexgen.videoproxy.tcp.RwcVaTimer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LiveUpstreamTest {
+
+    private final RwcVaTimer timer = new RwcVaTimer();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final VideoProxyMetrics metrics = new VideoProxyMetrics(registry);
+
+    @AfterEach
+    void stop() {
+        timer.stop();
+    }
+
+    private static LiveViewer viewer(String id) {
+        return viewer(id, null);
+    }
+
+    /**
+     * Viewer that queues its frames like a video session, or drops them if {@code queue} is null
+     */
+    private static LiveViewer viewer(String id, OutboundFrameQueue queue) {
+        return new LiveViewer() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public void onLiveData(LiveDataView liveData) {
+                if (queue != null) {
+                    queue.offerFrame(liveData);
+                }
+            }
+
+            @Override
+            public Replay openReplay() {
+                return queue != null ? queue.openReplay() : null;
+            }
+
+            @Override
+            public void onConnectionChange(boolean connected) {
+            }
+
+            @Override
+            public void onConnectionReady(long clientKey) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        };
+    }
+
+    @Test
+    void refreshIsScheduledOncePerUpstreamWhileSubscribed() {
+        // 연결되지 않은 클라이언트: 구독 상태와 타이머 예약만 검증
+        RwcVaTcpClient client = new RwcVaTcpClient("live-test", "127.0.0.1", 1, null);
+        LiveUpstream upstream = new LiveUpstream("127.0.0.1:1", client, new GopCache(0, 0, 0),
+                new RecordingSpool(null, 0, 0, 0, 0), timer, 60_000, metrics);
+        upstream.attach(viewer("a"));
+        upstream.attach(viewer("b"));
+        assertFalse(upstream.isRefreshScheduled());
+
+        upstream.updateCameras("a", List.of(1, 2));
+        upstream.updateCameras("b", List.of(2));
+        assertTrue(upstream.isRefreshScheduled());
+        assertEquals(1, timer.getPendingCount());
+
+        upstream.detach("a");
+        assertTrue(upstream.isRefreshScheduled());
+        upstream.updateCameras("b", List.of());
+        assertFalse(upstream.isRefreshScheduled());
+
+        upstream.updateCameras("b", List.of(3));
+        upstream.close();
+        assertFalse(upstream.isRefreshScheduled());
+    }
+
+    @Test
+    void emptyUnionStopsTheUpstreamSubscription() {
+        // 초기화된 것처럼 보이는 클라이언트로 전송된 LIVE_INFO 목록만 기록
+        List<List<Integer>> sent = new ArrayList<>();
+        RwcVaTcpClient client = new RwcVaTcpClient("live-test", "127.0.0.1", 1, null) {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public long getServerClientKey() {
+                return 1;
+            }
+
+            @Override
+            public boolean updateLiveInfo(List<Integer> cameraIds) {
+                sent.add(List.copyOf(cameraIds));
+                return true;
+            }
+        };
+        LiveUpstream upstream = new LiveUpstream("127.0.0.1:1", client, new GopCache(0, 0, 0),
+                new RecordingSpool(null, 0, 0, 0, 0), timer, 0, metrics);
+        upstream.attach(viewer("a"));
+        upstream.attach(viewer("b"));
+
+        upstream.subscribe("a", 1);
+        upstream.subscribe("b", 2);
+        upstream.unsubscribe("a", 1);
+        upstream.unsubscribe("b", 2);
+
+        assertEquals(List.of(List.of(1), List.of(1, 2), List.of(2), List.of()), sent);
+        upstream.close();
+    }
+
+    @Test
+    void camerasAreRefcountedAcrossViewers() {
+        RwcVaTcpClient client = new RwcVaTcpClient("live-test", "127.0.0.1", 1, null);
+        LiveUpstream upstream = new LiveUpstream("127.0.0.1:1", client, new GopCache(0, 0, 0),
+                new RecordingSpool(null, 0, 0, 0, 0), timer, 0, metrics);
+        upstream.attach(viewer("a"));
+        upstream.attach(viewer("b"));
+
+        upstream.subscribe("a", 5);
+        upstream.subscribe("a", 5);
+        upstream.subscribe("b", 5);
+        upstream.updateCameras("b", List.of(5, 6));
+        assertEquals(2, upstream.getViewerCount(5));
+        assertEquals(1, upstream.getViewerCount(6));
+        assertEquals(List.of(5), upstream.getCameraIds("a"));
+
+        upstream.unsubscribe("a", 5);
+        upstream.unsubscribe("a", 5);
+        assertEquals(1, upstream.getViewerCount(5));
+
+        upstream.detach("b");
+        assertEquals(0, upstream.getViewerCount(5));
+        assertEquals(0, upstream.getViewerCount(6));
+        assertNotNull(registry.find("videoproxy.upstream.camera.frames").tag("camera", "6").functionCounter());
+
+        upstream.close();
+        assertNull(registry.find("videoproxy.upstream.bytes").meter());
+        assertNull(registry.find("videoproxy.upstream.camera.frames").meter());
+    }
+
+    @Test
+    void rewindLongerThanTheSendQueueIsNotDropped(@TempDir Path directory) {
+        // 초기화된 것처럼 보이는 클라이언트, 수신 콜백을 잡아 프레임을 직접 전달
+        List<Consumer<LiveDataView>> receivers = new ArrayList<>();
+        RwcVaTcpClient client = new RwcVaTcpClient("live-test", "127.0.0.1", 1, null) {
+            @Override
+            public boolean isConnected() {
+                return true;
+            }
+
+            @Override
+            public long getServerClientKey() {
+                return 1;
+            }
+
+            @Override
+            public boolean updateLiveInfo(List<Integer> cameraIds) {
+                return true;
+            }
+
+            @Override
+            public void setOnLiveFrame(Consumer<LiveDataView> handler) {
+                receivers.add(handler);
+            }
+        };
+        RecordingSpool spool = new RecordingSpool(directory, 1 << 20, 60_000, 60_000, 1 << 20,
+                Runnable::run, System::currentTimeMillis);
+        LiveUpstream upstream = new LiveUpstream("127.0.0.1:1", client, new GopCache(60, 1 << 20, 1 << 20),
+                spool, timer, 0, metrics);
+        Consumer<Integer> receive = i -> {
+            LiveDataView frame = LiveFrameBuilder.frame()
+                    .cameraId(3)
+                    .timestamp(1_000_000L + i * 1000 / 30)
+                    .intra(i % 30 == 0)
+                    .payload(100)
+                    .view();
+            receivers.get(0).accept(frame);
+            frame.release();
+        };
+
+        upstream.attach(viewer("live"));
+        upstream.subscribe("live", 3);
+        // 30fps로 10초, 1초마다 키프레임
+        for (int i = 0; i < 300; i++) {
+            receive.accept(i);
+        }
+
+        // 작업자를 직접 실행해 되감기를 보내기 전에 라이브 프레임이 뒤에 쌓이게 함
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("rewind");
+        List<Runnable> pendingDrains = new ArrayList<>();
+        List<Long> written = new ArrayList<>();
+        OutboundFrameQueue queue = new OutboundFrameQueue(session, pendingDrains::add,
+                (s, f) -> written.add(f.getTimestampMillis()), 90, metrics);
+        upstream.attach(viewer("rewind", queue));
+        upstream.subscribe("rewind", 3, 8_000);
+        for (int i = 300; i < 310; i++) {
+            receive.accept(i);
+        }
+        while (!pendingDrains.isEmpty()) {
+            pendingDrains.remove(0).run();
+        }
+
+        // 8초 전(1001966) 이전의 키프레임 1001000부터 270프레임을 큐 용량(90)과 관계없이 전부, 그 뒤 라이브 프레임
+        List<Long> expected = new ArrayList<>();
+        for (int i = 30; i < 310; i++) {
+            expected.add(1_000_000L + i * 1000 / 30);
+        }
+        assertEquals(expected, written);
+        assertEquals(0, queue.getDroppedFrames());
+
+        upstream.close();
+        queue.close();
+        spool.close();
+    }
+}
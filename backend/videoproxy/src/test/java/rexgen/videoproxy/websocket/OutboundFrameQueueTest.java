@@ -0,0 +1,61 @@
+package rexgen.videoproxy.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboundFrameQueueTest {
+
+    private static LiveDataView frame(int cameraId, RwcVaEnums.IntraCode intraCode) {
+        return LiveFrameBuilder.frame().cameraId(cameraId).intraCode(intraCode).payload(4).view();
+    }
+
+    @Test
+    void dropsPredictedFramesUntilNextIntraWhenFull() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("s1");
+
+        // 작업자를 직접 실행해 느린 브라우저를 흉내냄
+        List<Runnable> pendingDrains = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OutboundFrameQueue queue = new OutboundFrameQueue(session, pendingDrains::add,
+                (s, f) -> written.add(f.getIntraCodeValue()), 2, new VideoProxyMetrics(registry));
+
+        List<LiveDataView> frames = List.of(
+                frame(1, RwcVaEnums.IntraCode.INTRA),
+                frame(1, RwcVaEnums.IntraCode.PREDICT),
+                frame(1, RwcVaEnums.IntraCode.PREDICT),   // full -> dropped
+                frame(1, RwcVaEnums.IntraCode.BIPREDICT), // awaiting keyframe -> dropped
+                frame(1, RwcVaEnums.IntraCode.INTRA));    // replaces the queued GOP
+        for (LiveDataView f : frames) {
+            queue.offerFrame(f);
+            f.release();
+        }
+
+        assertEquals(1, queue.getQueuedFrames());
+        assertEquals(4, queue.getDroppedFrames());
+        assertEquals(1, registry.get("videoproxy.ws.queue.depth").gauge().value());
+        assertEquals(4, registry.get("videoproxy.ws.frames.dropped").functionCounter().count());
+
+        pendingDrains.forEach(Runnable::run);
+        assertEquals(List.of(RwcVaEnums.IntraCode.INTRA.getValue()), written);
+        assertEquals(1, queue.getSentFrames());
+        assertEquals(0, registry.get("videoproxy.ws.queue.depth").gauge().value());
+        assertEquals(1, registry.get("videoproxy.ws.send").functionTimer().count());
+        for (LiveDataView f : frames) {
+            assertEquals(0, f.refCnt());
+        }
+    }
+}
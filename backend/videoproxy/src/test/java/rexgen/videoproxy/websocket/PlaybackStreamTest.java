@@ -0,0 +1,140 @@
+package rexgen.videoproxy.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+import rexgen.videoproxy.protocol.RwcVaEnums;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlaybackStreamTest {
+
+    private final ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor();
+    private final List<Long> written = new CopyOnWriteArrayList<>();
+    private final List<Long> writtenAtNanos = new CopyOnWriteArrayList<>();
+    private final List<Boolean> readPauses = new CopyOnWriteArrayList<>();
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    @AfterEach
+    void stop() {
+        pacer.shutdownNow();
+    }
+
+    private static LiveDataView frame(long timestampMillis) {
+        return frame(timestampMillis, true);
+    }
+
+    private static LiveDataView frame(long timestampMillis, boolean intra) {
+        return LiveFrameBuilder.frame().timestamp(timestampMillis).intra(intra).view();
+    }
+
+    private PlaybackStream stream(int capacity) {
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("control");
+        OutboundFrameQueue queue = new OutboundFrameQueue(session, Runnable::run, (s, f) -> {
+            written.add(f.getTimestampMillis());
+            writtenAtNanos.add(System.nanoTime());
+        }, 100, new VideoProxyMetrics(new SimpleMeterRegistry()));
+        return new PlaybackStream(queue, pacer, readPauses::add, capacity);
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (written.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, written.size());
+    }
+
+    @Test
+    void pausesReadingWhileBufferIsFull() throws Exception {
+        PlaybackStream stream = stream(4);
+        stream.setPlaying(false);
+
+        for (int i = 0; i < 4; i++) {
+            LiveDataView f = frame(1_000_000L + i * 40);
+            stream.offerFrame(f);
+            f.release();
+        }
+        stream.offerMessage(new TextMessage("{\"type\":\"playbackEnd\"}"));
+        assertEquals(List.of(true), readPauses);
+        assertEquals(4, stream.getBufferedFrames());
+
+        stream.setSpeed(RwcVaEnums.SpeedType.MAX);
+        stream.setPlaying(true);
+        awaitWritten(4);
+        assertEquals(List.of(true, false), readPauses);
+
+        // 종료 알림은 마지막 프레임 뒤에 전달
+        Thread.sleep(50);
+        verify(session).sendMessage(any(TextMessage.class));
+        stream.close();
+    }
+
+    @Test
+    void pacesFramesByTimestampAndSpeed() throws Exception {
+        PlaybackStream stream = stream(10);
+        stream.setSpeed(RwcVaEnums.SpeedType.X2);
+
+        long[] timestamps = { 1_000_000L, 1_000_100L, 1_000_200L, 1_060_000L };
+        for (long t : timestamps) {
+            LiveDataView f = frame(t);
+            stream.offerFrame(f);
+            f.release();
+        }
+        awaitWritten(4);
+
+        // 200ms 분량을 2배속으로 재생, 1분 공백은 기다리지 않음
+        long paced = writtenAtNanos.get(2) - writtenAtNanos.get(0);
+        assertTrue(paced >= TimeUnit.MILLISECONDS.toNanos(90), "paced " + paced);
+        long gap = writtenAtNanos.get(3) - writtenAtNanos.get(2);
+        assertTrue(gap < TimeUnit.SECONDS.toNanos(1), "gap " + gap);
+        assertEquals(List.of(1_000_000L, 1_000_100L, 1_000_200L, 1_060_000L), written);
+        stream.close();
+    }
+
+    @Test
+    void seeksToBufferedKeyframeAndSendsOnlyKeyframesWhenFast() throws Exception {
+        PlaybackStream stream = stream(20);
+        stream.setPlaying(false);
+
+        // 1초 GOP: 0ms, 1000ms, 2000ms에 키프레임, 사이에 예측 프레임 4개
+        for (int i = 0; i < 15; i++) {
+            LiveDataView f = frame(1_000_000L + i * 200, i % 5 == 0);
+            stream.offerFrame(f);
+            f.release();
+        }
+
+        assertFalse(stream.seek(1_004_000L), "after the buffered range");
+        assertTrue(stream.seek(1_001_600L));
+        stream.setSpeed(RwcVaEnums.SpeedType.MAX);
+        stream.setPlaying(true);
+        awaitWritten(2);
+        Thread.sleep(50);
+        assertEquals(List.of(1_001_000L, 1_002_000L), written);
+        assertEquals(0, stream.getBufferedFrames());
+
+        // 보통 속도로 돌아오면 다음 키프레임부터 예측 프레임도 전달
+        stream.setSpeed(RwcVaEnums.SpeedType.X1);
+        for (int i = 16; i < 22; i++) {
+            LiveDataView f = frame(1_000_000L + i * 200, i % 5 == 0);
+            stream.offerFrame(f);
+            f.release();
+        }
+        awaitWritten(4);
+        assertEquals(List.of(1_001_000L, 1_002_000L, 1_004_000L, 1_004_200L), written);
+        assertFalse(stream.seek(1_000_000L), "before the buffered range");
+        stream.close();
+    }
+}
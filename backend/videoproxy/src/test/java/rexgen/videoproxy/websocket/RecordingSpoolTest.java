@@ -0,0 +1,171 @@
+package rexgen.videoproxy.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rexgen.videoproxy.protocol.LiveDataView;
+import rexgen.videoproxy.protocol.LiveFrameBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordingSpoolTest {
+
+    private static final String SERVER = "127.0.0.1:6990";
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private static LiveDataView frame(long timestampMillis, boolean intra) {
+        byte[] payload = new byte[100];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (timestampMillis + i);
+        }
+        return LiveFrameBuilder.frame().cameraId(3).timestamp(timestampMillis).intra(intra).payload(payload).view();
+    }
+
+    /**
+     * Timestamps of the rewound frames, or null if nothing is spooled
+     */
+    private static List<Long> rewind(RecordingSpool spool, int cameraId, long rewindMillis) {
+        List<Iterator<LiveDataView>> opened = new ArrayList<>();
+        spool.rewind(SERVER, cameraId, rewindMillis, opened::add);
+        Iterator<LiveDataView> frames = opened.get(0);
+        if (frames == null) {
+            return null;
+        }
+        List<Long> timestamps = new ArrayList<>();
+        while (frames.hasNext()) {
+            LiveDataView frame = frames.next();
+            assertEquals(100, frame.getPayloadSize());
+            assertEquals((byte) frame.getTimestampMillis(), frame.payload().getByte(0));
+            timestamps.add(frame.getTimestampMillis());
+            frame.release();
+        }
+        return timestamps;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void rewindStartsAtKeyframeAcrossSegments() throws IOException {
+        // 한 세그먼트에 프레임 6개 정도
+        RecordingSpool spool = new RecordingSpool(directory, 1000, 60_000, 2000, 1 << 20, Runnable::run, now::get);
+        for (int i = 0; i < 30; i++) {
+            LiveDataView f = frame(5_000_000L + i * 100, i % 10 == 0);
+            spool.append(SERVER, f);
+            f.release();
+        }
+        assertTrue(spool.getSegmentCount() >= 5);
+
+        List<Long> replayed = rewind(spool, 3, 1500);
+        // 1.5초 전(5001400) 이전의 키프레임 5001000부터 최신 프레임까지
+        assertEquals(20, replayed.size());
+        assertEquals(5_001_000L, replayed.get(0));
+        assertEquals(5_002_900L, replayed.get(19));
+        assertNull(rewind(spool, 4, 1500), "camera 4 is not spooled");
+
+        // 최대 되감기(2초)를 넘는 요청은 잘림: 5000900 이전의 키프레임 5000000부터
+        List<Long> capped = rewind(spool, 3, 3_600_000);
+        assertEquals(30, capped.size());
+        assertEquals(5_000_000L, capped.get(0));
+
+        // 범위는 연 시점에 고정되고, 이후 추가된 프레임은 포함하지 않음
+        List<Iterator<LiveDataView>> opened = new ArrayList<>();
+        spool.rewind(SERVER, 3, 0, opened::add);
+        LiveDataView later = frame(5_003_000L, true);
+        spool.append(SERVER, later);
+        later.release();
+        int count = 0;
+        for (Iterator<LiveDataView> it = opened.get(0); it.hasNext(); count++) {
+            LiveDataView f = it.next();
+            assertTrue(f.getTimestampMillis() < 5_003_000L);
+            f.release();
+        }
+        assertEquals(10, count);
+        spool.close();
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    void segmentsAreDeletedAfterRetention() throws IOException {
+        RecordingSpool spool = new RecordingSpool(directory, 1000, 60_000, 2000, 1 << 20, Runnable::run, now::get);
+        for (int i = 0; i < 12; i++) {
+            LiveDataView f = frame(5_000_000L + i * 100, i % 10 == 0);
+            spool.append(SERVER, f);
+            f.release();
+            now.addAndGet(10_000);
+        }
+        long before = segmentFiles();
+        assertTrue(before >= 2);
+
+        // 60초 이전에 마지막으로 쓴 세그먼트만 삭제
+        spool.expire();
+        assertTrue(segmentFiles() < before);
+        assertTrue(segmentFiles() > 0);
+
+        now.addAndGet(120_000);
+        spool.expire();
+        assertEquals(0, segmentFiles());
+        assertNull(rewind(spool, 3, 1000), "nothing is spooled");
+        spool.close();
+    }
+
+    @Test
+    void writerBacklogSkipsToNextKeyframe() {
+        // 기록 스레드를 직접 실행해 밀린 상태를 흉내냄
+        List<Runnable> pending = new ArrayList<>();
+        LiveDataView probe = frame(0, true);
+        int frameSize = probe.getFrameSize();
+        probe.release();
+        RecordingSpool spool = new RecordingSpool(directory, 1000, 60_000, 60_000, 3L * frameSize,
+                pending::add, now::get);
+
+        // 0, 1, 2는 대기, 한도를 넘은 키프레임 3과 그 뒤 예측 프레임 4, 5는 생략
+        List<LiveDataView> frames = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            frames.add(frame(5_000_000L + i * 100, i % 3 == 0));
+        }
+        for (int i = 0; i < 6; i++) {
+            spool.append(SERVER, frames.get(i));
+        }
+        assertEquals(3, pending.size());
+        pending.forEach(Runnable::run);
+        pending.clear();
+        for (int i = 6; i < 9; i++) {
+            spool.append(SERVER, frames.get(i));
+        }
+
+        // 되감기는 앞선 기록이 끝난 뒤 실행되고, 공백 이전의 키프레임 0에서 시작하지 않음
+        List<Iterator<LiveDataView>> opened = new ArrayList<>();
+        spool.rewind(SERVER, 3, 60_000, opened::add);
+        assertTrue(opened.isEmpty());
+        pending.forEach(Runnable::run);
+        List<Long> replayed = new ArrayList<>();
+        for (Iterator<LiveDataView> it = opened.get(0); it.hasNext(); ) {
+            LiveDataView f = it.next();
+            replayed.add(f.getTimestampMillis());
+            f.release();
+        }
+        assertEquals(List.of(5_000_600L, 5_000_700L, 5_000_800L), replayed);
+
+        for (LiveDataView f : frames) {
+            assertEquals(1, f.refCnt());
+            f.release();
+        }
+        spool.close();
+    }
+}
@@ -0,0 +1,82 @@
+package rexgen.videoproxy.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import rexgen.videoproxy.protocol.RecordTimeline;
+import rexgen.videoproxy.protocol.RwcVaConstants;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineCacheTest {
+
+    private static final String SERVER = "127.0.0.1:6990";
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger sent = new AtomicInteger();
+
+    private TimelineCache cache(int maxMonths) {
+        return new TimelineCache(maxMonths, 60, new VideoProxyMetrics(new SimpleMeterRegistry()), now::get);
+    }
+
+    private boolean send() {
+        sent.incrementAndGet();
+        return true;
+    }
+
+    private static RecordTimeline.Range range(int cameraId, int month, int... days) {
+        ByteBuf body = Unpooled.buffer();
+        body.writeIntLE(cameraId).writeIntLE(2026).writeIntLE(month);
+        byte[] flags = new byte[RwcVaConstants.RANGE_MONTH];
+        for (int day : days) {
+            flags[day] = 1;
+        }
+        body.writeBytes(flags);
+        return RecordTimeline.Range.parse(body);
+    }
+
+    @Test
+    void concurrentRequestsShareOneUpstreamRequest() throws Exception {
+        TimelineCache cache = cache(8);
+        CompletableFuture<RecordTimeline.Range> first = cache.getRange(SERVER, 1, 2026, 10, this::send);
+        CompletableFuture<RecordTimeline.Range> second = cache.getRange(SERVER, 1, 2026, 10, this::send);
+        assertEquals(1, sent.get());
+        assertFalse(first.isDone());
+
+        cache.putRange(SERVER, range(1, 10, 3, 4, 16));
+        assertEquals(List.of(3, 4, 16), first.get(1, TimeUnit.SECONDS).recordedDays());
+        assertSame(first.get(), second.get());
+
+        // 이후 요청은 캐시에서 응답, 범위에 없는 날의 타임라인도 서버에 묻지 않음
+        assertTrue(cache.getRange(SERVER, 1, 2026, 10, this::send).isDone());
+        RecordTimeline.Day empty = cache.getDay(SERVER, 1, 2026, 10, 5, this::send).get();
+        assertTrue(empty.segments().isEmpty());
+        assertFalse(cache.getDay(SERVER, 1, 2026, 10, 4, this::send).isDone());
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    void monthsExpireAndAreEvictedLeastRecentlyUsed() {
+        TimelineCache cache = cache(2);
+        cache.putRange(SERVER, range(1, 8, 1));
+        cache.putRange(SERVER, range(1, 9, 1));
+        assertTrue(cache.getRange(SERVER, 1, 2026, 8, this::send).isDone());
+
+        // 9월이 가장 오래 쓰이지 않았으므로 제거됨
+        cache.putRange(SERVER, range(1, 10, 1));
+        assertEquals(2, cache.size());
+        assertTrue(cache.getRange(SERVER, 1, 2026, 8, this::send).isDone());
+        assertFalse(cache.getRange(SERVER, 1, 2026, 9, this::send).isDone());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertFalse(cache.getRange(SERVER, 1, 2026, 8, this::send).isDone());
+        assertEquals(2, sent.get());
+    }
+}
@@ -0,0 +1,141 @@
+package rexgen.videoproxy.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * LIVE_DATA frames in the RexWatch wire layout for tests and benchmarks: the
+ * {@value LiveDataView#HEADER_SIZE}-byte header, {@value LiveDataView#OBJECT_SIZE}-byte objects,
+ * extra data and payload. Unset fields are 0, except camera 1, an H.264 intra frame.
+ */
+public final class LiveFrameBuilder {
+    private int cameraId = 1;
+    private long timestampMillis;
+    private int intraCode = RwcVaEnums.IntraCode.INTRA.getValue();
+    private long eventInfo;
+    private int codec = RwcVaEnums.CodecID.H264.getValue();
+    private int fpsReceiveCount;
+    private int fpsUseCount;
+    private int fpsDetectCount;
+    private int countType;
+    private int count;
+    private final ByteBuf objects = Unpooled.buffer();
+    private int objectCount;
+    private byte[] extraData = new byte[0];
+    private byte[] payload = new byte[0];
+
+    public static LiveFrameBuilder frame() {
+        return new LiveFrameBuilder();
+    }
+
+    public LiveFrameBuilder cameraId(int cameraId) {
+        this.cameraId = cameraId;
+        return this;
+    }
+
+    public LiveFrameBuilder timestamp(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+        return this;
+    }
+
+    public LiveFrameBuilder intraCode(RwcVaEnums.IntraCode intraCode) {
+        this.intraCode = intraCode.getValue();
+        return this;
+    }
+
+    /**
+     * INTRA or PREDICT
+     */
+    public LiveFrameBuilder intra(boolean intra) {
+        return intraCode(intra ? RwcVaEnums.IntraCode.INTRA : RwcVaEnums.IntraCode.PREDICT);
+    }
+
+    public LiveFrameBuilder eventInfo(long eventInfo) {
+        this.eventInfo = eventInfo;
+        return this;
+    }
+
+    public LiveFrameBuilder codec(RwcVaEnums.CodecID codec) {
+        this.codec = codec.getValue();
+        return this;
+    }
+
+    public LiveFrameBuilder fps(int receiveCount, int useCount, int detectCount) {
+        this.fpsReceiveCount = receiveCount;
+        this.fpsUseCount = useCount;
+        this.fpsDetectCount = detectCount;
+        return this;
+    }
+
+    public LiveFrameBuilder count(int countType, int count) {
+        this.countType = countType;
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * Append one object; missing attributes are 0
+     */
+    public LiveFrameBuilder object(int index, RwcVaEnums.ObjectType type, float detectionScore, float classScore,
+                                   float x, float y, float width, float height, int... attributes) {
+        if (attributes.length > RwcVaConstants.MAX_ATTRIBUTE_COUNT) {
+            throw new IllegalArgumentException("At most " + RwcVaConstants.MAX_ATTRIBUTE_COUNT + " attributes");
+        }
+        objects.writeIntLE(index);
+        objects.writeShortLE(type.getValue());
+        objects.writeFloatLE(detectionScore).writeFloatLE(classScore);
+        objects.writeFloatLE(x).writeFloatLE(y).writeFloatLE(width).writeFloatLE(height);
+        for (int j = 0; j < RwcVaConstants.MAX_ATTRIBUTE_COUNT; j++) {
+            objects.writeShortLE(j < attributes.length ? attributes[j] : 0);
+        }
+        objectCount++;
+        return this;
+    }
+
+    public LiveFrameBuilder extraData(byte[] extraData) {
+        this.extraData = extraData;
+        return this;
+    }
+
+    public LiveFrameBuilder payload(byte[] payload) {
+        this.payload = payload;
+        return this;
+    }
+
+    /**
+     * Payload of {@code size} zero bytes
+     */
+    public LiveFrameBuilder payload(int size) {
+        return payload(new byte[size]);
+    }
+
+    /**
+     * The frame bytes, in a new buffer owned by the caller
+     */
+    public ByteBuf build() {
+        ByteBuf buf = Unpooled.buffer(LiveDataView.HEADER_SIZE + objects.readableBytes()
+                + extraData.length + payload.length);
+        buf.writeIntLE(cameraId);
+        buf.writeIntLE(payload.length);
+        buf.writeIntLE((int) (timestampMillis / 1000));
+        buf.writeIntLE((int) (timestampMillis % 1000));
+        buf.writeIntLE(intraCode);
+        buf.writeLongLE(eventInfo);
+        buf.writeIntLE(codec);
+        buf.writeIntLE(objectCount);
+        buf.writeByte(fpsReceiveCount).writeByte(fpsUseCount).writeByte(fpsDetectCount).writeByte(countType);
+        buf.writeShortLE(count);
+        buf.writeShortLE(extraData.length);
+        buf.writeBytes(objects, objects.readerIndex(), objects.readableBytes());
+        buf.writeBytes(extraData);
+        buf.writeBytes(payload);
+        return buf;
+    }
+
+    /**
+     * The frame wrapped in a view that owns its buffer
+     */
+    public LiveDataView view() {
+        return LiveDataView.wrap(build());
+    }
+}
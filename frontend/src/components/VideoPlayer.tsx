@@ -1,7 +1,15 @@
 // src/components/VideoPlayer.tsx
-import React, { useEffect, useRef, useState, useCallback } from "react";
-import { webSocketService } from "../services/WebSocketService";
-import { ObjectInfo, LiveDataMetadata, CodecType } from "../types";
+import React, { useEffect, useRef, useState } from "react";
+import {
+  webSocketService,
+  annexBToAvc,
+} from "../services/WebSocketService";
+import {
+  ObjectInfo,
+  LiveDataMetadata,
+  CodecType,
+  IntraCodeType,
+} from "../types";
 
 interface VideoPlayerProps {
   cameraId: number;
@@ -21,7 +29,6 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
   const [isReady, setIsReady] = useState(false); // TCP 연결 준비 상태
   const [error, setError] = useState<string | null>(null);
   const [currentObjects, setCurrentObjects] = useState<ObjectInfo[]>([]);
-  const requestedRef = useRef(false); // 이미 요청이 수행되었는지 추적
 
   // Store decoder and context info
   const decoderRef = useRef<{
@@ -29,31 +36,18 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
     ctx: CanvasRenderingContext2D | null;
     codecType: CodecType;
     extraData: Uint8Array | null;
+    avcFormat: boolean; // avcC description으로 설정됨 - 프레임을 길이 접두 형식으로 변환해 디코딩
+    awaitingKeyFrame: boolean; // (재)설정 후 첫 키프레임 전까지 delta 프레임은 디코딩 불가
   }>({
     decoder: null,
     ctx: null,
     codecType: CodecType.NONE,
     extraData: null,
+    avcFormat: false,
+    awaitingKeyFrame: true,
   });
 
-  // 비디오 요청 함수를 메모화하여 중복 호출 방지
-  const requestVideo = useCallback(() => {
-    if (requestedRef.current) {
-      console.log(
-        `Already requested video for camera ${cameraId}, skipping duplicate request`
-      );
-      return;
-    }
-
-    console.log(`Requesting video for camera ${cameraId}`);
-    webSocketService.requestLiveVideo([cameraId]);
-    requestedRef.current = true;
-  }, [cameraId]);
-
   useEffect(() => {
-    // 컴포넌트 마운트 시 요청 상태 초기화
-    requestedRef.current = false;
-
     // 캔버스 컨텍스트 설정
     if (canvasRef.current) {
       decoderRef.current.ctx = canvasRef.current.getContext("2d");
@@ -68,31 +62,27 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
         if (message.connected) {
           setError(null);
         } else {
-          // 연결 끊김 시 요청 상태 초기화
-          requestedRef.current = false;
           setIsReady(false);
         }
       } else if (message.type === "connectionReady" && message.connected) {
         // 연결 준비 완료 시 상태 업데이트
         console.log(`Connection ready received for camera ${cameraId}`);
         setIsReady(true);
-
-        requestVideo();
-
-        // 연결이 준비되었고 아직 요청하지 않았다면 비디오 요청
-        // if (!requestedRef.current) {
-        //   // 모든 컴포넌트가 동시에 요청하는 것을 방지하기 위해 약간의 지연 적용
-        //   setTimeout(() => {
-        //     console.log(
-        //       `Requesting video for camera ${cameraId} after connection ready`
-        //     );
-        //     requestVideo();
-        //   }, cameraId * 200); // 카메라 ID에 따라 요청 시간 차등화
-        // }
+      } else if (
+        message.type === "codecConfig" &&
+        message.cameraId === cameraId
+      ) {
+        // SPS/PPS가 바뀌면 디코더를 새로 만들지 않고 바로 재설정
+        const decoder = decoderRef.current.decoder;
+        if (decoder && decoderRef.current.codecType === CodecType.H264) {
+          try {
+            decoder.configure(h264DecoderConfig());
+          } catch (e) {
+            console.error("Error reconfiguring H264 decoder:", e);
+          }
+        }
       } else if (message.type === "error") {
         setError(message.message);
-        // 에러 발생 시 요청 상태 초기화
-        requestedRef.current = false;
       } else if (message.type === "liveData") {
         const liveData = message as LiveDataMetadata;
 
@@ -110,10 +100,29 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
       processVideoData(data);
     });
 
+    // 바이너리 프레임 핸들러 등록 (메타데이터 + 영상)
+    const unsubscribeLiveFrame = webSocketService.onCameraFrame(
+      cameraId,
+      (frame) => {
+        setCurrentObjects(frame.objects);
+        processFrame(
+          frame.codec,
+          frame.extraData,
+          frame.data,
+          frame.intraCode === IntraCodeType.INTRA
+        );
+      }
+    );
+
+    // 카메라 구독 - 같은 카메라를 보는 다른 플레이어와 공유되며 연결 준비 시 자동 전송
+    const unsubscribeCamera = webSocketService.subscribeCamera(cameraId);
+
     // 언마운트 시 정리
     return () => {
+      unsubscribeCamera();
       unsubscribeMessage();
       unsubscribeBinary();
+      unsubscribeLiveFrame();
 
       // 디코더 정리
       if (decoderRef.current.decoder) {
@@ -124,7 +133,7 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
         }
       }
     };
-  }, [cameraId, requestVideo]);
+  }, [cameraId]);
 
   // Process binary video data
   const processVideoData = async (data: ArrayBuffer) => {
@@ -138,17 +147,38 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
       const extraDataSize = dataView.getInt32(4, false);
 
       let frameData: Uint8Array;
+      let extraData: Uint8Array | null = null;
 
       if (extraDataSize > 0) {
-        // Store extra data for codec initialization
-        decoderRef.current.extraData = new Uint8Array(
-          data.slice(8, 8 + extraDataSize)
-        );
+        extraData = new Uint8Array(data.slice(8, 8 + extraDataSize));
         frameData = new Uint8Array(data.slice(8 + extraDataSize));
       } else {
         frameData = new Uint8Array(data.slice(8));
       }
 
+      await processFrame(codecValue, extraData, frameData, true);
+    } catch (e) {
+      console.error("Error processing video data:", e);
+    }
+  };
+
+  // Decode or render a single frame
+  const processFrame = async (
+    codecValue: number,
+    extraData: Uint8Array | null,
+    frameData: Uint8Array,
+    isKeyFrame: boolean
+  ) => {
+    if (!decoderRef.current.ctx) {
+      return;
+    }
+
+    try {
+      if (extraData) {
+        // Store extra data for codec initialization
+        decoderRef.current.extraData = extraData;
+      }
+
       // If codec changed or decoder not initialized, create new decoder
       if (
         codecValue !== decoderRef.current.codecType ||
@@ -166,7 +196,7 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
 
         switch (codecValue) {
           case CodecType.H264:
-            await initializeH264Decoder(frameData);
+            await initializeH264Decoder(frameData, isKeyFrame);
             break;
           case CodecType.MJPEG:
             await renderMjpegFrame(frameData);
@@ -178,7 +208,7 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
         // Decoder already initialized, just process the frame
         switch (decoderRef.current.codecType) {
           case CodecType.H264:
-            await decodeH264Frame(frameData);
+            await decodeH264Frame(frameData, isKeyFrame);
             break;
           case CodecType.MJPEG:
             await renderMjpegFrame(frameData);
@@ -190,8 +220,28 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
     }
   };
 
+  // Decoder configuration: the server's avcC description if there is one, else Annex-B with in-band SPS/PPS
+  const h264DecoderConfig = () => {
+    const codecConfig = webSocketService.getCodecConfig(cameraId);
+    decoderRef.current.avcFormat = codecConfig !== undefined;
+    decoderRef.current.awaitingKeyFrame = true;
+    return codecConfig
+      ? {
+          codec: codecConfig.codec,
+          description: codecConfig.description,
+          optimizeForLatency: true,
+        }
+      : {
+          codec: "avc1.42E01F", // Baseline profile
+          optimizeForLatency: true,
+        };
+  };
+
   // Initialize H264 decoder
-  const initializeH264Decoder = async (frameData: Uint8Array) => {
+  const initializeH264Decoder = async (
+    frameData: Uint8Array,
+    isKeyFrame: boolean
+  ) => {
     try {
       // Using browser's VideoDecoder API if available
       if ("VideoDecoder" in window) {
@@ -205,16 +255,11 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
         });
 
         // Configure the decoder
-        const config = {
-          codec: "avc1.42E01F", // Baseline profile
-          optimizeForLatency: true,
-        };
-
-        videoDecoder.configure(config);
+        videoDecoder.configure(h264DecoderConfig());
         decoderRef.current.decoder = videoDecoder;
 
         // Decode the first frame
-        await decodeH264Frame(frameData);
+        await decodeH264Frame(frameData, isKeyFrame);
       } else {
         // Fallback - you can use a JavaScript-based decoder like Broadway.js
         console.warn("VideoDecoder API not available, using fallback");
@@ -226,17 +271,27 @@ const VideoPlayer: React.FC<VideoPlayerProps> = ({
   };
 
   // Decode H264 frame
-  const decodeH264Frame = async (frameData: Uint8Array) => {
+  const decodeH264Frame = async (
+    frameData: Uint8Array,
+    isKeyFrame: boolean
+  ) => {
     if (!decoderRef.current.decoder) {
       console.error("Decoder not initialized");
       return;
     }
 
+    if (decoderRef.current.awaitingKeyFrame) {
+      if (!isKeyFrame) {
+        return;
+      }
+      decoderRef.current.awaitingKeyFrame = false;
+    }
+
     try {
       const chunk = new (window as any).EncodedVideoChunk({
-        type: "key", // or 'delta' based on frame type
+        type: isKeyFrame ? "key" : "delta",
         timestamp: performance.now(),
-        data: frameData,
+        data: decoderRef.current.avcFormat ? annexBToAvc(frameData) : frameData,
       });
 
       decoderRef.current.decoder.decode(chunk);
@@ -1,14 +1,123 @@
 // src/services/WebSocketService.ts
-import { ServerConfig, WebSocketMessage, LiveDataMetadata } from "../types";
+import {
+  ServerConfig,
+  WebSocketMessage,
+  LiveDataMetadata,
+  LiveFrame,
+  ObjectInfo,
+  ObjectType,
+  CodecConfig,
+} from "../types";
 
 type MessageHandler = (message: WebSocketMessage) => void;
 type BinaryHandler = (data: ArrayBuffer) => void;
+type LiveFrameHandler = (frame: LiveFrame) => void;
+
+// 바이너리 프레임 레이아웃 (서버의 LiveFrameEncoder와 동일, little-endian)
+const LIVE_FRAME_VERSION = 1;
+const LIVE_FRAME_HEADER_SIZE = 28;
+
+export function parseLiveFrame(buffer: ArrayBuffer): LiveFrame | null {
+  const view = new DataView(buffer);
+  if (
+    buffer.byteLength < LIVE_FRAME_HEADER_SIZE ||
+    view.getUint8(0) !== LIVE_FRAME_VERSION
+  ) {
+    return null;
+  }
+
+  const objectCount = view.getUint16(16, true);
+  const recordSize = view.getUint16(18, true);
+  const extraDataSize = view.getInt32(20, true);
+  const payloadSize = view.getInt32(24, true);
+
+  const objects: ObjectInfo[] = new Array(objectCount);
+  let offset = LIVE_FRAME_HEADER_SIZE;
+  for (let i = 0; i < objectCount; i++, offset += recordSize) {
+    const typeValue = view.getInt32(offset, true);
+    const attributes: number[] = [];
+    for (let a = offset + 32; a + 2 <= offset + recordSize; a += 2) {
+      attributes.push(view.getInt16(a, true));
+    }
+    objects[i] = {
+      type: ObjectType[typeValue] ?? String(typeValue),
+      x: view.getFloat32(offset + 8, true),
+      y: view.getFloat32(offset + 12, true),
+      width: view.getFloat32(offset + 16, true),
+      height: view.getFloat32(offset + 20, true),
+      detectionScore: view.getFloat32(offset + 24, true),
+      attributes,
+    };
+  }
+
+  const extraData =
+    extraDataSize > 0 ? new Uint8Array(buffer, offset, extraDataSize) : null;
+  offset += extraDataSize;
+
+  return {
+    cameraId: view.getInt32(4, true),
+    timestamp: Number(view.getBigInt64(8, true)),
+    codec: view.getUint8(1),
+    intraCode: view.getUint8(2),
+    objects,
+    extraData,
+    data: new Uint8Array(buffer, offset, payloadSize),
+  };
+}
+
+// Annex-B(시작 코드 구분) 영상을 AVC(4바이트 길이 접두) 형식으로 변환 - avcC description으로 설정한 디코더용
+export function annexBToAvc(data: Uint8Array): Uint8Array {
+  // 시작 코드 다음 NAL 헤더 위치 수집
+  const nals: number[] = [];
+  let i = 0;
+  while (i + 3 < data.length) {
+    const b = data[i + 2];
+    if (b > 1) {
+      i += 3;
+    } else if (b === 1 && data[i + 1] === 0 && data[i] === 0) {
+      nals.push(i + 3);
+      i += 3;
+    } else {
+      i++;
+    }
+  }
+  if (nals.length === 0) {
+    return data; // 이미 길이 접두 형식
+  }
+
+  const ends = nals.map((start, k) => {
+    let end = k + 1 < nals.length ? nals[k + 1] - 3 : data.length;
+    while (end > start + 1 && data[end - 1] === 0) {
+      end--;
+    }
+    return end;
+  });
+  const size = nals.reduce((sum, start, k) => sum + 4 + ends[k] - start, 0);
+  const out = new Uint8Array(size);
+  const view = new DataView(out.buffer);
+  let offset = 0;
+  nals.forEach((start, k) => {
+    view.setUint32(offset, ends[k] - start);
+    out.set(data.subarray(start, ends[k]), offset + 4);
+    offset += 4 + ends[k] - start;
+  });
+  return out;
+}
 
 export class WebSocketService {
   private videoWs: WebSocket | null = null;
   private controlWs: WebSocket | null = null;
   private messageHandlers: MessageHandler[] = [];
   private binaryHandlers: BinaryHandler[] = [];
+  private liveFrameHandlers: LiveFrameHandler[] = [];
+  // 카메라별 프레임 핸들러 - 수신 프레임을 cameraId로 바로 찾아 전달
+  private cameraFrameHandlers = new Map<number, Set<LiveFrameHandler>>();
+  // 카메라별 구독 참조 수 - 0 -> 1, 1 -> 0 변화 때만 서버에 요청
+  private cameraRefCounts = new Map<number, number>();
+  // 재생 프레임 핸들러 - /ws/control로 들어오는 PLAY_DATA (라이브와 같은 바이너리 형식)
+  private playbackFrameHandlers: LiveFrameHandler[] = [];
+  // 카메라별 최신 H.264 디코더 설정 - 서버는 바뀔 때만 보내므로 나중에 붙는 플레이어를 위해 보관
+  private codecConfigs = new Map<number, CodecConfig>();
   private config: ServerConfig | null = null;
   // 비디오와 컨트롤에 대한 별도의 재연결 카운터 사용
   private videoReconnectAttempts = 0;
@@ -16,6 +125,9 @@ export class WebSocketService {
   private readonly MAX_RECONNECT_ATTEMPTS = 5;
   private currentCameraIds: number[] | null = null;
   private videoConnectionReady = false;
+  // 비디오 연결이 끊긴 시각 - 재구독 시 서버 스풀에서 놓친 구간을 되감기 위해 사용
+  private videoDisconnectedAt: number | null = null;
+  private readonly MAX_REWIND_SECONDS = 30;
   private controlConnectionReady = false;
   private connectionMonitor: any | null = null;
   private isReconnecting = false; // 재연결 진행 중 여부를 추적
@@ -39,6 +151,7 @@ export class WebSocketService {
     }
 
     this.config = config;
+    this.codecConfigs.clear();
     this.videoReconnectAttempts = 0; // 비디오 연결의 재연결 카운터만 초기화
     this.videoConnectionReady = false;
     this.isReconnecting = true; // 재연결 중 상태 설정
@@ -57,6 +170,7 @@ export class WebSocketService {
     const wsUrl = `ws://${window.location.hostname}:8080/ws/video`;
     console.log(`Connecting to video WebSocket: ${wsUrl}`);
     this.videoWs = new WebSocket(wsUrl);
+    this.videoWs.binaryType = "arraybuffer";
 
     this.videoWs.onopen = () => {
       console.log("Video WebSocket connected");
@@ -71,6 +185,9 @@ export class WebSocketService {
             type: "connect",
             serverIp: config.serverIp,
             serverPort: config.serverPort,
+            format: "binary",
+            // SPS/PPS는 프레임마다 받지 않고 바뀔 때만 avcC로 받음
+            codecConfig: true,
           })
         );
       }
@@ -88,6 +205,9 @@ export class WebSocketService {
         `Video WebSocket disconnected with code: ${event.code}, reason: ${event.reason}`
       );
       this.videoConnectionReady = false;
+      if (this.videoDisconnectedAt === null) {
+        this.videoDisconnectedAt = Date.now();
+      }
       this.notifyHandlers({
         type: "connection",
         connected: false,
@@ -135,6 +255,32 @@ export class WebSocketService {
                 this.requestLiveVideo(this.currentCameraIds!);
               }, 500);
             }
+
+            // 새 TCP 세션이므로 구독 중인 카메라를 다시 등록, 끊겨 있던 만큼 되감기 요청
+            const rewindSeconds =
+              this.videoDisconnectedAt !== null
+                ? Math.min(
+                    (Date.now() - this.videoDisconnectedAt) / 1000,
+                    this.MAX_REWIND_SECONDS
+                  )
+                : 0;
+            this.videoDisconnectedAt = null;
+            if (this.cameraRefCounts.size > 0) {
+              this.sendSubscription(
+                "subscribe",
+                [...this.cameraRefCounts.keys()],
+                rewindSeconds
+              );
+            }
+          } else if (message.type === "codecConfig") {
+            const description = Uint8Array.from(atob(message.description), (c) =>
+              c.charCodeAt(0)
+            );
+            this.codecConfigs.set(message.cameraId, {
+              codec: message.codec,
+              description,
+            });
+            message.description = description;
           } else if (message.type === "liveData") {
             // 로그 줄임 - 대량의 로그는 성능 문제 야기 가능
             // if (Math.random() < 0.05) {
@@ -149,6 +295,15 @@ export class WebSocketService {
         } catch (e) {
           console.error("Error parsing WebSocket message:", e);
         }
+      } else if (event.data instanceof ArrayBuffer) {
+        // format=binary: 메타데이터와 영상이 하나의 메시지로 들어온다
+        const frame = parseLiveFrame(event.data);
+        if (frame) {
+          this.notifyCameraFrameHandlers(frame);
+          this.notifyLiveFrameHandlers(frame);
+        } else {
+          this.notifyBinaryHandlers(event.data);
+        }
       } else if (event.data instanceof Blob) {
         // 자바에서 Byte로 보내면 자바스크립트에는 Blob으로 들어온다. 이제 Blob 케이스를 직접 처리한다
         //console.log(`📹 Received Blob: ${event.data.size} bytes`);
@@ -209,6 +364,7 @@ export class WebSocketService {
     const wsUrl = `ws://${window.location.hostname}:8080/ws/control`;
     console.log(`Connecting to control WebSocket: ${wsUrl}`);
     this.controlWs = new WebSocket(wsUrl);
+    this.controlWs.binaryType = "arraybuffer";
 
     this.controlWs.onopen = () => {
       console.log("Control WebSocket connected");
@@ -279,6 +435,12 @@ export class WebSocketService {
         } catch (e) {
           console.error("Error parsing WebSocket message:", e);
         }
+      } else if (event.data instanceof ArrayBuffer) {
+        // 서버가 타임스탬프에 맞춰 보내는 재생 프레임
+        const frame = parseLiveFrame(event.data);
+        if (frame) {
+          this.notifyPlaybackFrameHandlers(frame);
+        }
       }
     };
   }
@@ -356,6 +518,64 @@ export class WebSocketService {
     );
   }
 
+  // Subscribe to one camera; returns a function that releases the subscription
+  public subscribeCamera(cameraId: number): () => void {
+    const count = this.cameraRefCounts.get(cameraId) ?? 0;
+    this.cameraRefCounts.set(cameraId, count + 1);
+    if (count === 0) {
+      this.sendSubscription("subscribe", [cameraId]);
+    }
+
+    let released = false;
+    return () => {
+      if (released) {
+        return;
+      }
+      released = true;
+      this.unsubscribeCamera(cameraId);
+    };
+  }
+
+  // Release one subscription to a camera
+  public unsubscribeCamera(cameraId: number): void {
+    const count = this.cameraRefCounts.get(cameraId);
+    if (count === undefined) {
+      return;
+    }
+    if (count > 1) {
+      this.cameraRefCounts.set(cameraId, count - 1);
+      return;
+    }
+    this.cameraRefCounts.delete(cameraId);
+    // 디코더 설정은 지우지 않음 - 서버는 이 세션에 이미 보낸 설정을 다시 보내지 않음
+    this.sendSubscription("unsubscribe", [cameraId]);
+  }
+
+  // Send subscribe / unsubscribe; before connectionReady the cameras are sent on ready
+  private sendSubscription(
+    type: "subscribe" | "unsubscribe",
+    cameraIds: number[],
+    rewindSeconds = 0
+  ): void {
+    if (
+      !this.videoConnectionReady ||
+      !this.videoWs ||
+      this.videoWs.readyState !== WebSocket.OPEN
+    ) {
+      return;
+    }
+
+    this.videoWs.send(
+      JSON.stringify({
+        type,
+        cameraIds,
+        ...(rewindSeconds > 0 ? { rewindSeconds } : {}),
+        serverIp: this.config?.serverIp,
+        serverPort: this.config?.serverPort,
+      })
+    );
+  }
+
   // Request playback
   public requestPlayback(
     cameraIds: number[],
@@ -427,6 +647,47 @@ export class WebSocketService {
     this.controlWs.send(JSON.stringify(command));
   }
 
+  // Seek current playback (served from buffered keyframes when possible)
+  public seekPlayback(time: Date): void {
+    if (!this.controlWs || this.controlWs.readyState !== WebSocket.OPEN) {
+      console.error("Control WebSocket not connected");
+      return;
+    }
+
+    console.log(`Seeking playback to ${time.toISOString()}`);
+    this.controlWs.send(
+      JSON.stringify({
+        type: "playbackSeek",
+        time: time.toISOString(),
+        serverIp: this.config?.serverIp,
+        serverPort: this.config?.serverPort,
+      })
+    );
+  }
+
+  // Request recorded days of a month (answered with a "recordRange" message)
+  public requestRecordRange(cameraId: number, year: number, month: number): void {
+    this.sendControl({ type: "recordRange", cameraId, year, month });
+  }
+
+  // Request recorded minutes of a day (answered with a "timeline" message of [start, end) segments)
+  public requestTimeline(
+    cameraId: number,
+    year: number,
+    month: number,
+    day: number
+  ): void {
+    this.sendControl({ type: "timeline", cameraId, year, month, day });
+  }
+
+  private sendControl(message: Record<string, unknown>): void {
+    if (!this.controlWs || this.controlWs.readyState !== WebSocket.OPEN) {
+      console.error("Control WebSocket not connected");
+      return;
+    }
+    this.controlWs.send(JSON.stringify(message));
+  }
+
   // Register message handler
   public onMessage(handler: MessageHandler): () => void {
     this.messageHandlers.push(handler);
@@ -443,6 +704,53 @@ export class WebSocketService {
     };
   }
 
+  // Register live frame handler (binary envelope format)
+  public onLiveFrame(handler: LiveFrameHandler): () => void {
+    this.liveFrameHandlers.push(handler);
+    return () => {
+      this.liveFrameHandlers = this.liveFrameHandlers.filter(
+        (h) => h !== handler
+      );
+    };
+  }
+
+  // Register playback frame handler (paced PLAY_DATA from the control endpoint)
+  public onPlaybackFrame(handler: LiveFrameHandler): () => void {
+    this.playbackFrameHandlers.push(handler);
+    return () => {
+      this.playbackFrameHandlers = this.playbackFrameHandlers.filter(
+        (h) => h !== handler
+      );
+    };
+  }
+
+  // Register frame handler for a single camera (binary envelope format)
+  public onCameraFrame(
+    cameraId: number,
+    handler: LiveFrameHandler
+  ): () => void {
+    let handlers = this.cameraFrameHandlers.get(cameraId);
+    if (!handlers) {
+      handlers = new Set();
+      this.cameraFrameHandlers.set(cameraId, handlers);
+    }
+    handlers.add(handler);
+    return () => {
+      const current = this.cameraFrameHandlers.get(cameraId);
+      if (current) {
+        current.delete(handler);
+        if (current.size === 0) {
+          this.cameraFrameHandlers.delete(cameraId);
+        }
+      }
+    };
+  }
+
+  // Latest H.264 decoder configuration of a camera, if the server sent one
+  public getCodecConfig(cameraId: number): CodecConfig | undefined {
+    return this.codecConfigs.get(cameraId);
+  }
+
   // Get connection state
   public isVideoReady(): boolean {
     return (
@@ -513,6 +821,43 @@ export class WebSocketService {
     }
   }
 
+  // Notify all live frame handlers
+  private notifyLiveFrameHandlers(frame: LiveFrame): void {
+    for (const handler of this.liveFrameHandlers) {
+      try {
+        handler(frame);
+      } catch (e) {
+        console.error("Error in live frame handler:", e);
+      }
+    }
+  }
+
+  // Notify all playback frame handlers
+  private notifyPlaybackFrameHandlers(frame: LiveFrame): void {
+    for (const handler of this.playbackFrameHandlers) {
+      try {
+        handler(frame);
+      } catch (e) {
+        console.error("Error in playback frame handler:", e);
+      }
+    }
+  }
+
+  // Notify handlers registered for the frame's camera
+  private notifyCameraFrameHandlers(frame: LiveFrame): void {
+    const handlers = this.cameraFrameHandlers.get(frame.cameraId);
+    if (!handlers) {
+      return;
+    }
+    for (const handler of handlers) {
+      try {
+        handler(frame);
+      } catch (e) {
+        console.error("Error in camera frame handler:", e);
+      }
+    }
+  }
+
   // Attempt to reconnect with better backoff
   private attemptReconnect(endpoint: "video" | "control"): void {
     const attempts =
@@ -34,6 +34,7 @@ export interface ObjectInfo {
   width: number;
   height: number;
   detectionScore: number;
+  attributes?: number[];
 }
 
 export interface LiveDataMetadata {
@@ -45,6 +46,23 @@ export interface LiveDataMetadata {
   objects: ObjectInfo[];
 }
 
+// format=binary 연결에서 메타데이터와 영상을 한 번에 담은 프레임
+export interface LiveFrame {
+  cameraId: number;
+  timestamp: number;
+  codec: CodecType;
+  intraCode: IntraCodeType;
+  objects: ObjectInfo[];
+  extraData: Uint8Array | null;
+  data: Uint8Array;
+}
+
+// codecConfig=true 연결에서 카메라의 SPS/PPS가 바뀔 때만 오는 H.264 디코더 설정
+export interface CodecConfig {
+  codec: string; // avc1.PPCCLL
+  description: Uint8Array; // avcC
+}
+
 export interface WebSocketMessage {
   type: string;
   [key: string]: any;